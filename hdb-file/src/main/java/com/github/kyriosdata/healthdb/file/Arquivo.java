@@ -26,6 +26,11 @@ import java.nio.ByteBuffer;
  * (código que faz uso dessa interface), sem referência explícita
  * ou dependência para o real meio empregado para armazenar ou
  * consultar tais sequências de bytes.
+ *
+ * <p>Posições no arquivo são valores {@code long}, ou seja, o
+ * tamanho de um arquivo não está limitado a 2GB. Quantidades de
+ * bytes transferidas, limitadas pela capacidade de um buffer,
+ * permanecem {@code int}.
  */
 public interface Arquivo {
 
@@ -71,6 +76,24 @@ public interface Arquivo {
      */
     boolean fecha();
 
+    /**
+     * Recupera o tamanho do arquivo.
+     *
+     * @return Total de bytes do arquivo ou -1, se o arquivo não está
+     * aberto.
+     */
+    long tamanho();
+
+    /**
+     * Assegura que o conteúdo escrito no arquivo encontra-se no meio
+     * de armazenamento, ou seja, que sobrevive a uma falha do sistema
+     * operacional.
+     *
+     * @return {@code true} se o conteúdo foi persistido e
+     * {@code false}, caso contrário.
+     */
+    boolean sincroniza();
+
     /**
      * Acrescenta o conteúdo do buffer, desde o primeiro byte
      * até o último, ao final do arquivo.
@@ -82,7 +105,7 @@ public interface Arquivo {
      *
      * @see #acrescenta(byte[], int, int)
      */
-    int acrescenta(ByteBuffer buffer);
+    long acrescenta(ByteBuffer buffer);
 
     /**
      * Acrescenta o total de bytes do buffer, a partir da posição
@@ -100,7 +123,7 @@ public interface Arquivo {
      *
      * @see #acrescenta(ByteBuffer)
      */
-    int acrescenta(byte[] buffer, int i, int total);
+    long acrescenta(byte[] buffer, int i, int total);
 
     /**
      * Obtém do arquivo, a partir de determinada posição, um total de bytes
@@ -116,9 +139,9 @@ public interface Arquivo {
      *
      * @return Quantidade de bytes carregados.
      *
-     * @see #carrega(byte[], int)
+     * @see #carrega(byte[], long)
      */
-    int carrega(ByteBuffer buffer, int posicao);
+    int carrega(ByteBuffer buffer, long posicao);
 
     /**
      * Obtém do arquivo o total de bytes do buffer, a partir de determinada
@@ -133,9 +156,9 @@ public interface Arquivo {
      * @return Quantidade de bytes carregados. Pode ser valor inferior ao
      * tamanho do buffer (em caso de falha).
      *
-     * @see #carrega(ByteBuffer, int)
+     * @see #carrega(ByteBuffer, long)
      */
-    int carrega(byte[] buffer, int posicao);
+    int carrega(byte[] buffer, long posicao);
 
     /**
      * Deposita no arquivo, a partir da posição indicada, o total de
@@ -150,9 +173,9 @@ public interface Arquivo {
      * @return Quantidade de bytes escritos, em caso de falha, pode
      * ser inferior ao total requisitado.
      *
-     * @see #escreve(byte[], int)
+     * @see #escreve(byte[], long)
      */
-    int escreve(ByteBuffer buffer, int posicao);
+    int escreve(ByteBuffer buffer, long posicao);
 
     /**
      * Deposita no arquivo, a partir da posição indicada, o total de
@@ -167,7 +190,48 @@ public interface Arquivo {
      * @return Quantidade de bytes escritos, em caso de falha, pode
      * ser inferior ao total requisitado.
      *
-     * @see #escreve(ByteBuffer, int)
+     * @see #escreve(ByteBuffer, long)
+     */
+    int escreve(byte[] buffer, long posicao);
+
+    /**
+     * Obtém do arquivo, a partir de determinada posição, bytes
+     * consecutivos a serem depositados nos buffers, na ordem em que
+     * são fornecidos (leitura "scatter"). Por exemplo, uma sequência
+     * de blocos adjacentes pode ser depositada em buffers distintos
+     * por uma única operação.
+     *
+     * <p>Cada buffer é previamente "limpo" ({@link ByteBuffer#clear()})
+     * e preenchido até a capacidade, exceto quando o final do arquivo
+     * é alcançado.
+     *
+     * @param buffers Buffers onde bytes lidos serão depositados.
+     *
+     * @param posicao Posição inicial do arquivo a partir da qual bytes
+     *                serão lidos.
+     *
+     * @return Quantidade total de bytes carregados ou -1, em caso de
+     * falha ou se a posição não é anterior ao final do arquivo.
+     *
+     * @see #carrega(ByteBuffer, long)
+     */
+    long carrega(ByteBuffer[] buffers, long posicao);
+
+    /**
+     * Deposita no arquivo, a partir da posição indicada, o conteúdo
+     * disponível nos buffers, na ordem em que são fornecidos (escrita
+     * "gather"), por uma única operação.
+     *
+     * @param buffers Buffers dos quais bytes serão consultados para a
+     *                inserção no arquivo.
+     *
+     * @param posicao Posição inicial no arquivo a partir da qual
+     *                bytes serão escritos.
+     *
+     * @return Quantidade total de bytes escritos ou -1, em caso de
+     * falha.
+     *
+     * @see #escreve(ByteBuffer, long)
      */
-    int escreve(byte[] buffer, int posicao);
+    long escreve(ByteBuffer[] buffers, long posicao);
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.file;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * Agrupa acréscimos a um {@link Arquivo} em escritas sequenciais de
+ * maior tamanho (<i>write-behind</i>). Um acréscimo é depositado em
+ * buffer e retorna imediatamente a posição lógica do conteúdo
+ * acrescentado. O buffer é escrito no arquivo quando não comporta o
+ * próximo acréscimo, ou em {@link #sincroniza()} e {@link #fecha()}.
+ * Acréscimos maiores que a capacidade são escritos diretamente.
+ *
+ * <p>Leituras e escritas em posições arbitrárias são precedidas pela
+ * escrita do buffer, ou seja, o conteúdo acrescentado é sempre
+ * visível. Se a escrita do buffer falha, os acréscimos permanecem
+ * pendentes e a escrita é novamente tentada na mesma posição, ou
+ * seja, as posições já retornadas permanecem válidas. Em caso de
+ * término abrupto do processo, contudo, os acréscimos ainda no
+ * buffer são perdidos.
+ *
+ * <p>O acesso ao buffer é sincronizado, ou seja, a instância pode ser
+ * compartilhada por várias <i>threads</i> se o {@link Arquivo}
+ * agrupado também pode. Nesse caso, leituras não são serializadas
+ * entre si.
+ */
+public class ArquivoAgrupado implements Arquivo, Closeable {
+
+    private final Arquivo arquivo;
+
+    /**
+     * Acréscimos ainda não escritos no arquivo.
+     */
+    private final ByteBuffer pendentes;
+
+    /**
+     * Final do arquivo, incluídos os acréscimos pendentes, ou -1
+     * se desconhecido (arquivo fechado).
+     */
+    private long fim = -1;
+
+    /**
+     * Cria agrupamento de acréscimos para o arquivo indicado.
+     *
+     * @param arquivo Arquivo cujos acréscimos serão agrupados.
+     * @param capacidade Quantidade de bytes acumulada antes que uma
+     *                   escrita seja realizada.
+     */
+    public ArquivoAgrupado(Arquivo arquivo, int capacidade) {
+        this.arquivo = arquivo;
+        this.pendentes = ByteBuffer.allocate(capacidade);
+    }
+
+    @Override
+    public String filename() {
+        return arquivo.filename();
+    }
+
+    @Override
+    public synchronized void filename(String nome) {
+        // Pendentes que não puderam ser escritos não pertencem ao
+        // próximo arquivo
+        descarrega();
+        pendentes.clear();
+        fim = -1;
+        arquivo.filename(nome);
+    }
+
+    @Override
+    public synchronized boolean abre() {
+        return arquivo.abre();
+    }
+
+    @Override
+    public boolean estaAberto() {
+        return arquivo.estaAberto();
+    }
+
+    @Override
+    public synchronized boolean fecha() {
+        boolean escrito = descarrega();
+        fim = -1;
+        return arquivo.fecha() && escrito;
+    }
+
+    @Override
+    public synchronized long tamanho() {
+        return arquivo.estaAberto() ? fim() : -1;
+    }
+
+    @Override
+    public synchronized boolean sincroniza() {
+        return descarrega() && arquivo.sincroniza();
+    }
+
+    @Override
+    public synchronized long acrescenta(ByteBuffer buffer) {
+        if (!arquivo.estaAberto()) {
+            return -1;
+        }
+
+        long posicao = fim();
+        int total = buffer.remaining();
+
+        if (total > pendentes.remaining() && !descarrega()) {
+            return -1;
+        }
+
+        if (total > pendentes.capacity()) {
+            if (arquivo.escreve(buffer, posicao) != total) {
+                return -1;
+            }
+        } else {
+            pendentes.put(buffer);
+        }
+
+        fim = posicao + total;
+        return posicao;
+    }
+
+    @Override
+    public long acrescenta(byte[] buffer, int i, int total) {
+        return acrescenta(ByteBuffer.wrap(buffer, i, total));
+    }
+
+    @Override
+    public int carrega(ByteBuffer buffer, long posicao) {
+        return descarregaPendentes() ? arquivo.carrega(buffer, posicao) : -1;
+    }
+
+    @Override
+    public int carrega(byte[] buffer, long posicao) {
+        return descarregaPendentes() ? arquivo.carrega(buffer, posicao) : -1;
+    }
+
+    @Override
+    public long carrega(ByteBuffer[] buffers, long posicao) {
+        return descarregaPendentes() ? arquivo.carrega(buffers, posicao) : -1;
+    }
+
+    @Override
+    public synchronized int escreve(ByteBuffer buffer, long posicao) {
+        if (!descarrega()) {
+            return -1;
+        }
+
+        int escritos = arquivo.escreve(buffer, posicao);
+        fim = escritos == -1 ? -1 : Math.max(fim(), posicao + escritos);
+        return escritos;
+    }
+
+    @Override
+    public int escreve(byte[] buffer, long posicao) {
+        return escreve(ByteBuffer.wrap(buffer), posicao);
+    }
+
+    @Override
+    public synchronized long escreve(ByteBuffer[] buffers, long posicao) {
+        if (!descarrega()) {
+            return -1;
+        }
+
+        long escritos = arquivo.escreve(buffers, posicao);
+        fim = escritos == -1 ? -1 : Math.max(fim(), posicao + escritos);
+        return escritos;
+    }
+
+    @Override
+    public void close() {
+        fecha();
+    }
+
+    /**
+     * Final do arquivo, incluídos os acréscimos pendentes.
+     */
+    private long fim() {
+        if (fim == -1) {
+            fim = arquivo.tamanho() + pendentes.position();
+        }
+
+        return fim;
+    }
+
+    /**
+     * Escreve os acréscimos pendentes antes de uma leitura. Apenas
+     * a escrita é sincronizada, não a leitura que a sucede.
+     */
+    private boolean descarregaPendentes() {
+        synchronized (this) {
+            return descarrega();
+        }
+    }
+
+    /**
+     * Escreve os acréscimos pendentes, em sequência, ao final do
+     * arquivo. Em caso de falha, os acréscimos permanecem pendentes,
+     * ou seja, a escrita é novamente tentada na mesma posição.
+     */
+    private boolean descarrega() {
+        if (pendentes.position() == 0) {
+            return true;
+        }
+
+        ByteBuffer dados = pendentes.duplicate();
+        dados.flip();
+        int total = dados.remaining();
+        long posicao = fim() - total;
+        if (arquivo.escreve(dados, posicao) != total) {
+            return false;
+        }
+
+        pendentes.clear();
+        return true;
+    }
+}
@@ -0,0 +1,504 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Implementação de {@link Arquivo} que dispensa o <i>cache</i> do
+ * sistema operacional (<i>O_DIRECT</i>). Os blocos são mantidos
+ * apenas pelo gerente de buffers, ou seja, não há duplicidade de
+ * blocos em memória, e a memória empregada é previsível.
+ *
+ * <p>Leituras e escritas diretas exigem posição, quantidade de bytes
+ * e endereço do buffer alinhados ao bloco do sistema de arquivos
+ * ({@link #alinhamento()}). Um buffer alinhado é obtido por meio de
+ * {@link #aloca(int, int)}. Operações que atendem a essas condições
+ * são executadas diretamente sobre o buffer fornecido (sem cópia);
+ * as demais empregam buffer intermediário alinhado, e os blocos
+ * parcialmente alterados por uma escrita são lidos previamente.
+ *
+ * <p>O tamanho lógico do arquivo é mantido pela instância e
+ * restaurado em {@link #fecha()}, pois a escrita do último bloco
+ * sempre o preenche. Após o término abrupto do processo, o arquivo
+ * pode conter zeros após o tamanho lógico.
+ *
+ * <p>Depende de {@code com.sun.nio.file.ExtendedOpenOption.DIRECT}
+ * (Java 10 ou posterior) e de sistema de arquivos compatível (não é
+ * o caso de <i>tmpfs</i>, por exemplo). Na ausência de suporte,
+ * {@link #abre()} retorna {@code false}. Uma instância não é
+ * <b>thread-safe</b>.
+ */
+public class ArquivoDireto implements Arquivo, Closeable {
+
+    /**
+     * Alinhamento empregado quando o bloco do sistema de arquivos
+     * não pode ser obtido.
+     */
+    public static final int ALINHAMENTO_PADRAO = 4096;
+
+    /**
+     * {@code ExtendedOpenOption.DIRECT} ou {@code null}, se não
+     * disponível.
+     */
+    private static final OpenOption DIRECT;
+
+    /**
+     * {@code ByteBuffer.alignedSlice(int)}.
+     */
+    private static final MethodHandle ALIGNED_SLICE;
+
+    /**
+     * {@code ByteBuffer.alignmentOffset(int, int)}.
+     */
+    private static final MethodHandle ALIGNMENT_OFFSET;
+
+    /**
+     * {@code FileStore.getBlockSize()}.
+     */
+    private static final MethodHandle BLOCK_SIZE;
+
+    static {
+        OpenOption direct = null;
+        MethodHandle alignedSlice = null;
+        MethodHandle alignmentOffset = null;
+        MethodHandle blockSize = null;
+
+        // Disponíveis apenas em versões posteriores ao Java 8
+        try {
+            Class<?> extendida = Class.forName("com.sun.nio.file.ExtendedOpenOption");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+            alignedSlice = lookup.findVirtual(ByteBuffer.class, "alignedSlice",
+                    MethodType.methodType(ByteBuffer.class, int.class));
+            alignmentOffset = lookup.findVirtual(ByteBuffer.class, "alignmentOffset",
+                    MethodType.methodType(int.class, int.class, int.class));
+            blockSize = lookup.findVirtual(FileStore.class, "getBlockSize",
+                    MethodType.methodType(long.class));
+
+            for (Object opcao : extendida.getEnumConstants()) {
+                if ("DIRECT".equals(((Enum<?>) opcao).name())) {
+                    direct = (OpenOption) opcao;
+                }
+            }
+        } catch (ReflectiveOperationException | RuntimeException exp) {
+            direct = null;
+        }
+
+        DIRECT = direct;
+        ALIGNED_SLICE = alignedSlice;
+        ALIGNMENT_OFFSET = alignmentOffset;
+        BLOCK_SIZE = blockSize;
+    }
+
+    private Path path;
+    private FileChannel channel;
+
+    private int alinhamento = ALINHAMENTO_PADRAO;
+
+    /**
+     * Buffer intermediário (alinhado) para operações não alinhadas.
+     */
+    private ByteBuffer intermediario;
+
+    /**
+     * Tamanho lógico do arquivo.
+     */
+    private long tamanho;
+
+    /**
+     * Verifica se a plataforma oferece acesso direto.
+     *
+     * @return {@code true} se e somente se a opção DIRECT está
+     * disponível.
+     */
+    public static boolean suportado() {
+        return DIRECT != null;
+    }
+
+    /**
+     * Aloca buffer (<i>direct</i>) cujo endereço é alinhado conforme
+     * indicado, o que permite leituras e escritas diretas.
+     *
+     * @param capacidade Capacidade do buffer (múltiplo do alinhamento).
+     * @param alinhamento Alinhamento (potência de 2).
+     *
+     * @return Buffer alinhado com a capacidade indicada.
+     *
+     * @throws UnsupportedOperationException Se a plataforma não
+     * oferece acesso direto.
+     */
+    public static ByteBuffer aloca(int capacidade, int alinhamento) {
+        if (!suportado()) {
+            throw new UnsupportedOperationException("acesso direto não suportado");
+        }
+
+        ByteBuffer bruto = ByteBuffer.allocateDirect(capacidade + alinhamento - 1);
+        try {
+            ByteBuffer alinhado = (ByteBuffer) ALIGNED_SLICE.invoke(bruto, alinhamento);
+            alinhado.limit(capacidade);
+            return alinhado.slice();
+        } catch (Throwable exp) {
+            throw new IllegalStateException(exp);
+        }
+    }
+
+    /**
+     * Verifica se o conteúdo disponível no buffer pode ser transferido
+     * diretamente, ou seja, se o buffer é <i>direct</i>, a posição
+     * corrente é alinhada e os bytes disponíveis são múltiplo do
+     * alinhamento.
+     */
+    private boolean alinhado(ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.remaining() % alinhamento != 0) {
+            return false;
+        }
+
+        try {
+            return (int) ALIGNMENT_OFFSET.invoke(buffer, buffer.position(), alinhamento) == 0;
+        } catch (Throwable exp) {
+            return false;
+        }
+    }
+
+    @Override
+    public void filename(String nome) {
+        path = Paths.get(nome);
+    }
+
+    @Override
+    public String filename() {
+        return path.toString();
+    }
+
+    @Override
+    public boolean abre() {
+        if (estaAberto()) {
+            return true;
+        }
+
+        if (!suportado()) {
+            return false;
+        }
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, DIRECT);
+            tamanho = channel.size();
+            alinhamento = alinhamento(Files.getFileStore(path));
+        } catch (Exception exp) {
+            // Sem truncar: o tamanho do arquivo pode não ter sido obtido
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException fechamento) {
+                    // Falha na abertura já informada
+                }
+
+                channel = null;
+            }
+
+            return false;
+        }
+
+        return true;
+    }
+
+    private static int alinhamento(FileStore fs) {
+        try {
+            long bloco = (long) BLOCK_SIZE.invoke(fs);
+            if (bloco > 0 && bloco <= 1 << 16 && Long.bitCount(bloco) == 1) {
+                return (int) bloco;
+            }
+        } catch (Throwable exp) {
+            // Emprega o alinhamento padrão
+        }
+
+        return ALINHAMENTO_PADRAO;
+    }
+
+    @Override
+    public boolean estaAberto() {
+        return channel != null && channel.isOpen();
+    }
+
+    @Override
+    public boolean fecha() {
+        if (channel == null) {
+            return false;
+        }
+
+        boolean fechado = true;
+        try {
+            // Remove o preenchimento do último bloco
+            channel.truncate(tamanho);
+        } catch (IOException exp) {
+            fechado = false;
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException exp) {
+                fechado = false;
+            }
+
+            channel = null;
+        }
+
+        return fechado;
+    }
+
+    /**
+     * Alinhamento exigido para transferências diretas.
+     *
+     * @return Tamanho do bloco do sistema de arquivos.
+     */
+    public int alinhamento() {
+        return alinhamento;
+    }
+
+    /**
+     * Tamanho lógico do arquivo.
+     *
+     * @return Total de bytes do arquivo ou -1, se o arquivo não está
+     * aberto.
+     */
+    @Override
+    public long tamanho() {
+        return channel == null ? -1 : tamanho;
+    }
+
+    /**
+     * Escritas diretas não permanecem em <i>cache</i>, mas os
+     * metadados do arquivo e o <i>cache</i> do dispositivo podem
+     * exigir a sincronização.
+     */
+    @Override
+    public boolean sincroniza() {
+        if (channel == null) {
+            return false;
+        }
+
+        try {
+            channel.force(false);
+            return true;
+        } catch (IOException exp) {
+            return false;
+        }
+    }
+
+    @Override
+    public long acrescenta(ByteBuffer buffer) {
+        if (channel == null) {
+            return -1;
+        }
+
+        long posicao = tamanho;
+        return escreve(buffer, posicao) == -1 ? -1 : posicao;
+    }
+
+    @Override
+    public long acrescenta(byte[] buffer, int i, int total) {
+        return acrescenta(ByteBuffer.wrap(buffer, i, total));
+    }
+
+    @Override
+    public int carrega(ByteBuffer buffer, long posicao) {
+        buffer.clear();
+        if (channel == null || posicao < 0 || posicao >= tamanho) {
+            return -1;
+        }
+
+        int total = (int) Math.min(buffer.remaining(), tamanho - posicao);
+
+        try {
+            if (posicao % alinhamento == 0 && total == buffer.remaining() && alinhado(buffer)) {
+                le(buffer, posicao);
+                return total;
+            }
+
+            long inicio = posicao - posicao % alinhamento;
+            ByteBuffer meio = intermediario(arredonda(posicao + total) - inicio);
+            le(meio, inicio);
+
+            meio.position((int) (posicao - inicio));
+            meio.limit(meio.position() + total);
+            buffer.put(meio);
+            return total;
+        } catch (IOException exp) {
+            return -1;
+        }
+    }
+
+    @Override
+    public int carrega(byte[] buffer, long posicao) {
+        return carrega(ByteBuffer.wrap(buffer), posicao);
+    }
+
+    @Override
+    public int escreve(ByteBuffer buffer, long posicao) {
+        if (channel == null || posicao < 0) {
+            return -1;
+        }
+
+        int total = buffer.remaining();
+
+        try {
+            if (posicao % alinhamento == 0 && alinhado(buffer)) {
+                grava(buffer, posicao);
+            } else {
+                long inicio = posicao - posicao % alinhamento;
+                long fim = arredonda(posicao + total);
+                ByteBuffer meio = intermediario(fim - inicio);
+
+                // Preserva o conteúdo dos blocos parcialmente alterados
+                if (posicao != inicio) {
+                    preserva(meio, 0, inicio);
+                }
+
+                if (posicao + total != fim && (fim - alinhamento > inicio || posicao == inicio)) {
+                    preserva(meio, (int) (fim - inicio) - alinhamento, fim - alinhamento);
+                }
+
+                meio.clear();
+                meio.position((int) (posicao - inicio));
+                meio.put(buffer);
+                meio.position(0);
+                meio.limit((int) (fim - inicio));
+                grava(meio, inicio);
+            }
+        } catch (IOException exp) {
+            return -1;
+        }
+
+        tamanho = Math.max(tamanho, posicao + total);
+        return total;
+    }
+
+    @Override
+    public int escreve(byte[] buffer, long posicao) {
+        return escreve(ByteBuffer.wrap(buffer), posicao);
+    }
+
+    @Override
+    public long carrega(ByteBuffer[] buffers, long posicao) {
+        for (ByteBuffer buffer : buffers) {
+            buffer.clear();
+        }
+
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            int lidos = carrega(buffer, posicao + total);
+            if (lidos == -1) {
+                break;
+            }
+
+            total += lidos;
+
+            // Final do arquivo
+            if (buffer.hasRemaining()) {
+                break;
+            }
+        }
+
+        return total == 0 && buffers.length > 0 ? -1 : total;
+    }
+
+    @Override
+    public long escreve(ByteBuffer[] buffers, long posicao) {
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            int escritos = escreve(buffer, posicao + total);
+            if (escritos == -1) {
+                return -1;
+            }
+
+            total += escritos;
+        }
+
+        return total;
+    }
+
+    @Override
+    public void close() {
+        fecha();
+    }
+
+    /**
+     * Menor múltiplo do alinhamento igual ou superior ao valor.
+     */
+    private long arredonda(long valor) {
+        return (valor + alinhamento - 1) / alinhamento * alinhamento;
+    }
+
+    /**
+     * Buffer intermediário com o total de bytes disponíveis indicado.
+     */
+    private ByteBuffer intermediario(long total) {
+        if (intermediario == null || intermediario.capacity() < total) {
+            intermediario = aloca((int) total, alinhamento);
+        }
+
+        intermediario.clear();
+        intermediario.limit((int) total);
+        return intermediario;
+    }
+
+    /**
+     * Deposita no buffer intermediário, na posição indicada, o bloco
+     * do arquivo (ou zeros, após o final do arquivo).
+     */
+    private void preserva(ByteBuffer meio, int destino, long bloco) throws IOException {
+        ByteBuffer trecho = meio.duplicate();
+        trecho.limit(destino + alinhamento);
+        trecho.position(destino);
+        trecho = trecho.slice();
+
+        for (int i = 0; i < alinhamento; i++) {
+            trecho.put(i, (byte) 0);
+        }
+
+        if (bloco < tamanho) {
+            le(trecho, bloco);
+        }
+    }
+
+    /**
+     * Lê o arquivo até preencher o buffer ou alcançar o final.
+     */
+    private void le(ByteBuffer buffer, long posicao) throws IOException {
+        long p = posicao;
+        while (buffer.hasRemaining()) {
+            int lidos = channel.read(buffer, p);
+            if (lidos <= 0) {
+                return;
+            }
+
+            p += lidos;
+        }
+    }
+
+    private void grava(ByteBuffer buffer, long posicao) throws IOException {
+        long p = posicao;
+        while (buffer.hasRemaining()) {
+            p += channel.write(buffer, p);
+        }
+    }
+}
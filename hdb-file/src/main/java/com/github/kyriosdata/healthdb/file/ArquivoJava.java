@@ -10,8 +10,7 @@ package com.github.kyriosdata.healthdb.file;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SeekableByteChannel;
-import java.nio.file.Files;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
@@ -26,7 +25,7 @@ import java.nio.file.StandardOpenOption;
 public class ArquivoJava implements Arquivo, Closeable {
 
     private Path path;
-    private SeekableByteChannel channel;
+    private FileChannel channel;
 
     @Override
     public void filename(String nome) {
@@ -45,7 +44,7 @@ public class ArquivoJava implements Arquivo, Closeable {
         }
 
         try {
-            channel = Files.newByteChannel(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
         } catch (IOException exp) {
             return false;
         }
@@ -72,6 +71,25 @@ public class ArquivoJava implements Arquivo, Closeable {
         return true;
     }
 
+    @Override
+    public long tamanho() {
+        try {
+            return channel.size();
+        } catch (Exception exp) {
+            return -1;
+        }
+    }
+
+    @Override
+    public boolean sincroniza() {
+        try {
+            channel.force(false);
+            return true;
+        } catch (Exception exp) {
+            return false;
+        }
+    }
+
     /**
      * Acrescenta, ao final do arquivo indicado, o conteúdo disponível no
      * buffer. Observe que não necessariamente é o conteúdo completo do
@@ -85,10 +103,11 @@ public class ArquivoJava implements Arquivo, Closeable {
      *
      * */
     @Override
-    public int acrescenta(ByteBuffer buffer) {
+    public long acrescenta(ByteBuffer buffer) {
 
         try {
-            int posicao = (int) channel.position();
+            // Final do arquivo (e não a posição da última operação)
+            long posicao = channel.size();
             escreve(buffer, posicao);
             return posicao;
         } catch (Exception exp) {
@@ -97,12 +116,12 @@ public class ArquivoJava implements Arquivo, Closeable {
     }
 
     @Override
-    public int acrescenta(byte[] buffer, int i, int total) {
+    public long acrescenta(byte[] buffer, int i, int total) {
         return acrescenta(ByteBuffer.wrap(buffer, i, total));
     }
 
     @Override
-    public int carrega(ByteBuffer buffer, int posicao) {
+    public int carrega(ByteBuffer buffer, long posicao) {
         try {
             buffer.clear();
             channel.position(posicao);
@@ -113,12 +132,12 @@ public class ArquivoJava implements Arquivo, Closeable {
     }
 
     @Override
-    public int carrega(byte[] buffer, int posicao) {
+    public int carrega(byte[] buffer, long posicao) {
         return carrega(ByteBuffer.wrap(buffer), posicao);
     }
 
     @Override
-    public int escreve(ByteBuffer buffer, int posicao) {
+    public int escreve(ByteBuffer buffer, long posicao) {
         try {
             // Posição inicial de escrita
             channel.position(posicao);
@@ -134,10 +153,80 @@ public class ArquivoJava implements Arquivo, Closeable {
     }
 
     @Override
-    public int escreve(byte[] buffer, int posicao) {
+    public int escreve(byte[] buffer, long posicao) {
         return escreve(ByteBuffer.wrap(buffer), posicao);
     }
 
+    @Override
+    public long carrega(ByteBuffer[] buffers, long posicao) {
+        if (buffers.length == 0) {
+            return 0;
+        }
+
+        try {
+            for (ByteBuffer buffer : buffers) {
+                buffer.clear();
+            }
+
+            long restante = restante(buffers);
+            if (restante == 0) {
+                return 0;
+            }
+
+            channel.position(posicao);
+
+            // Os buffers são preenchidos na ordem (único "readv")
+            long total = 0;
+            while (total < restante) {
+                long lidos = channel.read(buffers);
+                if (lidos == -1) {
+                    break;
+                }
+
+                total += lidos;
+            }
+
+            return total == 0 ? -1 : total;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public long escreve(ByteBuffer[] buffers, long posicao) {
+        if (buffers.length == 0) {
+            return 0;
+        }
+
+        try {
+            long restante = restante(buffers);
+            channel.position(posicao);
+
+            // Os buffers são consumidos na ordem (único "writev")
+            long total = 0;
+            while (total < restante) {
+                total += channel.write(buffers);
+            }
+
+            return total;
+        } catch (Exception ex) {
+            return -1;
+        }
+    }
+
+    /**
+     * Total de bytes disponíveis nos buffers (um buffer vazio não
+     * encerra a transferência dos demais).
+     */
+    private static long restante(ByteBuffer[] buffers) {
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            total += buffer.remaining();
+        }
+
+        return total;
+    }
+
     @Override
     public void close() {
         fecha();
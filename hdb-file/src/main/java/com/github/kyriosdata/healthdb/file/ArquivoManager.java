@@ -144,6 +144,22 @@ public interface ArquivoManager extends Closeable {
      */
     boolean fecha(int handle);
 
+    /**
+     * Passa a agrupar os acréscimos ao arquivo em escritas
+     * sequenciais de maior tamanho ({@link ArquivoAgrupado}). O
+     * acréscimo retorna imediatamente a posição lógica do conteúdo
+     * acrescentado, e a escrita ocorre quando a capacidade é
+     * alcançada, o arquivo é sincronizado ou fechado.
+     *
+     * @param handle O handle do arquivo.
+     * @param capacidade Quantidade de bytes acumulada antes que
+     *                   uma escrita seja realizada.
+     *
+     * @return {@code true} se o agrupamento foi definido e
+     * {@code false}, caso contrário (handle inválido).
+     */
+    boolean agrupa(int handle, int capacidade);
+
     /**
      * Recupera a instância que representa um arquivo por meio da
      * qual operações de leitura e escrita podem ser executadas.
@@ -11,14 +11,22 @@ package com.github.kyriosdata.healthdb.file;
 
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Implementação de {@link ArquivoService} baseada no sistema de
  * nomeToHandle encapsulado por Java. Ou seja, essa implementação deve
  * funcionar nos ambientes Windows, Linux e MacOS.
+ *
+ * <p>Handles são inteiros consecutivos, empregados diretamente como
+ * índices de uma tabela de arquivos. Dessa forma, a obtenção do
+ * arquivo correspondente a um handle ({@link #get(int)}) não exige
+ * sincronização nem <i>boxing</i>. Alterações na tabela (registro,
+ * remoção de registro) são sincronizadas, e a tabela é copiada
+ * apenas quando a capacidade é esgotada.
  */
 public class ArquivoManagerJava implements ArquivoManager {
 
@@ -40,27 +48,44 @@ public class ArquivoManagerJava implements ArquivoManager {
     private Map<String, Integer> nomeToHandle;
 
     /**
-     * Mantém a relação entre um handle e o arquivo
-     * correspondente.
+     * Mantém a relação entre um handle (índice) e o arquivo
+     * correspondente. Substituída por cópia de maior capacidade
+     * quando necessário.
+     */
+    private volatile AtomicReferenceArray<Arquivo> handleToArquivo;
+
+    /**
+     * Implementação de {@link Arquivo} empregada para os arquivos
+     * registrados.
      */
-    private Map<Integer, Arquivo> handleToArquivo;
+    private TipoArquivo tipo;
 
+    /**
+     * Prepara o gerente de arquivos.
+     *
+     * @param params Opcionalmente, o {@link TipoArquivo} a ser
+     *               empregado. O padrão é {@link TipoArquivo#JAVA}.
+     */
     @Override
     public void start(Object... params) {
-        nomeToHandle = new HashMap<>(INITIAL_CAPACITY);
-        handleToArquivo = new HashMap<>(INITIAL_CAPACITY);
+        tipo = TipoArquivo.de(params);
+        nomeToHandle = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+        handleToArquivo = new AtomicReferenceArray<>(INITIAL_CAPACITY);
         handleGenerator = new AtomicInteger(-1);
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
 
         // Fechar os arquivos gerenciados
-        for (Arquivo arquivo : handleToArquivo.values()) {
-            arquivo.fecha();
+        AtomicReferenceArray<Arquivo> tabela = handleToArquivo;
+        for (int i = 0; i < tabela.length(); i++) {
+            Arquivo arquivo = tabela.getAndSet(i, null);
+            if (arquivo != null) {
+                arquivo.fecha();
+            }
         }
 
-        handleToArquivo.clear();
         handleToArquivo = null;
 
         nomeToHandle.clear();
@@ -71,19 +96,38 @@ public class ArquivoManagerJava implements ArquivoManager {
 
     @Override
     public boolean abre(int handle) {
-        Arquivo arquivo = handleToArquivo.get(handle);
+        Arquivo arquivo = get(handle);
         return arquivo != null && arquivo.abre();
     }
 
     @Override
     public boolean fecha(int handle) {
-        Arquivo arquivo = handleToArquivo.get(handle);
+        Arquivo arquivo = get(handle);
         return arquivo != null && arquivo.fecha();
     }
 
+    @Override
+    public synchronized boolean agrupa(int handle, int capacidade) {
+        Arquivo arquivo = get(handle);
+        if (arquivo == null) {
+            return false;
+        }
+
+        if (!(arquivo instanceof ArquivoAgrupado)) {
+            handleToArquivo.set(handle, new ArquivoAgrupado(arquivo, capacidade));
+        }
+
+        return true;
+    }
+
     @Override
     public Arquivo get(int handle) {
-        return handleToArquivo.get(handle);
+        AtomicReferenceArray<Arquivo> tabela = handleToArquivo;
+        if (handle < 0 || handle >= tabela.length()) {
+            return null;
+        }
+
+        return tabela.get(handle);
     }
 
     @Override
@@ -93,7 +137,7 @@ public class ArquivoManagerJava implements ArquivoManager {
 
     @Override
     public String filename(int handle) {
-        Arquivo arquivo = handleToArquivo.get(handle);
+        Arquivo arquivo = get(handle);
         return arquivo == null ? null : arquivo.filename();
     }
 
@@ -120,28 +164,60 @@ public class ArquivoManagerJava implements ArquivoManager {
     @Override
     public int register(String filename) {
         Integer handle = nomeToHandle.get(filename);
-        if (handle == null) {
-            int newHandle = handleGenerator.incrementAndGet();
-            nomeToHandle.put(filename, newHandle);
+        return handle != null ? handle : registra(filename);
+    }
+
+    /**
+     * Registra o arquivo, caso não registrado por outra
+     * <i>thread</i>. O arquivo é inserido na tabela antes de o
+     * nome ser associado ao handle, ou seja, um handle obtido por
+     * {@link #register(String)} é sempre válido.
+     */
+    private synchronized int registra(String filename) {
+        Integer handle = nomeToHandle.get(filename);
+        if (handle != null) {
+            return handle;
+        }
 
-            Arquivo arquivo = new ArquivoJava();
-            arquivo.filename(filename);
-            handleToArquivo.put(newHandle, arquivo);
+        int newHandle = handleGenerator.incrementAndGet();
+
+        Arquivo arquivo = tipo.novo();
+        arquivo.filename(filename);
+        garante(newHandle).set(newHandle, arquivo);
+
+        nomeToHandle.put(filename, newHandle);
+        return newHandle;
+    }
+
+    /**
+     * Assegura que a tabela contempla o handle indicado. Leituras
+     * simultâneas da tabela anterior permanecem válidas, pois os
+     * arquivos registrados são os mesmos em ambas.
+     */
+    private AtomicReferenceArray<Arquivo> garante(int handle) {
+        AtomicReferenceArray<Arquivo> tabela = handleToArquivo;
+        if (handle < tabela.length()) {
+            return tabela;
+        }
 
-            handle = newHandle;
+        int capacidade = Math.max(handle + 1, tabela.length() * 2);
+        AtomicReferenceArray<Arquivo> nova = new AtomicReferenceArray<>(capacidade);
+        for (int i = 0; i < tabela.length(); i++) {
+            nova.set(i, tabela.get(i));
         }
 
-        return handle;
+        handleToArquivo = nova;
+        return nova;
     }
 
     @Override
-    public void unregister(int handle) {
-        Arquivo arquivo = handleToArquivo.get(handle);
+    public synchronized void unregister(int handle) {
+        Arquivo arquivo = get(handle);
         if (arquivo == null) {
             return;
         }
 
-        handleToArquivo.remove(handle);
+        handleToArquivo.set(handle, null);
         nomeToHandle.remove(arquivo.filename());
 
         // Fecha o arquivo
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Implementação de {@link Arquivo} baseada em mapeamento do arquivo
+ * em memória ({@link FileChannel#map}). Leituras e escritas são
+ * cópias de memória, sem chamada ao sistema operacional, e
+ * {@link #fatia(long, int)} oferece acesso ao conteúdo sem cópia.
+ *
+ * <p>O arquivo é mapeado em janelas de tamanho fixo (potência de 2),
+ * apenas até o tamanho do arquivo, ou seja, o mapeamento nunca
+ * estende o arquivo (inclusive quando empregado apenas para
+ * leitura). Bytes escritos além do trecho mapeado, em particular os
+ * acrescentados, são escritos por meio do canal e o trecho
+ * correspondente é mapeado apenas quando acessado (a última janela é
+ * novamente mapeada). Dessa forma, o tamanho do arquivo é sempre o
+ * total de bytes escritos, mesmo após o término abrupto do processo.
+ *
+ * <p>Assim como {@link ArquivoJava}, uma instância pode ser
+ * reutilizada para vários arquivos, um por vez, e não é
+ * <b>thread-safe</b>.
+ */
+public class ArquivoMapeado implements Arquivo, Closeable {
+
+    /**
+     * Tamanho padrão de cada janela (16MB).
+     */
+    public static final int JANELA_PADRAO = 1 << 24;
+
+    private final int deslocamento;
+
+    private final int mascara;
+
+    private Path path;
+    private FileChannel channel;
+
+    private MappedByteBuffer[] janelas = new MappedByteBuffer[0];
+
+    /**
+     * Quantidade de janelas mapeadas. A última pode ser parcial.
+     */
+    private int mapeadas;
+
+    /**
+     * Total de bytes do arquivo contemplados pelas janelas mapeadas.
+     */
+    private long mapeado;
+
+    /**
+     * Tamanho do arquivo.
+     */
+    private long tamanho;
+
+    /**
+     * Cria instância cujas janelas possuem o tamanho padrão.
+     */
+    public ArquivoMapeado() {
+        this(JANELA_PADRAO);
+    }
+
+    /**
+     * Cria instância cujas janelas possuem o tamanho indicado.
+     *
+     * @param janela Tamanho, em bytes, de cada janela. Deve ser
+     *               potência de 2.
+     */
+    public ArquivoMapeado(int janela) {
+        if (janela <= 0 || Integer.bitCount(janela) != 1) {
+            throw new IllegalArgumentException("janela deve ser potência de 2");
+        }
+
+        deslocamento = Integer.numberOfTrailingZeros(janela);
+        mascara = janela - 1;
+    }
+
+    @Override
+    public void filename(String nome) {
+        path = Paths.get(nome);
+    }
+
+    @Override
+    public String filename() {
+        return path.toString();
+    }
+
+    @Override
+    public boolean abre() {
+        if (estaAberto()) {
+            return true;
+        }
+
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            tamanho = channel.size();
+            mapeia(tamanho);
+        } catch (Exception exp) {
+            fecha();
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean estaAberto() {
+        return channel != null && channel.isOpen();
+    }
+
+    @Override
+    public boolean fecha() {
+        if (channel == null) {
+            return false;
+        }
+
+        Arrays.fill(janelas, 0, mapeadas, null);
+        mapeadas = 0;
+        mapeado = 0;
+
+        try {
+            channel.close();
+        } catch (IOException exp) {
+            return false;
+        } finally {
+            channel = null;
+        }
+
+        return true;
+    }
+
+    /**
+     * Tamanho do arquivo.
+     *
+     * @return Total de bytes do arquivo ou -1, se o arquivo não está
+     * aberto.
+     */
+    @Override
+    public long tamanho() {
+        return channel == null ? -1 : tamanho;
+    }
+
+    /**
+     * Persiste o conteúdo das janelas alteradas e aquele escrito por
+     * meio do canal.
+     */
+    @Override
+    public boolean sincroniza() {
+        if (channel == null) {
+            return false;
+        }
+
+        try {
+            for (int i = 0; i < mapeadas; i++) {
+                janelas[i].force();
+            }
+
+            channel.force(false);
+        } catch (IOException | UncheckedIOException exp) {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Oferece acesso, sem cópia, a um trecho do arquivo. Alterações
+     * no buffer retornado são alterações no arquivo. O buffer
+     * retornado não deve ser empregado após {@link #fecha()}.
+     *
+     * @param posicao Posição inicial do trecho.
+     * @param total Quantidade de bytes do trecho.
+     *
+     * @return Buffer cuja posição é zero e cujo limite é o total,
+     * ou {@code null}, se o trecho não está contido no arquivo ou
+     * se estende por mais de uma janela (nesse caso, deve ser
+     * empregado {@link #carrega(ByteBuffer, long)}).
+     */
+    public ByteBuffer fatia(long posicao, int total) {
+        if (channel == null || posicao < 0 || total < 0 || posicao + total > tamanho) {
+            return null;
+        }
+
+        int inicio = (int) (posicao & mascara);
+        if (inicio + total > mascara + 1) {
+            return null;
+        }
+
+        try {
+            mapeia(posicao + total);
+        } catch (IOException exp) {
+            return null;
+        }
+
+        ByteBuffer trecho = janelas[(int) (posicao >>> deslocamento)].duplicate();
+        trecho.position(inicio);
+        trecho.limit(inicio + total);
+        return trecho.slice();
+    }
+
+    @Override
+    public long acrescenta(ByteBuffer buffer) {
+        if (channel == null) {
+            return -1;
+        }
+
+        long posicao = tamanho;
+        return escreve(buffer, posicao) == -1 ? -1 : posicao;
+    }
+
+    @Override
+    public long acrescenta(byte[] buffer, int i, int total) {
+        return acrescenta(ByteBuffer.wrap(buffer, i, total));
+    }
+
+    @Override
+    public int carrega(ByteBuffer buffer, long posicao) {
+        buffer.clear();
+        if (channel == null || posicao < 0 || posicao >= tamanho) {
+            return -1;
+        }
+
+        int total = (int) Math.min(buffer.remaining(), tamanho - posicao);
+
+        try {
+            mapeia(posicao + total);
+        } catch (IOException exp) {
+            return -1;
+        }
+
+        copia(buffer, posicao, total, false);
+        return total;
+    }
+
+    @Override
+    public int carrega(byte[] buffer, long posicao) {
+        return carrega(ByteBuffer.wrap(buffer), posicao);
+    }
+
+    @Override
+    public int escreve(ByteBuffer buffer, long posicao) {
+        if (channel == null || posicao < 0) {
+            return -1;
+        }
+
+        int total = buffer.remaining();
+        long fim = posicao + total;
+
+        try {
+            // Trecho já existente no arquivo: cópia para as janelas
+            long existente = Math.min(fim, tamanho);
+            if (posicao < existente) {
+                mapeia(existente);
+                copia(buffer, posicao, (int) (existente - posicao), true);
+            }
+
+            // Além do final do arquivo: escrita pelo canal, que
+            // estende o arquivo exatamente até o último byte escrito
+            long corrente = Math.max(posicao, existente);
+            while (buffer.hasRemaining()) {
+                corrente += channel.write(buffer, corrente);
+            }
+        } catch (IOException exp) {
+            return -1;
+        }
+
+        tamanho = Math.max(tamanho, fim);
+        return total;
+    }
+
+    @Override
+    public int escreve(byte[] buffer, long posicao) {
+        return escreve(ByteBuffer.wrap(buffer), posicao);
+    }
+
+    /**
+     * Cópias de memória sucessivas, uma por buffer.
+     */
+    @Override
+    public long carrega(ByteBuffer[] buffers, long posicao) {
+        for (ByteBuffer buffer : buffers) {
+            buffer.clear();
+        }
+
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            int lidos = carrega(buffer, posicao + total);
+            if (lidos == -1) {
+                break;
+            }
+
+            total += lidos;
+
+            // Final do arquivo
+            if (buffer.hasRemaining()) {
+                break;
+            }
+        }
+
+        return total == 0 && buffers.length > 0 ? -1 : total;
+    }
+
+    @Override
+    public long escreve(ByteBuffer[] buffers, long posicao) {
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            int escritos = escreve(buffer, posicao + total);
+            if (escritos == -1) {
+                return -1;
+            }
+
+            total += escritos;
+        }
+
+        return total;
+    }
+
+    @Override
+    public void close() {
+        fecha();
+    }
+
+    /**
+     * Copia bytes entre o buffer e as janelas, a partir da posição
+     * do arquivo indicada.
+     */
+    private void copia(ByteBuffer buffer, long posicao, int total, boolean escrita) {
+        int limite = buffer.limit();
+
+        while (total > 0) {
+            MappedByteBuffer janela = janelas[(int) (posicao >>> deslocamento)];
+            int inicio = (int) (posicao & mascara);
+            int parte = Math.min(total, mascara + 1 - inicio);
+
+            janela.limit(inicio + parte);
+            janela.position(inicio);
+            buffer.limit(buffer.position() + parte);
+
+            if (escrita) {
+                janela.put(buffer);
+            } else {
+                buffer.put(janela);
+            }
+
+            posicao += parte;
+            total -= parte;
+        }
+
+        buffer.limit(limite);
+    }
+
+    /**
+     * Assegura que as janelas mapeadas contemplam o arquivo até a
+     * posição indicada (exclusive), que não ultrapassa o tamanho do
+     * arquivo. As janelas são mapeadas até o tamanho do arquivo, ou
+     * seja, a última janela parcial é novamente mapeada.
+     */
+    private void mapeia(long fim) throws IOException {
+        if (fim <= mapeado) {
+            return;
+        }
+
+        int necessarias = (int) ((tamanho + mascara) >>> deslocamento);
+        if (necessarias > janelas.length) {
+            janelas = Arrays.copyOf(janelas, Math.max(necessarias, janelas.length * 2));
+        }
+
+        // Inicia pela última janela, se parcial
+        int proxima = (int) (mapeado >>> deslocamento);
+        int janela = mascara + 1;
+        while (proxima < necessarias) {
+            long inicio = (long) proxima << deslocamento;
+            long parte = Math.min(janela, tamanho - inicio);
+            janelas[proxima++] = channel.map(FileChannel.MapMode.READ_WRITE, inicio, parte);
+            mapeadas = proxima;
+            mapeado = inicio + parte;
+        }
+    }
+}
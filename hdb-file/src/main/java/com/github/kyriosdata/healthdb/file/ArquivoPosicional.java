@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementação de {@link Arquivo} baseada em leitura e escrita
+ * posicionais ({@link FileChannel#read(ByteBuffer, long)} e
+ * {@link FileChannel#write(ByteBuffer, long)}, ou seja,
+ * <i>pread</i>/<i>pwrite</i>), que não alteram a posição
+ * compartilhada do canal.
+ *
+ * <p>Em consequência, após {@link #abre()}, as operações de leitura
+ * e escrita podem ser executadas simultaneamente por várias
+ * <i>threads</i>, sem sincronização externa. Acréscimos reservam a
+ * região ao final do arquivo por meio de contador atômico, ou seja,
+ * acréscimos simultâneos ocupam regiões distintas. A abertura e o
+ * fechamento, contudo, não devem ser concorrentes com as demais
+ * operações.
+ */
+public class ArquivoPosicional implements Arquivo, Closeable {
+
+    private Path path;
+    private volatile FileChannel channel;
+
+    /**
+     * Final do arquivo, incluídas as regiões reservadas por
+     * acréscimos ainda em andamento.
+     */
+    private final AtomicLong fim = new AtomicLong();
+
+    @Override
+    public void filename(String nome) {
+        path = Paths.get(nome);
+    }
+
+    @Override
+    public String filename() {
+        return path.toString();
+    }
+
+    @Override
+    public boolean abre() {
+        if (estaAberto()) {
+            return true;
+        }
+
+        try {
+            FileChannel canal = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            fim.set(canal.size());
+            channel = canal;
+        } catch (IOException exp) {
+            return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean estaAberto() {
+        FileChannel canal = channel;
+        return canal != null && canal.isOpen();
+    }
+
+    @Override
+    public boolean fecha() {
+        FileChannel canal = channel;
+        if (canal == null) {
+            return false;
+        }
+
+        try {
+            canal.close();
+        } catch (IOException exp) {
+            return false;
+        } finally {
+            channel = null;
+        }
+
+        return true;
+    }
+
+    @Override
+    public long tamanho() {
+        return channel == null ? -1 : fim.get();
+    }
+
+    @Override
+    public boolean sincroniza() {
+        FileChannel canal = channel;
+        if (canal == null) {
+            return false;
+        }
+
+        try {
+            canal.force(false);
+            return true;
+        } catch (IOException exp) {
+            return false;
+        }
+    }
+
+    @Override
+    public long acrescenta(ByteBuffer buffer) {
+        if (channel == null) {
+            return -1;
+        }
+
+        long posicao = fim.getAndAdd(buffer.remaining());
+        return escreve(buffer, posicao) == -1 ? -1 : posicao;
+    }
+
+    @Override
+    public long acrescenta(byte[] buffer, int i, int total) {
+        return acrescenta(ByteBuffer.wrap(buffer, i, total));
+    }
+
+    @Override
+    public int carrega(ByteBuffer buffer, long posicao) {
+        FileChannel canal = channel;
+        if (canal == null || posicao < 0) {
+            return -1;
+        }
+
+        try {
+            buffer.clear();
+
+            int total = 0;
+            while (buffer.hasRemaining()) {
+                int lidos = canal.read(buffer, posicao + total);
+                if (lidos == -1) {
+                    return total == 0 ? -1 : total;
+                }
+
+                total += lidos;
+            }
+
+            return total;
+        } catch (IOException exp) {
+            return -1;
+        }
+    }
+
+    @Override
+    public int carrega(byte[] buffer, long posicao) {
+        return carrega(ByteBuffer.wrap(buffer), posicao);
+    }
+
+    @Override
+    public int escreve(ByteBuffer buffer, long posicao) {
+        FileChannel canal = channel;
+        if (canal == null || posicao < 0) {
+            return -1;
+        }
+
+        try {
+            int total = 0;
+            while (buffer.hasRemaining()) {
+                total += canal.write(buffer, posicao + total);
+            }
+
+            atualizaFim(posicao + (long) total);
+            return total;
+        } catch (IOException exp) {
+            return -1;
+        }
+    }
+
+    @Override
+    public int escreve(byte[] buffer, long posicao) {
+        return escreve(ByteBuffer.wrap(buffer), posicao);
+    }
+
+    /**
+     * Não há leitura "scatter" posicional em {@link FileChannel}, ou
+     * seja, cada buffer é preenchido por uma leitura posicional. Dessa
+     * forma, a operação permanece segura para uso simultâneo.
+     */
+    @Override
+    public long carrega(ByteBuffer[] buffers, long posicao) {
+        for (ByteBuffer buffer : buffers) {
+            buffer.clear();
+        }
+
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            int lidos = carrega(buffer, posicao + total);
+            if (lidos == -1) {
+                break;
+            }
+
+            total += lidos;
+
+            // Final do arquivo
+            if (buffer.hasRemaining()) {
+                break;
+            }
+        }
+
+        return total == 0 && buffers.length > 0 ? -1 : total;
+    }
+
+    @Override
+    public long escreve(ByteBuffer[] buffers, long posicao) {
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            int escritos = escreve(buffer, posicao + total);
+            if (escritos == -1) {
+                return -1;
+            }
+
+            total += escritos;
+        }
+
+        return total;
+    }
+
+    @Override
+    public void close() {
+        fecha();
+    }
+
+    /**
+     * Escrita após o final do arquivo estende o arquivo.
+     */
+    private void atualizaFim(long posicao) {
+        long atual;
+        while ((atual = fim.get()) < posicao) {
+            if (fim.compareAndSet(atual, posicao)) {
+                return;
+            }
+        }
+    }
+}
@@ -139,6 +139,33 @@ public interface ArquivoService extends Modulo {
      */
     boolean fecha(int handle);
 
+    /**
+     * Assegura que o conteúdo escrito no arquivo, inclusive eventuais
+     * acréscimos agrupados ({@link #agrupa(int, int)}), encontra-se no
+     * meio de armazenamento.
+     *
+     * @param handle O handle do arquivo.
+     *
+     * @return {@code true} se o conteúdo foi persistido e
+     * {@code false}, caso contrário.
+     */
+    boolean sincroniza(int handle);
+
+    /**
+     * Agrupa acréscimos ao arquivo em escritas sequenciais maiores,
+     * conforme {@link ArquivoManager#agrupa(int, int)}.
+     *
+     * @param handle O handle do arquivo.
+     * @param capacidade Quantidade de bytes acumulada antes que
+     *                   uma escrita seja realizada.
+     *
+     * @return {@code true} se o agrupamento foi definido e
+     * {@code false}, caso contrário (handle inválido).
+     *
+     * @see ArquivoAgrupado
+     */
+    boolean agrupa(int handle, int capacidade);
+
     /**
      * Acrescenta o conteúdo do buffer, desde o primeiro byte
      * até o último, ao final do arquivo.
@@ -151,7 +178,7 @@ public interface ArquivoService extends Modulo {
      *
      * @see #acrescenta(int, byte[], int, int)
      */
-    int acrescenta(int handle, ByteBuffer buffer);
+    long acrescenta(int handle, ByteBuffer buffer);
 
     /**
      * Acrescenta o total de bytes do buffer, a partir da posição
@@ -170,7 +197,7 @@ public interface ArquivoService extends Modulo {
      *
      * @see #acrescenta(int, ByteBuffer)
      */
-    int acrescenta(int handle, byte[] buffer, int i, int total);
+    long acrescenta(int handle, byte[] buffer, int i, int total);
 
     /**
      * Obtém do arquivo, a partir de determinada posição, um total de bytes
@@ -186,9 +213,9 @@ public interface ArquivoService extends Modulo {
      * @param posicao Posição inicial do arquivo a partir da qual bytes
      *                serão lidos.
      *
-     * @see #carrega(int, byte[], int)
+     * @see #carrega(int, byte[], long)
      */
-    int carrega(int handle, ByteBuffer buffer, int posicao);
+    int carrega(int handle, ByteBuffer buffer, long posicao);
 
     /**
      * Obtém do arquivo o total de bytes, a partir de determinada posição, e
@@ -205,9 +232,9 @@ public interface ArquivoService extends Modulo {
      * @param posicao Posição inicial no arquivo a partir da qual bytes serão
      *                lidos.
      *
-     * @see #carrega(int, ByteBuffer, int)
+     * @see #carrega(int, ByteBuffer, long)
      */
-    int carrega(int handle, byte[] buffer, int posicao);
+    int carrega(int handle, byte[] buffer, long posicao);
 
     /**
      * Deposita no arquivo, a partir da posição indicada, o total de
@@ -221,9 +248,9 @@ public interface ArquivoService extends Modulo {
      * @param posicao Posição inicial no arquivo a partir da qual
      *                bytes serão escritos.
      *
-     * @see #escreve(int, byte[], int)
+     * @see #escreve(int, byte[], long)
      */
-    int escreve(int handle, ByteBuffer buffer, int posicao);
+    int escreve(int handle, ByteBuffer buffer, long posicao);
 
     /**
      * Deposita no arquivo, a partir da posição indicada, o total de
@@ -237,7 +264,44 @@ public interface ArquivoService extends Modulo {
      * @param posicao Posição inicial no arquivo a partir da qual
      *                bytes serão escritos.
      *
-     * @see #escreve(int, ByteBuffer, int)
+     * @see #escreve(int, ByteBuffer, long)
+     */
+    int escreve(int handle, byte[] buffer, long posicao);
+
+    /**
+     * Obtém do arquivo, a partir de determinada posição, bytes
+     * consecutivos a serem depositados nos buffers, na ordem em que
+     * são fornecidos, conforme {@link Arquivo#carrega(ByteBuffer[], long)}.
+     *
+     * @param handle O handle do arquivo.
+     * @param buffers Buffers onde bytes lidos serão depositados.
+     *
+     * @param posicao Posição inicial do arquivo a partir da qual bytes
+     *                serão lidos.
+     *
+     * @return Quantidade total de bytes carregados ou -1, em caso de
+     * falha.
+     *
+     * @see #carrega(int, ByteBuffer, long)
+     */
+    long carrega(int handle, ByteBuffer[] buffers, long posicao);
+
+    /**
+     * Deposita no arquivo, a partir da posição indicada, o conteúdo
+     * disponível nos buffers, na ordem em que são fornecidos, conforme
+     * {@link Arquivo#escreve(ByteBuffer[], long)}.
+     *
+     * @param handle O handle do arquivo.
+     * @param buffers Buffers dos quais bytes serão consultados para a
+     *                inserção no arquivo.
+     *
+     * @param posicao Posição inicial no arquivo a partir da qual
+     *                bytes serão escritos.
+     *
+     * @return Quantidade total de bytes escritos ou -1, em caso de
+     * falha.
+     *
+     * @see #escreve(int, ByteBuffer, long)
      */
-    int escreve(int handle, byte[] buffer, int posicao);
+    long escreve(int handle, ByteBuffer[] buffers, long posicao);
 }
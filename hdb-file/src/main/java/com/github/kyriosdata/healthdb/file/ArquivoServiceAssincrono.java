@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.file;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Acrescenta ao {@link ArquivoService} operações de leitura e escrita
+ * que não bloqueiam o cliente. Cada operação retorna imediatamente e
+ * o resultado, o mesmo da operação síncrona correspondente (inclusive
+ * o valor -1, em caso de falha), é fornecido pelo
+ * {@link CompletableFuture} retornado.
+ *
+ * <p>Dessa forma, várias leituras de blocos podem ser requisitadas de
+ * uma única vez, e o processamento prossegue enquanto os blocos são
+ * carregados. O buffer fornecido não deve ser empregado pelo cliente
+ * até que a operação correspondente seja concluída.
+ */
+public interface ArquivoServiceAssincrono extends ArquivoService {
+
+    /**
+     * Obtém do arquivo, a partir de determinada posição, bytes a
+     * serem depositados no buffer, conforme
+     * {@link #carrega(int, ByteBuffer, long)}.
+     *
+     * @param handle O handle do arquivo.
+     * @param buffer Buffer onde bytes lidos serão depositados.
+     * @param posicao Posição inicial do arquivo a partir da qual bytes
+     *                serão lidos.
+     *
+     * @return Quantidade de bytes carregados, disponível quando a
+     * leitura é concluída.
+     */
+    CompletableFuture<Integer> carregaAsync(int handle, ByteBuffer buffer, long posicao);
+
+    /**
+     * Deposita no arquivo, a partir da posição indicada, o conteúdo do
+     * buffer, conforme {@link #escreve(int, ByteBuffer, long)}.
+     *
+     * @param handle O handle do arquivo.
+     * @param buffer Buffer do qual bytes serão consultados.
+     * @param posicao Posição inicial no arquivo a partir da qual
+     *                bytes serão escritos.
+     *
+     * @return Quantidade de bytes escritos, disponível quando a
+     * escrita é concluída.
+     */
+    CompletableFuture<Integer> escreveAsync(int handle, ByteBuffer buffer, long posicao);
+
+    /**
+     * Acrescenta o conteúdo do buffer ao final do arquivo, conforme
+     * {@link #acrescenta(int, ByteBuffer)}.
+     *
+     * @param handle O handle do arquivo.
+     * @param buffer Buffer cujo conteúdo será acrescido ao arquivo.
+     *
+     * @return A posição no arquivo a partir da qual o buffer foi
+     * inserido, disponível quando a escrita é concluída.
+     */
+    CompletableFuture<Long> acrescentaAsync(int handle, ByteBuffer buffer);
+}
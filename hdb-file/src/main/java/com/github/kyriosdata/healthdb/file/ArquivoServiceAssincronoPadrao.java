@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.file;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Implementação de {@link ArquivoServiceAssincrono} na qual as
+ * operações são executadas por um conjunto de <i>threads</i>
+ * dedicadas à entrada e saída.
+ *
+ * <p>O tipo de arquivo padrão é {@link TipoArquivo#POSICIONAL}, cujas
+ * operações podem ser executadas simultaneamente sobre um mesmo
+ * arquivo. Para os demais tipos, que mantêm estado compartilhado
+ * entre operações, uma única <i>thread</i> é empregada, ou seja, as
+ * operações não bloqueiam o cliente, mas são executadas uma por vez.
+ * Nesse caso, as operações síncronas (abertura, fechamento,
+ * leitura, escrita e persistência) também são executadas por essa
+ * <i>thread</i>, e o cliente aguarda pelo resultado.
+ */
+public class ArquivoServiceAssincronoPadrao extends ArquivoServicePadrao
+        implements ArquivoServiceAssincrono {
+
+    private ExecutorService io;
+
+    /**
+     * Indica se as operações síncronas são executadas pela
+     * <i>thread</i> de entrada e saída (tipo com estado
+     * compartilhado).
+     */
+    private boolean serializado;
+
+    /**
+     * Única <i>thread</i> de entrada e saída, se as operações são
+     * serializadas.
+     */
+    private volatile Thread executora;
+
+    /**
+     * Inicia o serviço.
+     *
+     * @param params Opcionalmente, o {@link TipoArquivo} a ser
+     *               empregado (padrão {@link TipoArquivo#POSICIONAL})
+     *               e a quantidade de <i>threads</i> de entrada e
+     *               saída (Integer), cujo padrão é a quantidade de
+     *               processadores.
+     */
+    @Override
+    public void start(Object... params) {
+        TipoArquivo tipo = TipoArquivo.POSICIONAL;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        if (params != null) {
+            for (Object param : params) {
+                if (param instanceof TipoArquivo) {
+                    tipo = (TipoArquivo) param;
+                } else if (param instanceof Integer) {
+                    threads = (Integer) param;
+                }
+            }
+        }
+
+        serializado = tipo != TipoArquivo.POSICIONAL;
+        if (serializado) {
+            threads = 1;
+        }
+
+        super.start(tipo);
+
+        AtomicInteger contador = new AtomicInteger();
+        io = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "hdb-io-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            executora = thread;
+            return thread;
+        });
+    }
+
+    /**
+     * Aguarda a conclusão das operações requisitadas e encerra o
+     * serviço.
+     */
+    @Override
+    public void close() {
+        io.shutdown();
+        try {
+            io.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+
+        super.close();
+    }
+
+    @Override
+    public CompletableFuture<Integer> carregaAsync(int handle, ByteBuffer buffer, long posicao) {
+        return CompletableFuture.supplyAsync(() -> super.carrega(handle, buffer, posicao), io);
+    }
+
+    @Override
+    public CompletableFuture<Integer> escreveAsync(int handle, ByteBuffer buffer, long posicao) {
+        return CompletableFuture.supplyAsync(() -> super.escreve(handle, buffer, posicao), io);
+    }
+
+    @Override
+    public CompletableFuture<Long> acrescentaAsync(int handle, ByteBuffer buffer) {
+        return CompletableFuture.supplyAsync(() -> super.acrescenta(handle, buffer), io);
+    }
+
+    @Override
+    public boolean abre(int handle) {
+        return serializa(() -> super.abre(handle), false);
+    }
+
+    @Override
+    public boolean fecha(int handle) {
+        return serializa(() -> super.fecha(handle), false);
+    }
+
+    @Override
+    public boolean sincroniza(int handle) {
+        return serializa(() -> super.sincroniza(handle), false);
+    }
+
+    @Override
+    public long acrescenta(int handle, ByteBuffer buffer) {
+        return serializa(() -> super.acrescenta(handle, buffer), -1L);
+    }
+
+    @Override
+    public long acrescenta(int handle, byte[] buffer, int i, int total) {
+        return serializa(() -> super.acrescenta(handle, buffer, i, total), -1L);
+    }
+
+    @Override
+    public int carrega(int handle, ByteBuffer buffer, long posicao) {
+        return serializa(() -> super.carrega(handle, buffer, posicao), -1);
+    }
+
+    @Override
+    public int carrega(int handle, byte[] buffer, long posicao) {
+        return serializa(() -> super.carrega(handle, buffer, posicao), -1);
+    }
+
+    @Override
+    public int escreve(int handle, ByteBuffer buffer, long posicao) {
+        return serializa(() -> super.escreve(handle, buffer, posicao), -1);
+    }
+
+    @Override
+    public int escreve(int handle, byte[] buffer, long posicao) {
+        return serializa(() -> super.escreve(handle, buffer, posicao), -1);
+    }
+
+    @Override
+    public long carrega(int handle, ByteBuffer[] buffers, long posicao) {
+        return serializa(() -> super.carrega(handle, buffers, posicao), -1L);
+    }
+
+    @Override
+    public long escreve(int handle, ByteBuffer[] buffers, long posicao) {
+        return serializa(() -> super.escreve(handle, buffers, posicao), -1L);
+    }
+
+    /**
+     * Executa a operação pela <i>thread</i> de entrada e saída e
+     * aguarda pelo resultado, se as operações são serializadas. Caso
+     * contrário, ou se executada pela própria <i>thread</i> de
+     * entrada e saída, a operação é executada diretamente.
+     *
+     * @param operacao Operação síncrona.
+     * @param falha Resultado em caso de falha na execução (serviço
+     *              encerrado, por exemplo).
+     */
+    private <T> T serializa(Supplier<T> operacao, T falha) {
+        if (!serializado || Thread.currentThread() == executora) {
+            return operacao.get();
+        }
+
+        try {
+            return io.submit(operacao::get).get();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            return falha;
+        } catch (ExecutionException | RejectedExecutionException exp) {
+            return falha;
+        }
+    }
+}
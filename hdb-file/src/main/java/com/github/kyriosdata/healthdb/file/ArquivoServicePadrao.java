@@ -20,10 +20,16 @@ public class ArquivoServicePadrao implements ArquivoService {
 
     private ArquivoManager am;
 
+    /**
+     * Inicia o serviço.
+     *
+     * @param params Opcionalmente, o {@link TipoArquivo} a ser
+     *               empregado. O padrão é {@link TipoArquivo#JAVA}.
+     */
     @Override
     public void start(Object... params) {
         am = new ArquivoManagerJava();
-        am.start();
+        am.start(params);
     }
 
     /**
@@ -76,38 +82,61 @@ public class ArquivoServicePadrao implements ArquivoService {
     }
 
     @Override
-    public int acrescenta(int handle, ByteBuffer buffer) {
+    public boolean sincroniza(int handle) {
+        Arquivo arquivo = am.get(handle);
+        return arquivo != null && arquivo.sincroniza();
+    }
+
+    @Override
+    public boolean agrupa(int handle, int capacidade) {
+        return am.agrupa(handle, capacidade);
+    }
+
+    @Override
+    public long acrescenta(int handle, ByteBuffer buffer) {
         Arquivo arquivo = am.get(handle);
         return arquivo == null ? -1 : arquivo.acrescenta(buffer);
     }
 
     @Override
-    public int acrescenta(int handle, byte[] buffer, int i, int total) {
+    public long acrescenta(int handle, byte[] buffer, int i, int total) {
         Arquivo arquivo = am.get(handle);
         return arquivo == null ? -1 : arquivo.acrescenta(buffer, i, total);
     }
 
     @Override
-    public int carrega(int handle, ByteBuffer buffer, int posicao) {
+    public int carrega(int handle, ByteBuffer buffer, long posicao) {
         Arquivo arquivo = am.get(handle);
         return arquivo == null ? -1 : arquivo.carrega(buffer, posicao);
     }
 
     @Override
-    public int carrega(int handle, byte[] buffer, int posicao) {
+    public int carrega(int handle, byte[] buffer, long posicao) {
         Arquivo arquivo = am.get(handle);
         return arquivo == null ? -1 : arquivo.carrega(buffer, posicao);
     }
 
     @Override
-    public int escreve(int handle, ByteBuffer buffer, int posicao) {
+    public int escreve(int handle, ByteBuffer buffer, long posicao) {
         Arquivo arquivo = am.get(handle);
         return arquivo == null ? -1 : arquivo.escreve(buffer, posicao);
     }
 
     @Override
-    public int escreve(int handle, byte[] buffer, int posicao) {
+    public int escreve(int handle, byte[] buffer, long posicao) {
         Arquivo arquivo = am.get(handle);
         return arquivo == null ? -1 : arquivo.escreve(buffer, posicao);
     }
+
+    @Override
+    public long carrega(int handle, ByteBuffer[] buffers, long posicao) {
+        Arquivo arquivo = am.get(handle);
+        return arquivo == null ? -1 : arquivo.carrega(buffers, posicao);
+    }
+
+    @Override
+    public long escreve(int handle, ByteBuffer[] buffers, long posicao) {
+        Arquivo arquivo = am.get(handle);
+        return arquivo == null ? -1 : arquivo.escreve(buffers, posicao);
+    }
 }
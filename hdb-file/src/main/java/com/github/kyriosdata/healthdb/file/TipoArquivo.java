@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.file;
+
+import java.util.function.Supplier;
+
+/**
+ * Implementações de {@link Arquivo} disponíveis. O tipo é
+ * fornecido como parâmetro de {@link ArquivoService#start(Object...)}
+ * (ou {@link ArquivoManager#start(Object...)}) e empregado para
+ * todos os arquivos registrados. O padrão é {@link #JAVA}.
+ */
+public enum TipoArquivo {
+
+    /**
+     * Leitura e escrita por meio de canal (chamada ao sistema
+     * operacional por operação).
+     *
+     * @see ArquivoJava
+     */
+    JAVA(ArquivoJava::new),
+
+    /**
+     * Arquivo mapeado em memória. Leituras e escritas são cópias
+     * de memória, sem chamada ao sistema operacional. Adequado
+     * para cargas predominantemente de leitura.
+     *
+     * @see ArquivoMapeado
+     */
+    MAPEADO(ArquivoMapeado::new),
+
+    /**
+     * Leitura e escrita posicionais (<i>pread</i>/<i>pwrite</i>),
+     * que podem ser executadas simultaneamente por várias
+     * <i>threads</i> sobre o mesmo arquivo, sem sincronização.
+     *
+     * @see ArquivoPosicional
+     */
+    POSICIONAL(ArquivoPosicional::new),
+
+    /**
+     * Acesso direto, sem o <i>cache</i> do sistema operacional
+     * (<i>O_DIRECT</i>), no qual o gerente de buffers é o único
+     * <i>cache</i> de blocos.
+     *
+     * @see ArquivoDireto
+     */
+    DIRETO(ArquivoDireto::new);
+
+    private final Supplier<Arquivo> fabrica;
+
+    TipoArquivo(Supplier<Arquivo> fabrica) {
+        this.fabrica = fabrica;
+    }
+
+    /**
+     * Cria instância do tipo de arquivo.
+     *
+     * @return Nova instância, ainda não associada a um arquivo.
+     */
+    Arquivo novo() {
+        return fabrica.get();
+    }
+
+    /**
+     * Obtém o tipo de arquivo entre os parâmetros fornecidos.
+     *
+     * @param params Parâmetros de configuração.
+     *
+     * @return O primeiro tipo de arquivo presente nos parâmetros ou,
+     * na ausência, {@link #JAVA}.
+     */
+    static TipoArquivo de(Object... params) {
+        if (params != null) {
+            for (Object param : params) {
+                if (param instanceof TipoArquivo) {
+                    return (TipoArquivo) param;
+                }
+            }
+        }
+
+        return JAVA;
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.kyriosdata.healthdb.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArquivoAgrupadoTest {
+
+    private String dir = getClass().getResource(".").getFile();
+
+    @Test
+    public void acrescimosAgrupadosAteCapacidade() throws IOException {
+        String fn = cria();
+        byte[] registro = "0123456789".getBytes(StandardCharsets.UTF_8);
+
+        ArquivoJava aj = new ArquivoJava();
+        aj.filename(fn);
+
+        try (ArquivoAgrupado aa = new ArquivoAgrupado(aj, 100)) {
+            assertTrue(aa.abre());
+
+            // Posições lógicas, nada escrito no arquivo
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i * 10, aa.acrescenta(registro, 0, registro.length));
+            }
+
+            assertEquals(0, Files.size(Paths.get(fn)));
+            assertEquals(100, aa.tamanho());
+
+            // Capacidade excedida: os pendentes são escritos
+            assertEquals(100, aa.acrescenta(registro, 0, registro.length));
+            assertEquals(100, Files.size(Paths.get(fn)));
+
+            assertTrue(aa.sincroniza());
+            assertEquals(110, Files.size(Paths.get(fn)));
+        }
+    }
+
+    @Test
+    public void leituraContemplaAcrescimosPendentes() {
+        String fn = cria();
+
+        ArquivoPosicional ap = new ArquivoPosicional();
+        ap.filename(fn);
+
+        try (ArquivoAgrupado aa = new ArquivoAgrupado(ap, 4096)) {
+            assertTrue(aa.abre());
+
+            aa.acrescenta("abc".getBytes(StandardCharsets.UTF_8), 0, 3);
+            aa.acrescenta("def".getBytes(StandardCharsets.UTF_8), 0, 3);
+
+            byte[] lido = new byte[6];
+            assertEquals(6, aa.carrega(lido, 0));
+            assertEquals("abcdef", new String(lido, StandardCharsets.UTF_8));
+
+            // Acréscimo maior que a capacidade é escrito diretamente
+            assertEquals(6, aa.acrescenta(ByteBuffer.allocate(10_000)));
+            assertEquals(10_006, aa.tamanho());
+
+            assertEquals(10_006, aa.acrescenta("g".getBytes(StandardCharsets.UTF_8), 0, 1));
+        }
+    }
+
+    @Test
+    public void fechaEscreveAcrescimosPendentes() throws IOException {
+        ArquivoServicePadrao asp = new ArquivoServicePadrao();
+        asp.start();
+
+        String fn = dir + UUID.randomUUID().toString();
+        int handle = asp.register(fn);
+        assertTrue(asp.cria(handle));
+        assertTrue(asp.agrupa(handle, 64 * 1024));
+        assertFalse(asp.agrupa(Integer.MAX_VALUE, 64 * 1024));
+        assertTrue(asp.abre(handle));
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i * 4L, asp.acrescenta(handle, ByteBuffer.allocate(4).putInt(0, i)));
+        }
+
+        assertTrue(asp.fecha(handle));
+
+        ByteBuffer conteudo = ByteBuffer.wrap(Files.readAllBytes(Paths.get(fn)));
+        assertEquals(4000, conteudo.remaining());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, conteudo.getInt());
+        }
+
+        asp.close();
+    }
+
+    @Test
+    public void falhaNaEscritaPreservaPendentes() throws IOException {
+        String fn = cria();
+        byte[] registro = "0123456789".getBytes(StandardCharsets.UTF_8);
+
+        ArquivoFalho af = new ArquivoFalho();
+        af.filename(fn);
+
+        try (ArquivoAgrupado aa = new ArquivoAgrupado(af, 20)) {
+            assertTrue(aa.abre());
+
+            assertEquals(0, aa.acrescenta(registro, 0, registro.length));
+            assertEquals(10, aa.acrescenta(registro, 0, registro.length));
+
+            af.falha = true;
+            assertFalse(aa.sincroniza());
+            assertEquals(-1, aa.acrescenta(registro, 0, registro.length));
+            assertEquals(0, Files.size(Paths.get(fn)));
+            assertEquals(20, aa.tamanho());
+
+            // Nova tentativa escreve os mesmos acréscimos, sem lacuna
+            af.falha = false;
+            assertEquals(20, aa.acrescenta(registro, 0, registro.length));
+            assertEquals(20, Files.size(Paths.get(fn)));
+            assertTrue(aa.sincroniza());
+        }
+
+        assertEquals("012345678901234567890123456789",
+                new String(Files.readAllBytes(Paths.get(fn)), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Arquivo cujas escritas falham sob demanda.
+     */
+    private static class ArquivoFalho extends ArquivoPosicional {
+        private boolean falha;
+
+        @Override
+        public int escreve(ByteBuffer buffer, long posicao) {
+            return falha ? -1 : super.escreve(buffer, posicao);
+        }
+    }
+
+    private String cria() {
+        String fn = dir + UUID.randomUUID().toString();
+        try {
+            Files.createFile(Paths.get(fn));
+        } catch (IOException exp) {
+        }
+
+        return fn;
+    }
+}
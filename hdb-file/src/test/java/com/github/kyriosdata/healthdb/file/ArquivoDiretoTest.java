@@ -0,0 +1,101 @@
+package com.github.kyriosdata.healthdb.file;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class ArquivoDiretoTest {
+
+    private String dir = getClass().getResource(".").getFile();
+
+    private String fn;
+
+    @BeforeEach
+    public void suportado() throws IOException {
+        assumeTrue(ArquivoDireto.suportado(), "plataforma sem O_DIRECT");
+
+        fn = dir + UUID.randomUUID().toString();
+        Files.createFile(Paths.get(fn));
+
+        try (ArquivoDireto ad = new ArquivoDireto()) {
+            ad.filename(fn);
+            assumeTrue(ad.abre(), "sistema de arquivos sem O_DIRECT");
+        }
+    }
+
+    @Test
+    public void bufferAlocadoAlinhado() {
+        ByteBuffer buffer = ArquivoDireto.aloca(8192, 4096);
+        assertTrue(buffer.isDirect());
+        assertEquals(8192, buffer.capacity());
+    }
+
+    @Test
+    public void transferenciasAlinhadasDiretas() {
+        try (ArquivoDireto ad = new ArquivoDireto()) {
+            ad.filename(fn);
+            assertTrue(ad.abre());
+
+            int bloco = ad.alinhamento();
+            ByteBuffer escrito = ArquivoDireto.aloca(2 * bloco, bloco);
+            for (int i = 0; i < escrito.capacity(); i++) {
+                escrito.put(i, (byte) i);
+            }
+
+            assertEquals(2 * bloco, ad.escreve(escrito, bloco));
+            assertEquals(3L * bloco, ad.tamanho());
+
+            ByteBuffer lido = ArquivoDireto.aloca(2 * bloco, bloco);
+            assertEquals(2 * bloco, ad.carrega(lido, bloco));
+
+            lido.flip();
+            escrito.clear();
+            assertEquals(escrito, lido);
+        }
+    }
+
+    @Test
+    public void transferenciasNaoAlinhadasPreservamVizinhos() throws IOException {
+        Random random = new Random(48);
+        byte[] esperado = new byte[50_000];
+        long tamanho;
+
+        try (ArquivoDireto ad = new ArquivoDireto()) {
+            ad.filename(fn);
+            assertTrue(ad.abre());
+
+            for (int i = 0; i < 200; i++) {
+                int posicao = random.nextInt(45_000);
+                byte[] trecho = new byte[1 + random.nextInt(5_000)];
+                random.nextBytes(trecho);
+
+                assertEquals(trecho.length, ad.escreve(trecho, posicao));
+                System.arraycopy(trecho, 0, esperado, posicao, trecho.length);
+            }
+
+            tamanho = ad.tamanho();
+            byte[] lido = new byte[(int) tamanho - 7];
+            assertEquals(lido.length, ad.carrega(lido, 7));
+            assertArrayEquals(Arrays.copyOfRange(esperado, 7, (int) tamanho), lido);
+
+            // Acréscimo de poucos bytes (último bloco parcial)
+            assertEquals(tamanho, ad.acrescenta(new byte[]{1, 2, 3}, 0, 3));
+            assertEquals(tamanho + 3, ad.tamanho());
+        }
+
+        // Preenchimento do último bloco removido
+        byte[] conteudo = Files.readAllBytes(Paths.get(fn));
+        assertEquals(tamanho + 3, conteudo.length);
+        assertArrayEquals(new byte[]{1, 2, 3}, Arrays.copyOfRange(conteudo, conteudo.length - 3, conteudo.length));
+    }
+}
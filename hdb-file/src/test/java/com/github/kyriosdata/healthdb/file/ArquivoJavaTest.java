@@ -3,6 +3,7 @@ package com.github.kyriosdata.healthdb.file;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -150,6 +151,52 @@ public class ArquivoJavaTest {
         assertFalse(aj.estaAberto());
     }
 
+    @Test
+    public void ultimoBufferVazioNaoEncerraTransferencia() throws IOException {
+        String fn = dir + UUID.randomUUID().toString();
+        cria(fn);
+
+        try (ArquivoJava aj = new ArquivoJava()) {
+            aj.filename(fn);
+            assertTrue(aj.abre());
+
+            ByteBuffer[] blocos = {
+                    ByteBuffer.wrap("abc".getBytes(StandardCharsets.UTF_8)),
+                    ByteBuffer.allocate(0)
+            };
+            assertEquals(3, aj.escreve(blocos, 0));
+            assertEquals(3, Files.size(Paths.get(fn)));
+
+            ByteBuffer[] lidos = {ByteBuffer.allocate(3), ByteBuffer.allocate(0)};
+            assertEquals(3, aj.carrega(lidos, 0));
+            assertEquals("abc", new String(lidos[0].array(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void posicaoAlemDe2GB() throws IOException {
+        String fn = dir + UUID.randomUUID().toString();
+        cria(fn);
+
+        long posicao = 3L * 1024 * 1024 * 1024;
+        byte[] bytes = "ok".getBytes(StandardCharsets.UTF_8);
+
+        try (ArquivoJava aj = new ArquivoJava()) {
+            aj.filename(fn);
+            assertTrue(aj.abre());
+
+            // Arquivo esparso, apenas o trecho escrito ocupa espaço
+            assertEquals(2, aj.escreve(bytes, posicao));
+            assertEquals(posicao + 2, aj.acrescenta(bytes, 0, bytes.length));
+
+            byte[] recuperado = new byte[4];
+            assertEquals(4, aj.carrega(recuperado, posicao));
+            assertEquals("okok", new String(recuperado, StandardCharsets.UTF_8));
+        } finally {
+            Files.deleteIfExists(Paths.get(fn));
+        }
+    }
+
     private void cria(String fn) {
         try {
             Files.createFile(Paths.get(fn));
@@ -5,7 +5,14 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -168,7 +175,47 @@ public class ArquivoManagerJavaTest {
         assertTrue(amj.fecha(handle));
     }
 
+    @Test
+    public void registrosSimultaneos() throws Exception {
+        ArquivoManagerJava amj = new ArquivoManagerJava();
+        amj.start();
+
+        int threads = 8;
+        int arquivos = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<int[]>> resultados = new ArrayList<>();
+
+        // Todas as threads registram os mesmos nomes
+        for (int t = 0; t < threads; t++) {
+            resultados.add(executor.submit(() -> {
+                int[] handles = new int[arquivos];
+                for (int i = 0; i < arquivos; i++) {
+                    handles[i] = amj.register("arquivo" + i);
+                    assertNotNull(amj.get(handles[i]));
+                }
+
+                return handles;
+            }));
+        }
+
+        int[] esperados = resultados.get(0).get();
+        for (Future<int[]> resultado : resultados) {
+            assertArrayEquals(esperados, resultado.get());
+        }
+
+        executor.shutdown();
+
+        Set<Integer> distintos = new HashSet<>();
+        for (int i = 0; i < arquivos; i++) {
+            distintos.add(esperados[i]);
+            assertEquals("arquivo" + i, amj.filename(esperados[i]));
+        }
+
+        assertEquals(arquivos, distintos.size());
+        assertNull(amj.get(-1));
 
+        amj.close();
+    }
 
     private void cria(String fn) {
         try {
@@ -0,0 +1,196 @@
+package com.github.kyriosdata.healthdb.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArquivoMapeadoTest {
+
+    private String dir = getClass().getResource(".").getFile();
+
+    @Test
+    public void arquivoInexistenteNaoPodeSerAberto() {
+        ArquivoMapeado am = new ArquivoMapeado();
+        am.filename(dir + UUID.randomUUID().toString());
+
+        assertFalse(am.abre());
+        assertFalse(am.estaAberto());
+    }
+
+    @Test
+    public void janelaDeveSerPotenciaDeDois() {
+        assertThrows(IllegalArgumentException.class, () -> new ArquivoMapeado(1000));
+    }
+
+    @Test
+    public void naoHaComoCarregarAcrescentarArquivoFechado() {
+        ArquivoMapeado am = new ArquivoMapeado();
+        assertEquals(-1, am.acrescenta(new byte[1], 0, 1));
+        assertEquals(-1, am.carrega(new byte[1], 0));
+    }
+
+    @Test
+    public void escritaLeituraEntreJanelas() throws IOException {
+        String fn = cria();
+
+        byte[] bytes = aleatorios(10_000);
+
+        try (ArquivoMapeado am = new ArquivoMapeado(4096)) {
+            am.filename(fn);
+            assertTrue(am.abre());
+
+            // Escrita se estende por três janelas
+            assertEquals(10_000, am.escreve(bytes, 100));
+            assertEquals(10_100, am.tamanho());
+
+            byte[] lidos = new byte[10_000];
+            assertEquals(10_000, am.carrega(lidos, 100));
+            assertArrayEquals(bytes, lidos);
+
+            // Leitura limitada ao tamanho do arquivo
+            assertEquals(100, am.carrega(new byte[4096], 10_000));
+            assertEquals(-1, am.carrega(new byte[1], 10_100));
+            assertEquals(-1, am.escreve(new byte[1], -1));
+        }
+
+        assertEquals(10_100, Files.size(Paths.get(fn)));
+
+        ArquivoJava aj = new ArquivoJava();
+        aj.filename(fn);
+        assertTrue(aj.abre());
+
+        byte[] lidos = new byte[10_000];
+        assertEquals(10_000, aj.carrega(lidos, 100));
+        assertArrayEquals(bytes, lidos);
+        aj.fecha();
+    }
+
+    @Test
+    public void acrescentaAoFinalDoArquivo() throws IOException {
+        String fn = cria();
+        Files.write(Paths.get(fn), "abc".getBytes(StandardCharsets.UTF_8));
+
+        ArquivoMapeado am = new ArquivoMapeado(4096);
+        am.filename(fn);
+        assertTrue(am.abre());
+
+        byte[] ok = "ok".getBytes(StandardCharsets.UTF_8);
+        assertEquals(3, am.acrescenta(ok, 0, ok.length));
+        assertEquals(5, am.acrescenta(ByteBuffer.wrap(ok)));
+        assertTrue(am.fecha());
+
+        // Mesma instância, reaberta
+        assertTrue(am.abre());
+        assertEquals(7, am.tamanho());
+        assertTrue(am.fecha());
+
+        assertEquals("abcokok", new String(Files.readAllBytes(Paths.get(fn)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void mapeamentoNaoEstendeArquivo() throws IOException {
+        String fn = cria();
+        Files.write(Paths.get(fn), "abc".getBytes(StandardCharsets.UTF_8));
+
+        // Apenas leitura
+        ArquivoMapeado leitura = new ArquivoMapeado(4096);
+        leitura.filename(fn);
+        assertTrue(leitura.abre());
+        assertEquals(3, leitura.carrega(new byte[16], 0));
+        assertEquals(3, Files.size(Paths.get(fn)));
+
+        // Sem fecha() (término abrupto), o tamanho é o escrito
+        ArquivoMapeado am = new ArquivoMapeado(4096);
+        am.filename(fn);
+        assertTrue(am.abre());
+        byte[] bytes = aleatorios(5_000);
+        assertEquals(3, am.acrescenta(bytes, 0, bytes.length));
+        assertEquals(5_003, Files.size(Paths.get(fn)));
+
+        // Trecho acrescentado é mapeado quando acessado
+        byte[] lidos = new byte[5_000];
+        assertEquals(5_000, am.carrega(lidos, 3));
+        assertArrayEquals(bytes, lidos);
+        assertNotNull(am.fatia(4096, 16));
+
+        // Escrita no trecho mapeado e além do final
+        assertEquals(10, am.escreve(new byte[10], 4_998));
+        assertEquals(5_008, Files.size(Paths.get(fn)));
+        assertEquals(5_008, am.tamanho());
+
+        assertEquals(3, leitura.carrega(new byte[16], 0));
+        leitura.fecha();
+        am.fecha();
+    }
+
+    @Test
+    public void fatiaSemCopia() {
+        String fn = cria();
+
+        ArquivoMapeado am = new ArquivoMapeado(4096);
+        am.filename(fn);
+        assertTrue(am.abre());
+        am.escreve(new byte[8192], 0);
+
+        ByteBuffer fatia = am.fatia(4096, 16);
+        assertEquals(16, fatia.remaining());
+        fatia.put(0, (byte) 42);
+
+        byte[] lido = new byte[1];
+        am.carrega(lido, 4096);
+        assertEquals(42, lido[0]);
+
+        // Trecho em duas janelas ou fora do arquivo
+        assertNull(am.fatia(4090, 16));
+        assertNull(am.fatia(8190, 16));
+
+        am.fecha();
+    }
+
+    @Test
+    public void servicoEmpregaArquivoMapeado() {
+        ArquivoServicePadrao asp = new ArquivoServicePadrao();
+        asp.start(TipoArquivo.MAPEADO);
+
+        String fn = dir + UUID.randomUUID().toString();
+        int handle = asp.register(fn);
+
+        assertTrue(asp.cria(handle));
+        assertTrue(asp.abre(handle));
+
+        byte[] bloco = aleatorios(4096);
+        assertEquals(0, asp.acrescenta(handle, bloco, 0, bloco.length));
+        assertEquals(4096, asp.acrescenta(handle, bloco, 0, bloco.length));
+
+        ByteBuffer bb = ByteBuffer.allocate(4096);
+        assertEquals(4096, asp.carrega(handle, bb, 4096));
+        assertArrayEquals(bloco, bb.array());
+
+        assertTrue(asp.fecha(handle));
+        asp.close();
+    }
+
+    private String cria() {
+        String fn = dir + UUID.randomUUID().toString();
+        try {
+            Files.createFile(Paths.get(fn));
+        } catch (IOException exp) {
+        }
+
+        return fn;
+    }
+
+    private byte[] aleatorios(int total) {
+        byte[] bytes = new byte[total];
+        new Random(total).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.kyriosdata.healthdb.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArquivoPosicionalTest {
+
+    private static final int BLOCO = 4096;
+
+    private String dir = getClass().getResource(".").getFile();
+
+    @Test
+    public void naoHaComoCarregarAcrescentarArquivoFechado() {
+        ArquivoPosicional ap = new ArquivoPosicional();
+        assertEquals(-1, ap.acrescenta(new byte[1], 0, 1));
+        assertEquals(-1, ap.carrega(new byte[1], 0));
+    }
+
+    @Test
+    public void naoHaComoCarregarEscreverPosicaoInvalida() {
+        try (ArquivoPosicional ap = new ArquivoPosicional()) {
+            ap.filename(cria());
+            assertTrue(ap.abre());
+
+            assertEquals(-1, ap.carrega(new byte[1], 2));
+            assertEquals(-1, ap.escreve(new byte[1], -1));
+        }
+    }
+
+    @Test
+    public void leiturasSimultaneasDeBlocosDistintos() throws Exception {
+        int blocos = 64;
+
+        try (ArquivoPosicional ap = new ArquivoPosicional()) {
+            ap.filename(cria());
+            assertTrue(ap.abre());
+
+            for (int i = 0; i < blocos; i++) {
+                assertEquals(i * BLOCO, ap.acrescenta(bloco(i), 0, BLOCO));
+            }
+
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<Boolean>> resultados = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int inicio = t;
+                resultados.add(executor.submit(() -> {
+                    ByteBuffer buffer = ByteBuffer.allocate(BLOCO);
+                    for (int r = 0; r < 1000; r++) {
+                        int b = (inicio * 7 + r * 13) % blocos;
+                        if (ap.carrega(buffer, b * BLOCO) != BLOCO) {
+                            return false;
+                        }
+
+                        for (int k = 0; k < BLOCO; k++) {
+                            if (buffer.get(k) != (byte) b) {
+                                return false;
+                            }
+                        }
+                    }
+
+                    return true;
+                }));
+            }
+
+            for (Future<Boolean> resultado : resultados) {
+                assertTrue(resultado.get());
+            }
+
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void acrescimosSimultaneosOcupamRegioesDistintas() throws Exception {
+        String fn = cria();
+
+        try (ArquivoPosicional ap = new ArquivoPosicional()) {
+            ap.filename(fn);
+            assertTrue(ap.abre());
+
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<Long>> posicoes = new ArrayList<>();
+            for (int i = 0; i < 256; i++) {
+                final int b = i;
+                posicoes.add(executor.submit(() -> ap.acrescenta(bloco(b), 0, BLOCO)));
+            }
+
+            Set<Long> distintas = new HashSet<>();
+            for (Future<Long> posicao : posicoes) {
+                long p = posicao.get();
+                assertEquals(0, p % BLOCO);
+                distintas.add(p);
+            }
+
+            executor.shutdown();
+            assertEquals(256, distintas.size());
+
+            // Cada bloco se encontra na posição retornada
+            byte[] lido = new byte[BLOCO];
+            for (int i = 0; i < 256; i++) {
+                ap.carrega(lido, posicoes.get(i).get());
+                assertArrayEquals(bloco(i), lido);
+            }
+        }
+
+        assertEquals(256 * BLOCO, Files.size(Paths.get(fn)));
+    }
+
+    private byte[] bloco(int valor) {
+        byte[] bytes = new byte[BLOCO];
+        for (int i = 0; i < BLOCO; i++) {
+            bytes[i] = (byte) valor;
+        }
+
+        return bytes;
+    }
+
+    private String cria() {
+        String fn = dir + UUID.randomUUID().toString();
+        try {
+            Files.createFile(Paths.get(fn));
+        } catch (IOException exp) {
+        }
+
+        return fn;
+    }
+}
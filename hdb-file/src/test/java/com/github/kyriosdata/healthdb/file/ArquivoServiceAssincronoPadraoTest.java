@@ -0,0 +1,150 @@
+package com.github.kyriosdata.healthdb.file;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArquivoServiceAssincronoPadraoTest {
+
+    private static final int BLOCO = 4096;
+
+    private String dir = getClass().getResource(".").getFile();
+
+    @Test
+    public void iniciarPararInumerasVezes() {
+        for (int i = 0; i < 100; i++) {
+            try (ArquivoServiceAssincronoPadrao asa = new ArquivoServiceAssincronoPadrao()) {
+                asa.start();
+            }
+        }
+    }
+
+    @Test
+    public void handleInvalidoResultaEmFalha() {
+        try (ArquivoServiceAssincronoPadrao asa = new ArquivoServiceAssincronoPadrao()) {
+            asa.start();
+
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            assertEquals(-1, (int) asa.carregaAsync(Integer.MAX_VALUE, buffer, 0).join());
+            assertEquals(-1L, (long) asa.acrescentaAsync(Integer.MAX_VALUE, buffer).join());
+        }
+    }
+
+    @Test
+    public void acrescimosLeiturasSimultaneos() {
+        for (TipoArquivo tipo : TipoArquivo.values()) {
+            if (tipo == TipoArquivo.DIRETO && !ArquivoDireto.suportado()) {
+                continue;
+            }
+
+            try (ArquivoServiceAssincronoPadrao asa = new ArquivoServiceAssincronoPadrao()) {
+                asa.start(tipo, 4);
+                blocos(asa);
+            }
+        }
+    }
+
+    @Test
+    public void parametrosAusentes() {
+        try (ArquivoServiceAssincronoPadrao asa = new ArquivoServiceAssincronoPadrao()) {
+            asa.start((Object[]) null);
+            blocos(asa);
+        }
+    }
+
+    @Test
+    public void operacoesSincronasSerializadasComAssincronas() throws Exception {
+        try (ArquivoServiceAssincronoPadrao asa = new ArquivoServiceAssincronoPadrao()) {
+            asa.start(TipoArquivo.JAVA);
+
+            int handle = asa.register(dir + UUID.randomUUID().toString());
+            assertTrue(asa.cria(handle));
+            assertTrue(asa.abre(handle));
+
+            // Escritas assíncronas (blocos pares) e síncronas, por
+            // outras threads (blocos ímpares), simultâneas
+            List<CompletableFuture<Integer>> escritas = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < 64; i += 2) {
+                escritas.add(asa.escreveAsync(handle, bloco(i), (long) i * BLOCO));
+
+                final int impar = i + 1;
+                Thread thread = new Thread(() -> asa.escreve(handle, bloco(impar), (long) impar * BLOCO));
+                threads.add(thread);
+                thread.start();
+            }
+
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            CompletableFuture.allOf(escritas.toArray(new CompletableFuture[0])).join();
+
+            for (int i = 0; i < 64; i++) {
+                ByteBuffer buffer = ByteBuffer.allocate(BLOCO);
+                assertEquals(BLOCO, asa.carrega(handle, buffer, (long) i * BLOCO));
+                assertArrayEquals(bloco(i).array(), buffer.array());
+            }
+
+            assertTrue(asa.fecha(handle));
+        }
+    }
+
+    private void blocos(ArquivoServiceAssincrono asa) {
+        int handle = asa.register(dir + UUID.randomUUID().toString());
+        assertTrue(asa.cria(handle));
+        assertTrue(asa.abre(handle));
+
+        List<CompletableFuture<Long>> posicoes = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            posicoes.add(asa.acrescentaAsync(handle, bloco(i)));
+        }
+
+        Set<Long> distintas = new HashSet<>();
+        for (CompletableFuture<Long> posicao : posicoes) {
+            distintas.add(posicao.join());
+        }
+
+        assertEquals(64, distintas.size());
+
+        // Todas as leituras requisitadas antes de qualquer resultado
+        List<ByteBuffer> buffers = new ArrayList<>();
+        List<CompletableFuture<Integer>> leituras = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            ByteBuffer buffer = ByteBuffer.allocate(BLOCO);
+            buffers.add(buffer);
+            leituras.add(asa.carregaAsync(handle, buffer, posicoes.get(i).join()));
+        }
+
+        CompletableFuture.allOf(leituras.toArray(new CompletableFuture[0])).join();
+
+        for (int i = 0; i < 64; i++) {
+            assertEquals(BLOCO, (int) leituras.get(i).join());
+            assertArrayEquals(bloco(i).array(), buffers.get(i).array());
+        }
+
+        assertEquals(BLOCO, (int) asa.escreveAsync(handle, bloco(99), 0).join());
+        ByteBuffer primeiro = ByteBuffer.allocate(BLOCO);
+        asa.carrega(handle, primeiro, 0);
+        assertArrayEquals(bloco(99).array(), primeiro.array());
+
+        assertTrue(asa.fecha(handle));
+    }
+
+    private ByteBuffer bloco(int valor) {
+        byte[] bytes = new byte[BLOCO];
+        for (int i = 0; i < BLOCO; i++) {
+            bytes[i] = (byte) valor;
+        }
+
+        return ByteBuffer.wrap(bytes);
+    }
+}
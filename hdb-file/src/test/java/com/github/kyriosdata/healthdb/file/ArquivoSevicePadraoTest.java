@@ -148,7 +148,7 @@ public class ArquivoSevicePadraoTest {
 
         // Acrescenta com ByteBuffer
         bb.flip();
-        int posicao = asp.acrescenta(handle, bb);
+        long posicao = asp.acrescenta(handle, bb);
         assertEquals(8192, posicao);
 
         byte[] outro = new byte[4096];
@@ -157,6 +157,44 @@ public class ArquivoSevicePadraoTest {
         assertArrayEquals(bb.array(), outro);
     }
 
+    @Test
+    public void blocosAdjacentesEmUnicaOperacao() {
+        for (TipoArquivo tipo : TipoArquivo.values()) {
+            if (tipo == TipoArquivo.DIRETO && !ArquivoDireto.suportado()) {
+                continue;
+            }
+
+            try (ArquivoServicePadrao asp = new ArquivoServicePadrao()) {
+                asp.start(tipo);
+
+                int handle = asp.register(dir + UUID.randomUUID().toString());
+                assertTrue(asp.cria(handle));
+                assertTrue(asp.abre(handle));
+
+                ByteBuffer[] blocos = new ByteBuffer[4];
+                for (int i = 0; i < blocos.length; i++) {
+                    blocos[i] = ByteBuffer.wrap(getBytes());
+                }
+
+                assertEquals(4 * 4096, asp.escreve(handle, blocos, 0));
+
+                // Dois blocos a partir do segundo
+                ByteBuffer[] lidos = {ByteBuffer.allocate(4096), ByteBuffer.allocate(4096)};
+                assertEquals(2 * 4096, asp.carrega(handle, lidos, 4096));
+                assertArrayEquals(blocos[1].array(), lidos[0].array());
+                assertArrayEquals(blocos[2].array(), lidos[1].array());
+
+                // Apenas o último bloco está disponível
+                assertEquals(4096, asp.carrega(handle, lidos, 3 * 4096));
+                assertArrayEquals(blocos[3].array(), lidos[0].array());
+                assertEquals(0, lidos[1].position());
+
+                assertEquals(-1, asp.carrega(handle, lidos, 4 * 4096));
+                assertTrue(asp.fecha(handle));
+            }
+        }
+    }
+
     private byte[] getBytes() {
         byte[] b1 = new byte[4096];
         Random random = new Random();
@@ -10,6 +10,7 @@
 package com.github.kyriosdata.healthdb.api;
 
 import java.io.IOException;
+import java.util.function.Supplier;
 
 /**
  * Definição de serviços de <i>logging</i>.
@@ -69,6 +70,65 @@ public interface Log {
      * @see #warn(String)
      */
     void fail(String msg);
-}
 
+    /**
+     * Registra mensagem pertinente à falha e a exceção
+     * correspondente, cuja pilha de execução é registrada.
+     *
+     * <p>A implementação padrão registra, por meio de
+     * {@link #fail(String)}, apenas a mensagem seguida da descrição
+     * da exceção ({@link Throwable#toString()}), sem a pilha de
+     * execução.
+     *
+     * @param msg Mensagem a ser registrada.
+     * @param erro Exceção associada à falha.
+     *
+     * @see #fail(String)
+     */
+    default void fail(String msg, Throwable erro) {
+        fail(erro == null ? msg : msg + ": " + erro);
+    }
 
+    /**
+     * Registra mensagem de log (informativa) produzida pelo
+     * fornecedor apenas se o registro de mensagens informativas
+     * está habilitado. Dessa forma, mensagens custosas podem ser
+     * mantidas em código crítico sem custo quando desabilitadas.
+     * O nome distinto de {@link #info(String)} evita ambiguidade em
+     * chamadas como {@code info(null)}.
+     *
+     * <p>A implementação padrão obtém a mensagem e a registra por
+     * meio de {@link #info(String)}, ou seja, sem evitar o custo.
+     *
+     * @param msg Fornecedor da mensagem a ser registrada.
+     *
+     * @see #info(String)
+     */
+    default void infoSobDemanda(Supplier<String> msg) {
+        info(msg.get());
+    }
+
+    /**
+     * Registra mensagem de log (aviso) produzida pelo fornecedor
+     * apenas se o registro de avisos está habilitado.
+     *
+     * @param msg Fornecedor da mensagem a ser registrada.
+     *
+     * @see #warn(String)
+     */
+    default void warnSobDemanda(Supplier<String> msg) {
+        warn(msg.get());
+    }
+
+    /**
+     * Registra mensagem pertinente à falha produzida pelo
+     * fornecedor apenas se o registro de falhas está habilitado.
+     *
+     * @param msg Fornecedor da mensagem a ser registrada.
+     *
+     * @see #fail(String)
+     */
+    default void failSobDemanda(Supplier<String> msg) {
+        fail(msg.get());
+    }
+}
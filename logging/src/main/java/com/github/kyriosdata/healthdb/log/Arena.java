@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+/**
+ * Área circular de bytes de uma <i>thread</i> produtora, na qual
+ * os registros são codificados pela própria <i>thread</i>. Apenas
+ * a localização do registro (início e tamanho) é repassada ao
+ * consumidor, que copia os bytes para o buffer e libera a área
+ * correspondente.
+ *
+ * <p>Um registro ocupa posições contíguas. Se não cabe no final da
+ * área, então é depositado no início e o final é descartado. A
+ * <i>thread</i> produtora é a única a escrever na área e o
+ * consumidor é o único a liberá-la, o que dispensa sincronização
+ * além do campo {@code volatile} {@link #liberado}.
+ */
+final class Arena {
+
+    private final byte[] dados;
+
+    private final Codificador codificador;
+
+    /**
+     * Total de bytes ocupados desde a criação (apenas produtor).
+     */
+    private long escrito;
+
+    /**
+     * Total de bytes liberados pelo consumidor desde a criação.
+     */
+    private volatile long liberado;
+
+    /**
+     * Bytes ocupados pelo último registro codificado e ainda não
+     * confirmado (inclui eventual final descartado).
+     */
+    private int pendente;
+
+    /**
+     * Tamanho do último registro codificado.
+     */
+    private int tamanho;
+
+    /**
+     * Cria área com a capacidade indicada.
+     *
+     * @param capacidade Total de bytes da área.
+     * @param formato Formato dos registros.
+     * @param micros Indica se instantes estão em microssegundos.
+     * @param protegido Indica se linhas reservadas são protegidas
+     *                  (veja {@link Codificador}).
+     */
+    Arena(int capacidade, Formato formato, boolean micros, boolean protegido) {
+        dados = new byte[capacidade];
+        codificador = new Codificador(formato, micros, protegido);
+    }
+
+    /**
+     * Vetor no qual os registros são depositados.
+     *
+     * @return Vetor da área.
+     */
+    byte[] dados() {
+        return dados;
+    }
+
+    /**
+     * Codifica o evento na área. O registro só é considerado ocupado
+     * após {@link #confirma()}, ou seja, pode ser abandonado se não
+     * for possível repassá-lo ao consumidor.
+     *
+     * @return Posição do registro na área ou -1, se não há espaço
+     * disponível (o evento deve ser codificado pelo consumidor).
+     */
+    int codifica(long instante, int nivel, byte[] origem, String payload) {
+        int total = codificador.codifica(instante, nivel, origem, payload);
+        if (total > dados.length) {
+            return -1;
+        }
+
+        int posicao = (int) (escrito % dados.length);
+        int inicio = posicao + total > dados.length ? 0 : posicao;
+        int necessario = inicio == 0 && posicao != 0
+                ? dados.length - posicao + total
+                : total;
+
+        if (dados.length - (escrito - liberado) < necessario) {
+            return -1;
+        }
+
+        System.arraycopy(codificador.bytes(), 0, dados, inicio, total);
+        pendente = necessario;
+        tamanho = total;
+        return inicio;
+    }
+
+    /**
+     * Tamanho do último registro codificado.
+     *
+     * @return Total de bytes do registro.
+     */
+    int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Confirma a ocupação do último registro codificado.
+     *
+     * @return Posição lógica da área imediatamente após o registro,
+     * a ser liberada quando o registro for consumido.
+     */
+    long confirma() {
+        escrito += pendente;
+        return escrito;
+    }
+
+    /**
+     * Libera a área ocupada até a posição lógica indicada
+     * (empregado apenas pelo consumidor).
+     *
+     * @param fim Valor retornado por {@link #confirma()}.
+     */
+    void libera(long fim) {
+        liberado = fim;
+    }
+}
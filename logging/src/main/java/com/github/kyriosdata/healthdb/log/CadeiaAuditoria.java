@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Cadeia de resumos (SHA-256) que torna evidente a alteração de um
+ * arquivo de <i>log</i>. Os bytes de cada lote são resumidos
+ * juntamente com o resumo do lote anterior, e o elo resultante é
+ * registrado em linha própria, na forma
+ * <pre>
+ * #HDB-AUDIT &lt;sequência&gt; &lt;resumo em hexadecimal&gt;
+ * </pre>
+ * A alteração, inserção ou remoção de qualquer registro (ou elo)
+ * invalida os elos seguintes.
+ *
+ * <p>Há uma única cadeia por arquivo, iniciada com resumo anterior
+ * formado por zeros e sequência 0. Cada início do serviço
+ * {@link Logging} prossegue a partir do último elo do arquivo
+ * ({@link #retoma(Path)}), e os bytes que sucedem esse elo
+ * (término abrupto do processo, por exemplo) são contemplados pelo
+ * próximo elo. Ou seja, todo byte que precede um elo é protegido
+ * por ele. Empregada tanto na produção quanto na verificação
+ * ({@link VerificadorAuditoria}). Uma instância não é
+ * <b>thread-safe</b>.
+ */
+class CadeiaAuditoria {
+
+    /**
+     * Início da linha de cada elo da cadeia.
+     */
+    static final String PREFIXO = "#HDB-AUDIT ";
+
+    static final byte[] PREFIXO_BYTES = PREFIXO.getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Maior linha de elo: prefixo, sequência (até 18 dígitos),
+     * espaço, resumo (64 dígitos hexadecimais) e nova linha.
+     */
+    static final int MAXIMO_ELO = 11 + 18 + 1 + 64 + 1;
+
+    private final MessageDigest sha;
+
+    private long sequencia;
+
+    /**
+     * Indica se o conteúdo contemplado por {@link #retoma(Path)}
+     * termina com linha incompleta.
+     */
+    private boolean linhaIncompleta;
+
+    /**
+     * Cria o início de uma cadeia (resumo anterior formado por
+     * zeros e sequência 0).
+     */
+    CadeiaAuditoria() {
+        this(new byte[32], 0);
+    }
+
+    /**
+     * Cria cadeia que prossegue a partir do elo indicado.
+     *
+     * @param anterior Resumo registrado no elo anterior.
+     * @param sequencia Sequência do próximo elo.
+     */
+    CadeiaAuditoria(byte[] anterior, long sequencia) {
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exp) {
+            // Toda implementação da plataforma Java oferece SHA-256
+            throw new IllegalStateException(exp);
+        }
+
+        sha.update(anterior);
+        this.sequencia = sequencia;
+    }
+
+    /**
+     * Cria a cadeia que prossegue a partir do último elo do arquivo
+     * indicado, já contemplados os bytes que sucedem esse elo. Se o
+     * arquivo não contém elo, a cadeia se inicia e contempla todo o
+     * conteúdo do arquivo.
+     *
+     * <p>Apenas o final do arquivo é lido, a partir do último elo,
+     * ou seja, o custo independe do tamanho do arquivo (exceto na
+     * ausência de elo).
+     *
+     * @param arquivo Arquivo de <i>log</i>.
+     *
+     * @return Cadeia cujo próximo elo sucede o conteúdo atual do
+     * arquivo.
+     *
+     * @throws IOException Se o arquivo não pode ser lido.
+     */
+    static CadeiaAuditoria retoma(Path arquivo) throws IOException {
+        if (!Files.exists(arquivo)) {
+            return new CadeiaAuditoria();
+        }
+
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            byte[] bloco = new byte[64 * 1024];
+
+            boolean incompleta = false;
+            if (tamanho > 0) {
+                le(canal, ByteBuffer.wrap(bloco, 0, 1), tamanho - 1);
+                incompleta = bloco[0] != '\n';
+            }
+
+            // Blocos sobrepostos, do final para o início, de forma
+            // que todo elo esteja integralmente contido em um bloco
+            long fim = tamanho;
+            while (fim > 0) {
+                long inicio = Math.max(0, fim - bloco.length);
+                int total = (int) (fim - inicio);
+                le(canal, ByteBuffer.wrap(bloco, 0, total), inicio);
+
+                for (int i = total - 1; i >= 0; i--) {
+                    boolean inicioDeLinha = i == 0 ? inicio == 0 : bloco[i - 1] == '\n';
+                    if (!inicioDeLinha || bloco[i] != '#') {
+                        continue;
+                    }
+
+                    int linha = comprimento(bloco, i, total);
+                    if (linha > 0 && ehElo(bloco, i, linha)) {
+                        CadeiaAuditoria cadeia = new CadeiaAuditoria(
+                                resumo(bloco, i, linha), sequencia(bloco, i, linha) + 1);
+                        cadeia.resume(canal, inicio + i + linha, tamanho);
+                        cadeia.linhaIncompleta = incompleta;
+                        return cadeia;
+                    }
+                }
+
+                fim = inicio == 0 ? 0 : inicio + MAXIMO_ELO;
+            }
+
+            CadeiaAuditoria cadeia = new CadeiaAuditoria();
+            cadeia.resume(canal, 0, tamanho);
+            cadeia.linhaIncompleta = incompleta;
+            return cadeia;
+        }
+    }
+
+    /**
+     * Indica se o arquivo contemplado por {@link #retoma(Path)}
+     * termina com linha incompleta (término abrupto do processo).
+     * Nesse caso, o próximo elo deve ser precedido por nova linha
+     * (contemplada pelo elo), para ser reconhecido como tal.
+     *
+     * @return {@code true} se e somente se o arquivo não termina
+     * com o caractere de nova linha.
+     */
+    boolean linhaIncompleta() {
+        return linhaIncompleta;
+    }
+
+    /**
+     * Acrescenta ao lote corrente os bytes do arquivo no intervalo
+     * indicado.
+     */
+    private void resume(FileChannel canal, long de, long ate) throws IOException {
+        ByteBuffer bloco = ByteBuffer.allocate(64 * 1024);
+        while (de < ate) {
+            bloco.clear();
+            bloco.limit((int) Math.min(bloco.capacity(), ate - de));
+            le(canal, bloco, de);
+            bloco.flip();
+            de += bloco.remaining();
+            sha.update(bloco);
+        }
+    }
+
+    private static void le(FileChannel canal, ByteBuffer destino, long posicao) throws IOException {
+        int inicial = destino.position();
+        while (destino.hasRemaining()) {
+            if (canal.read(destino, posicao + destino.position() - inicial) == -1) {
+                throw new IOException("final inesperado do arquivo");
+            }
+        }
+    }
+
+    /**
+     * Comprimento da linha iniciada na posição indicada, incluído o
+     * caractere de nova linha, ou -1, se a linha não é encerrada
+     * no vetor.
+     */
+    private static int comprimento(byte[] bytes, int inicio, int limite) {
+        for (int i = inicio; i < limite; i++) {
+            if (bytes[i] == '\n') {
+                return i - inicio + 1;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Verifica se a linha indicada (incluído o caractere de nova
+     * linha) é um elo bem formado. Linhas que não são elos bem
+     * formados são resumidas como registros, tanto na produção
+     * quanto na verificação.
+     *
+     * @param linha Vetor que contém a linha.
+     * @param inicio Posição do primeiro byte da linha.
+     * @param tamanho Quantidade de bytes da linha.
+     *
+     * @return {@code true} se e somente se a linha é um elo.
+     */
+    static boolean ehElo(byte[] linha, int inicio, int tamanho) {
+        int digitos = tamanho - PREFIXO_BYTES.length - 2 - 64;
+        if (digitos < 1 || digitos > 18 || linha[inicio + tamanho - 1] != '\n') {
+            return false;
+        }
+
+        for (int i = 0; i < PREFIXO_BYTES.length; i++) {
+            if (linha[inicio + i] != PREFIXO_BYTES[i]) {
+                return false;
+            }
+        }
+
+        int p = inicio + PREFIXO_BYTES.length;
+        for (int i = 0; i < digitos; i++, p++) {
+            if (linha[p] < '0' || linha[p] > '9') {
+                return false;
+            }
+        }
+
+        if (linha[p++] != ' ') {
+            return false;
+        }
+
+        for (int i = 0; i < 64; i++, p++) {
+            if (valorHex(linha[p]) == -1) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Sequência registrada no elo (bem formado) indicado.
+     */
+    static long sequencia(byte[] linha, int inicio, int tamanho) {
+        long valor = 0;
+        int fim = inicio + tamanho - 2 - 64;
+        for (int i = inicio + PREFIXO_BYTES.length; i < fim; i++) {
+            valor = valor * 10 + (linha[i] - '0');
+        }
+
+        return valor;
+    }
+
+    /**
+     * Resumo registrado no elo (bem formado) indicado.
+     */
+    static byte[] resumo(byte[] linha, int inicio, int tamanho) {
+        byte[] resumo = new byte[32];
+        int p = inicio + tamanho - 1 - 64;
+        for (int i = 0; i < resumo.length; i++) {
+            resumo[i] = (byte) (valorHex(linha[p++]) << 4 | valorHex(linha[p++]));
+        }
+
+        return resumo;
+    }
+
+    private static int valorHex(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+
+        return b >= 'a' && b <= 'f' ? b - 'a' + 10 : -1;
+    }
+
+    /**
+     * Acrescenta ao lote corrente os bytes do buffer no intervalo
+     * indicado. A posição e o limite do buffer não são alterados.
+     *
+     * @param buffer Buffer que contém os bytes.
+     * @param de Posição do primeiro byte.
+     * @param ate Posição imediatamente após o último byte.
+     */
+    void resume(ByteBuffer buffer, int de, int ate) {
+        if (de < ate) {
+            ByteBuffer trecho = buffer.duplicate();
+            trecho.limit(ate);
+            trecho.position(de);
+            sha.update(trecho);
+        }
+    }
+
+    /**
+     * Acrescenta ao lote corrente os bytes do vetor no intervalo
+     * indicado.
+     *
+     * @param bytes Vetor que contém os bytes.
+     * @param inicio Posição do primeiro byte.
+     * @param total Quantidade de bytes.
+     */
+    void resume(byte[] bytes, int inicio, int total) {
+        sha.update(bytes, inicio, total);
+    }
+
+    /**
+     * Encerra o lote corrente e produz a linha do elo
+     * correspondente, incluído o caractere de nova linha. O resumo
+     * produzido inicia o próximo lote.
+     *
+     * @return Bytes (ASCII) da linha do elo.
+     */
+    byte[] elo() {
+        byte[] resumo = sha.digest();
+        sha.update(resumo);
+
+        byte[] seq = Long.toString(sequencia++).getBytes(StandardCharsets.US_ASCII);
+        byte[] linha = new byte[PREFIXO_BYTES.length + seq.length + 2 + 2 * resumo.length];
+
+        int p = 0;
+        System.arraycopy(PREFIXO_BYTES, 0, linha, p, PREFIXO_BYTES.length);
+        p += PREFIXO_BYTES.length;
+        System.arraycopy(seq, 0, linha, p, seq.length);
+        p += seq.length;
+        linha[p++] = ' ';
+
+        for (byte b : resumo) {
+            linha[p++] = HEX[(b >>> 4) & 0xF];
+            linha[p++] = HEX[b & 0xF];
+        }
+
+        linha[p] = '\n';
+        return linha;
+    }
+}
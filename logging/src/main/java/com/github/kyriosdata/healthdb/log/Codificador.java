@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+/**
+ * Produz a sequência de bytes correspondente a um evento de
+ * <i>log</i>, conforme o {@link Formato} indicado.
+ *
+ * <p>O resultado é depositado em vetor interno, reutilizado a
+ * cada chamada (cresce apenas quando um registro não cabe nele).
+ * Em consequência, uma instância <b>não é thread-safe</b> e o
+ * conteúdo de {@link #bytes()} deve ser copiado antes da
+ * próxima codificação.
+ */
+class Codificador {
+
+    /**
+     * Bytes correspondentes à " INFO ", " WARN " e " FAIL ".
+     * Observe que é empregado um espaço antes e após o nome
+     * de cada nível.
+     */
+    static final byte[][] NIVEIS = {
+            {32, 73, 78, 70, 79, 32},
+            {32, 87, 65, 82, 78, 32},
+            {32, 70, 65, 73, 76, 32}};
+
+    /**
+     * Tamanho máximo de um varint que representa um int.
+     */
+    static final int MAX_VARINT = 5;
+
+    /**
+     * Bit do nível (formato binário) que indica instante em
+     * microssegundos.
+     */
+    static final int MICROS = 0x80;
+
+    /**
+     * Tamanho máximo do cabeçalho textual: instante com
+     * microssegundos (27 bytes) e nível (6 bytes).
+     */
+    private static final int CABECALHO = 33;
+
+    private final Formato formato;
+
+    /**
+     * Indica se os instantes estão em microssegundos (em vez de
+     * milissegundos).
+     */
+    private final boolean micros;
+
+    /**
+     * Indica se linhas da mensagem iniciadas por '#' são precedidas
+     * por '\', ou seja, se a mensagem não pode produzir linha
+     * reservada, como o elo de {@link CadeiaAuditoria}.
+     */
+    private final boolean protegido;
+
+    private final DateFormat fmt = new DateFormat();
+
+    private byte[] registro = new byte[256];
+
+    private int tamanho;
+
+    /**
+     * Cria codificador para o formato indicado, cujos instantes
+     * estão em milissegundos.
+     *
+     * @param formato Formato dos registros produzidos.
+     */
+    Codificador(Formato formato) {
+        this(formato, false);
+    }
+
+    /**
+     * Cria codificador para o formato e a precisão indicados.
+     *
+     * @param formato Formato dos registros produzidos.
+     * @param micros {@code true} se os instantes estão em
+     *               microssegundos e {@code false}, se em
+     *               milissegundos.
+     */
+    Codificador(Formato formato, boolean micros) {
+        this(formato, micros, false);
+    }
+
+    /**
+     * Cria codificador para o formato e a precisão indicados que,
+     * opcionalmente, protege as linhas reservadas do arquivo.
+     *
+     * @param formato Formato dos registros produzidos.
+     * @param micros {@code true} se os instantes estão em
+     *               microssegundos e {@code false}, se em
+     *               milissegundos.
+     * @param protegido {@code true} se linhas da mensagem (formato
+     *                  {@link Formato#TEXTO}) iniciadas por '#'
+     *                  devem ser precedidas por '\'.
+     */
+    Codificador(Formato formato, boolean micros, boolean protegido) {
+        this.formato = formato;
+        this.micros = micros;
+        this.protegido = protegido;
+    }
+
+    /**
+     * Formato dos registros produzidos pelo codificador.
+     *
+     * @return O formato empregado.
+     */
+    Formato formato() {
+        return formato;
+    }
+
+    /**
+     * Precisão dos instantes codificados.
+     *
+     * @return {@code true} se e somente se os instantes estão em
+     * microssegundos.
+     */
+    boolean micros() {
+        return micros;
+    }
+
+    /**
+     * Vetor no qual o último registro foi produzido. Apenas os
+     * primeiros {@link #tamanho()} bytes são relevantes.
+     *
+     * @return Vetor reutilizado pelo codificador.
+     */
+    byte[] bytes() {
+        return registro;
+    }
+
+    /**
+     * Quantidade de bytes do último registro produzido.
+     *
+     * @return Total de bytes do último registro.
+     */
+    int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Codifica o evento conforme o formato do codificador.
+     *
+     * @param instante Instante do evento (milissegundos ou
+     *                 microssegundos desde "epoch", conforme a precisão).
+     * @param nivel Nível do evento (INFO, WARN ou FAIL).
+     * @param origem Bytes que identificam o registrador nomeado
+     *               (precedem a mensagem) ou {@code null}.
+     * @param payload Mensagem associada ao evento.
+     *
+     * @return Quantidade de bytes do registro produzido.
+     */
+    int codifica(long instante, int nivel, byte[] origem, CharSequence payload) {
+        int bytesOrigem = origem == null ? 0 : origem.length;
+        int bytesPayload = bytesOrigem + Utf8.tamanho(payload);
+
+        tamanho = 0;
+
+        if (formato == Formato.BINARIO) {
+            garante(9 + MAX_VARINT + bytesPayload);
+            escreveLong(instante);
+            registro[tamanho++] = (byte) (micros ? nivel | MICROS : nivel);
+            escreveVarint(bytesPayload);
+        } else {
+            garante(CABECALHO + 1 + bytesPayload);
+            cabecalhoTexto(instante, nivel, micros);
+        }
+
+        int inicio = tamanho;
+
+        if (bytesOrigem > 0) {
+            System.arraycopy(origem, 0, registro, tamanho, bytesOrigem);
+            tamanho += bytesOrigem;
+        }
+
+        tamanho = Utf8.codifica(payload, registro, tamanho);
+
+        if (formato == Formato.TEXTO) {
+            if (protegido) {
+                protege(inicio);
+            }
+
+            registro[tamanho++] = '\n';
+        }
+
+        return tamanho;
+    }
+
+    /**
+     * Produz o registro textual de um evento cuja mensagem já se
+     * encontra codificada em UTF-8. Empregado na conversão de
+     * registros binários para o formato textual.
+     *
+     * @param instante Instante do evento (milissegundos desde "epoch" ou
+     *                 microssegundos, se indicado no nível).
+     * @param nivel Nível do evento, eventualmente combinado com
+     *              {@link #MICROS}.
+     * @param payload Vetor contendo a mensagem (UTF-8).
+     * @param inicio Posição inicial da mensagem no vetor.
+     * @param total Quantidade de bytes da mensagem.
+     *
+     * @return Quantidade de bytes do registro produzido.
+     */
+    int texto(long instante, int nivel, byte[] payload, int inicio, int total) {
+        tamanho = 0;
+        garante(CABECALHO + 1 + total);
+        cabecalhoTexto(instante, nivel & ~MICROS, (nivel & MICROS) != 0);
+        System.arraycopy(payload, inicio, registro, tamanho, total);
+        tamanho += total;
+        registro[tamanho++] = '\n';
+        return tamanho;
+    }
+
+    /**
+     * Acrescenta '\' no início de cada linha iniciada por '#' a
+     * partir da posição indicada (exceto a primeira, que é precedida
+     * pelo cabeçalho). O vetor é percorrido uma única vez quando não
+     * há tais linhas, o caso comum.
+     */
+    private void protege(int inicio) {
+        int linhas = 0;
+        for (int i = inicio; i < tamanho - 1; i++) {
+            if (registro[i] == '\n' && registro[i + 1] == '#') {
+                linhas++;
+            }
+        }
+
+        if (linhas == 0) {
+            return;
+        }
+
+        // Reserva também o '\n' final do registro
+        garante(linhas + 1);
+
+        // Desloca do final para o início, inserindo '\' antes de '#'
+        int origem = tamanho - 1;
+        int destino = tamanho - 1 + linhas;
+        tamanho += linhas;
+        while (linhas > 0) {
+            byte b = registro[origem];
+            registro[destino--] = b;
+            if (b == '#' && registro[origem - 1] == '\n') {
+                registro[destino--] = '\\';
+                linhas--;
+            }
+
+            origem--;
+        }
+    }
+
+    private void cabecalhoTexto(long instante, int nivel, boolean emMicros) {
+
+        // Instante (24 bytes ou, com microssegundos, 27 bytes)
+        byte[] timestamp = emMicros ? fmt.toBytesMicros(instante) : fmt.toBytes(instante);
+        System.arraycopy(timestamp, 0, registro, tamanho, timestamp.length);
+        tamanho += timestamp.length;
+
+        // Nível (" INFO ", " WARN " ou " FAIL ") (6 bytes)
+        byte[] level = NIVEIS[nivel];
+        System.arraycopy(level, 0, registro, tamanho, level.length);
+        tamanho += level.length;
+    }
+
+    private void escreveLong(long valor) {
+        for (int i = 56; i >= 0; i -= 8) {
+            registro[tamanho++] = (byte) (valor >>> i);
+        }
+    }
+
+    private void escreveVarint(int valor) {
+        while ((valor & ~0x7F) != 0) {
+            registro[tamanho++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+
+        registro[tamanho++] = (byte) valor;
+    }
+
+    /**
+     * Assegura que o vetor interno comporta, a partir da posição
+     * corrente, o total de bytes indicado.
+     */
+    private void garante(int adicional) {
+        int necessario = tamanho + adicional;
+        if (necessario > registro.length) {
+            byte[] maior = new byte[Math.max(necessario, registro.length * 2)];
+            System.arraycopy(registro, 0, maior, 0, tamanho);
+            registro = maior;
+        }
+    }
+}
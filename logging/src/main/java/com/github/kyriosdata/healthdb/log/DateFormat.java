@@ -17,19 +17,26 @@
 
 package com.github.kyriosdata.healthdb.log;
 
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.TimeZone;
-
 /**
  * Classe inspirada em FixedDateFormat, fornecida pelo projeto Log4j2.
  *
+ * <p>Cada precisão (milissegundos, microssegundos e nanossegundos)
+ * possui template próprio. A data é reescrita apenas quando o dia
+ * muda e a hora (hh:mm:ss) apenas quando o segundo muda, ou seja,
+ * para eventos próximos no tempo apenas os dígitos da fração de
+ * segundo são produzidos. A data é obtida por aritmética (sem
+ * {@code Calendar} ou {@code SimpleDateFormat}), o que elimina
+ * alocação de memória.
+ *
  * <p>As opções da JVM -XX:FreqInlineSize e -XX:MaxInlineSize podem ser
  * investigadas para identificar possíveis ganhos de desempenho.
  */
 public class DateFormat {
 
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private static final int SECONDS_PER_DAY = 86_400;
+
     private long midnightToday = 0;
     private long midnightTomorrow = 0;
 
@@ -38,8 +45,25 @@ public class DateFormat {
      * Vetor que é empregado para manter o formato e a data (que é alterada
      * apenas uma vez a cada dia).
      */
-    private final byte[] cachedTemplate = {
-            0, 0, 0, 0, 45, 0, 0, 45, 0, 0, 84, 0, 0, 58, 0, 0, 58, 0, 0, 46, 0, 0, 0, 90 };
+    private final byte[] cachedTemplate = template(3);
+
+    /**
+     * Template para yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z' (27 bytes).
+     */
+    private final byte[] cachedMicros = template(6);
+
+    /**
+     * Template para yyyy-MM-dd'T'HH:mm:ss.SSSSSSSSS'Z' (30 bytes).
+     */
+    private final byte[] cachedNanos = template(9);
+
+    /**
+     * Segundo (desde "epoch") cuja data e hora estão em cada template.
+     * O valor inicial não corresponde a nenhum segundo válido.
+     */
+    private long segundoMillis = Long.MIN_VALUE;
+    private long segundoMicros = Long.MIN_VALUE;
+    private long segundoNanos = Long.MIN_VALUE;
 
     /**
      * Formata o instante UTC no padrão "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'".
@@ -52,10 +76,56 @@ public class DateFormat {
      * @return Vetor de bytes correspondente ao instante.
      */
     public byte[] toBytes(final long time) {
-        writeTimeToBytes(millisSinceMidnight(time));
+        long segundo = Math.floorDiv(time, 1000);
+        if (segundo != segundoMillis) {
+            writeSecondToBytes(cachedTemplate, segundo, segundoMillis);
+            segundoMillis = segundo;
+        }
+
+        writeDigits(cachedTemplate, 20, (int) Math.floorMod(time, 1000), 3);
         return cachedTemplate;
     }
 
+    /**
+     * Formata o instante UTC no padrão "yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'"
+     * (27 bytes). O vetor retornado é reutilizado, conforme
+     * {@link #toBytes(long)}.
+     *
+     * @param micros O instante em microssegundos UTC (epoch).
+     *
+     * @return Vetor de bytes correspondente ao instante.
+     */
+    public byte[] toBytesMicros(final long micros) {
+        long segundo = Math.floorDiv(micros, 1_000_000);
+        if (segundo != segundoMicros) {
+            writeSecondToBytes(cachedMicros, segundo, segundoMicros);
+            segundoMicros = segundo;
+        }
+
+        writeDigits(cachedMicros, 20, (int) Math.floorMod(micros, 1_000_000), 6);
+        return cachedMicros;
+    }
+
+    /**
+     * Formata o instante UTC no padrão
+     * "yyyy-MM-dd'T'HH:mm:ss.SSSSSSSSS'Z'" (30 bytes). O vetor
+     * retornado é reutilizado, conforme {@link #toBytes(long)}.
+     *
+     * @param nanos O instante em nanossegundos UTC (epoch).
+     *
+     * @return Vetor de bytes correspondente ao instante.
+     */
+    public byte[] toBytesNanos(final long nanos) {
+        long segundo = Math.floorDiv(nanos, 1_000_000_000);
+        if (segundo != segundoNanos) {
+            writeSecondToBytes(cachedNanos, segundo, segundoNanos);
+            segundoNanos = segundo;
+        }
+
+        writeDigits(cachedNanos, 20, (int) Math.floorMod(nanos, 1_000_000_000), 9);
+        return cachedNanos;
+    }
+
     /**
      * Quantidade de milissegundos do instante desde a meia-noite.
      *
@@ -74,77 +144,92 @@ public class DateFormat {
     }
 
     /**
-     * Atualiza total de milissegundos.
-     * @param now
+     * Atualiza os instantes da meia-noite do dia do instante
+     * fornecido e do dia seguinte.
+     *
+     * @param now O instante em milissegundos UTC (epoch).
      */
     public void updateMidnightMillis(final long now) {
-
-        updateCache(now);
-
-        midnightToday = addDaysToMidnightMillis(now, 0);
-        midnightTomorrow = addDaysToMidnightMillis(now, 1);
-    }
-
-    private void updateCache(final long now) {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        String date = sdf.format(new Date(now));
-
-        // Transfere "yyyy-MM-dd" para buffer (10 primeiros bytes)
-        System.arraycopy(date.getBytes(), 0, cachedTemplate, 0, 10);
+        midnightToday = Math.floorDiv(now, MILLIS_PER_DAY) * MILLIS_PER_DAY;
+        midnightTomorrow = midnightToday + MILLIS_PER_DAY;
     }
 
-    private long addDaysToMidnightMillis(final long time, final int addDays) {
-        final Calendar cal = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
-        cal.setTimeInMillis(time);
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        cal.set(Calendar.MILLISECOND, 0);
-        cal.add(Calendar.DATE, addDays);
-        return cal.getTimeInMillis();
+    /**
+     * Cria template "yyyy-MM-dd'T'HH:mm:ss.<fração>'Z'" com a
+     * quantidade indicada de dígitos para a fração de segundo.
+     */
+    private static byte[] template(int digitos) {
+        byte[] template = new byte[21 + digitos];
+        template[4] = '-';
+        template[7] = '-';
+        template[10] = 'T';
+        template[13] = ':';
+        template[16] = ':';
+        template[19] = '.';
+        template[20 + digitos] = 'Z';
+        return template;
     }
 
     /**
-     * Transforma o tempo em milissegundos, após a última meia-noite, na
-     * sequência correspondentes de bytes, depositados no buffer, conforme o
-     * formato padrão. Especificamente, produz no buffer a definição dos
-     * valores das horas, minutos, segundos e milissegundos.
+     * Deposita no template a data e a hora (hh:mm:ss) do segundo
+     * fornecido. A data é reescrita apenas se o dia difere daquele
+     * já presente no template.
      *
-     * @param ms Quantidade de milissegundos após a última meia-noite.
+     * @param template Template a ser atualizado.
+     * @param segundo Segundos desde "epoch".
+     * @param anterior Segundo cuja data e hora estão no template.
      */
-    private void writeTimeToBytes(int ms) {
-        final int hours = ms / 3600000;
-        ms -= 3600000 * hours;
-
-        final int minutes = ms / 60000;
-        ms -= 60000 * minutes;
+    private static void writeSecondToBytes(byte[] template, long segundo, long anterior) {
+        long dias = Math.floorDiv(segundo, SECONDS_PER_DAY);
+        int resto = (int) Math.floorMod(segundo, SECONDS_PER_DAY);
 
-        final int seconds = ms / 1000;
-        ms -= 1000 * seconds;
-
-        // Hour
-        int temp = hours / 10;
-        cachedTemplate[11] = (byte) (temp + '0');
-        cachedTemplate[12] = (byte) (hours - 10 * temp + '0');
+        if (anterior == Long.MIN_VALUE || dias != Math.floorDiv(anterior, SECONDS_PER_DAY)) {
+            writeDateToBytes(template, dias);
+        }
 
-        // Minute
-        temp = minutes / 10;
-        cachedTemplate[14] = (byte) (temp + '0');
-        cachedTemplate[15] = (byte) (minutes - 10 * temp + '0');
+        final int hours = resto / 3600;
+        resto -= 3600 * hours;
 
-        // Second
-        temp = seconds / 10;
-        cachedTemplate[17] = (byte) (temp + '0');
-        cachedTemplate[18] = (byte) (seconds - 10 * temp + '0');
+        final int minutes = resto / 60;
+        final int seconds = resto - 60 * minutes;
 
-        // Millisecond
-        temp = ms / 100;
-        cachedTemplate[20] = (byte) (temp + '0');
+        writeDigits(template, 11, hours, 2);
+        writeDigits(template, 14, minutes, 2);
+        writeDigits(template, 17, seconds, 2);
+    }
 
-        ms -= 100 * temp;
-        temp = ms / 10;
-        cachedTemplate[21] = (byte) (temp + '0');
+    /**
+     * Deposita no template a data (yyyy-MM-dd) correspondente ao
+     * total de dias desde "epoch", conforme o algoritmo
+     * "civil_from_days" (Howard Hinnant), para o calendário
+     * gregoriano proléptico.
+     */
+    private static void writeDateToBytes(byte[] template, long dias) {
+        final long z = dias + 719_468;
+        final long era = (z >= 0 ? z : z - 146_096) / 146_097;
+        final int doe = (int) (z - era * 146_097);
+        final int yoe = (doe - doe / 1460 + doe / 36_524 - doe / 146_096) / 365;
+        final int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        final int mp = (5 * doy + 2) / 153;
+        final int day = doy - (153 * mp + 2) / 5 + 1;
+        final int month = mp < 10 ? mp + 3 : mp - 9;
+        final long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+        writeDigits(template, 0, (int) year, 4);
+        writeDigits(template, 5, month, 2);
+        writeDigits(template, 8, day, 2);
+    }
 
-        cachedTemplate[22] = (byte) (ms - 10 * temp + '0');
+    /**
+     * Deposita no template, a partir da posição indicada, os dígitos
+     * decimais do valor (não negativo), completados com zeros à
+     * esquerda até a quantidade de dígitos indicada.
+     */
+    private static void writeDigits(byte[] template, int inicio, int valor, int digitos) {
+        for (int i = inicio + digitos - 1; i >= inicio; i--) {
+            int temp = valor / 10;
+            template[i] = (byte) (valor - 10 * temp + '0');
+            valor = temp;
+        }
     }
 }
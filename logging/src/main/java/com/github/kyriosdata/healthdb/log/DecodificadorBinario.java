@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Converte registros no formato {@link Formato#BINARIO} para o
+ * formato {@link Formato#TEXTO}. A conversão é realizada
+ * registro a registro (<i>streaming</i>), ou seja, não exige
+ * que o arquivo seja carregado em memória.
+ *
+ * <p>Uso pela linha de comandos:
+ * <pre>
+ * java com.github.kyriosdata.healthdb.log.DecodificadorBinario entrada.log [saida.txt]
+ * </pre>
+ * Na ausência do arquivo de saída, o texto é enviado para
+ * {@link System#out}.
+ */
+public class DecodificadorBinario {
+
+    /**
+     * Tamanho máximo admitido para o conteúdo de um registro. Valor
+     * superior indica entrada corrompida.
+     */
+    static final int MAX_PAYLOAD = 64 * 1024 * 1024;
+
+    private final Codificador texto = new Codificador(Formato.TEXTO);
+
+    private byte[] payload = new byte[256];
+
+    /**
+     * Converte todos os registros disponíveis na entrada.
+     *
+     * @param in Entrada contendo registros binários.
+     * @param out Saída na qual os registros textuais são depositados.
+     *
+     * @return Quantidade de registros convertidos.
+     *
+     * @throws IOException Em caso de falha de leitura/escrita, se
+     * a entrada termina no meio de um registro ou se um registro é
+     * inválido (nível desconhecido ou tamanho implausível).
+     */
+    public long decodifica(InputStream in, OutputStream out) throws IOException {
+        long registros = 0;
+
+        while (true) {
+            int primeiro = in.read();
+            if (primeiro == -1) {
+                break;
+            }
+
+            long instante = primeiro & 0xFF;
+            for (int i = 1; i < 8; i++) {
+                instante = (instante << 8) | leByte(in);
+            }
+
+            int nivel = leByte(in);
+            if ((nivel & ~Codificador.MICROS) >= Codificador.NIVEIS.length) {
+                throw new IOException("nível inválido: " + nivel);
+            }
+
+            int total = leVarint(in);
+            if (total < 0 || total > MAX_PAYLOAD) {
+                throw new IOException("tamanho inválido: " + total);
+            }
+
+            leTudo(in, total);
+
+            int tamanho = texto.texto(instante, nivel, payload, 0, total);
+            out.write(texto.bytes(), 0, tamanho);
+            registros++;
+        }
+
+        out.flush();
+        return registros;
+    }
+
+    private static int leByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException("registro incompleto");
+        }
+
+        return b;
+    }
+
+    private static int leVarint(InputStream in) throws IOException {
+        int valor = 0;
+        for (int deslocamento = 0; deslocamento < 35; deslocamento += 7) {
+            int b = leByte(in);
+            valor |= (b & 0x7F) << deslocamento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+
+        throw new IOException("varint inválido");
+    }
+
+    /**
+     * Deposita em {@link #payload} os próximos bytes da entrada. O
+     * vetor cresce à medida que os bytes são lidos, ou seja, um
+     * tamanho corrompido não provoca alocação além do que a entrada
+     * efetivamente contém.
+     */
+    private void leTudo(InputStream in, int total) throws IOException {
+        int lidos = 0;
+        while (lidos < total) {
+            if (lidos == payload.length) {
+                byte[] maior = new byte[(int) Math.min(total, payload.length * 2L)];
+                System.arraycopy(payload, 0, maior, 0, lidos);
+                payload = maior;
+            }
+
+            int n = in.read(payload, lidos, Math.min(total, payload.length) - lidos);
+            if (n == -1) {
+                throw new EOFException("registro incompleto");
+            }
+
+            lidos += n;
+        }
+    }
+
+    /**
+     * Converte o arquivo binário fornecido (primeiro argumento) para
+     * texto, depositado no segundo argumento (arquivo) ou na saída
+     * padrão.
+     *
+     * @param args Arquivo de entrada e, opcionalmente, de saída.
+     *
+     * @throws IOException Em caso de falha de leitura/escrita.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("uso: DecodificadorBinario entrada [saida]");
+            return;
+        }
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(args[0])), 64 * 1024)) {
+            if (args.length > 1) {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(args[1])), 64 * 1024)) {
+                    new DecodificadorBinario().decodifica(in, out);
+                }
+            } else {
+                new DecodificadorBinario().decodifica(in, new BufferedOutputStream(System.out, 64 * 1024));
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Destino (<i>sink</i>) dos registros de <i>log</i> produzidos
+ * pelo consumidor. Cada lote é codificado uma única vez e entregue
+ * a todos os destinos configurados.
+ *
+ * <p>O consumidor é único e aguarda por cada destino. Um destino
+ * potencialmente lento deve ser isolado por meio de
+ * {@link DestinoAssincrono}. Exceção lançada por um destino não
+ * afeta o arquivo nem os demais destinos, apenas é contabilizada
+ * (veja {@link LoggingMXBean#getFalhasDestino()}).
+ *
+ * @see Logging#acrescentaDestino(Destino)
+ */
+public interface Destino {
+
+    /**
+     * Acrescenta os bytes disponíveis no buffer, ou seja, desde a
+     * posição corrente até o limite. O buffer é reutilizado pelo
+     * consumidor após o retorno, portanto, não pode ser retido.
+     *
+     * @param buffer Buffer contendo um ou mais registros completos.
+     */
+    void acrescenta(ByteBuffer buffer);
+
+    /**
+     * Encerra o uso do destino, liberando recursos associados.
+     */
+    void close();
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Isola um destino, potencialmente lento, do consumidor. Cada lote
+ * recebido é copiado para fila de capacidade limitada e entregue ao
+ * destino por <i>thread</i> própria. Quando a fila está cheia, o
+ * lote é descartado (e contabilizado), ou seja, o consumidor e os
+ * demais destinos nunca aguardam por esse destino.
+ */
+public class DestinoAssincrono implements Destino, Runnable {
+
+    private final Destino destino;
+
+    private final BlockingQueue<byte[]> fila;
+
+    private final AtomicLong descartados = new AtomicLong(0);
+
+    private final Thread thread;
+
+    private volatile boolean ativo = true;
+
+    /**
+     * Cria destino assíncrono para o destino fornecido.
+     *
+     * @param destino Destino cuja entrega será realizada por
+     *                <i>thread</i> própria.
+     * @param capacidade Quantidade máxima de lotes aguardando
+     *                   pela entrega.
+     */
+    public DestinoAssincrono(Destino destino, int capacidade) {
+        this.destino = destino;
+        this.fila = new ArrayBlockingQueue<>(capacidade);
+
+        thread = new Thread(this, "hdb-logging-destino");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void acrescenta(ByteBuffer buffer) {
+        byte[] lote = new byte[buffer.remaining()];
+        buffer.get(lote);
+
+        if (!fila.offer(lote)) {
+            descartados.incrementAndGet();
+        }
+    }
+
+    /**
+     * Quantidade de lotes descartados (fila cheia).
+     *
+     * @return Total de lotes não entregues ao destino.
+     */
+    public long descartados() {
+        return descartados.get();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (ativo || !fila.isEmpty()) {
+                byte[] lote = fila.poll(100, TimeUnit.MILLISECONDS);
+                if (lote != null) {
+                    destino.acrescenta(ByteBuffer.wrap(lote));
+                }
+            }
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Entrega os lotes pendentes e encerra o destino.
+     */
+    @Override
+    public void close() {
+        ativo = false;
+
+        try {
+            thread.join();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+
+        destino.close();
+    }
+}
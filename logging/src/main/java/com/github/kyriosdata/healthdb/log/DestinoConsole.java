@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Destino que envia os registros para a saída padrão, conforme
+ * esperado quando a execução ocorre em contêiner.
+ */
+public class DestinoConsole implements Destino {
+
+    private final PrintStream out;
+
+    private final byte[] copia = new byte[8 * 1024];
+
+    /**
+     * Cria destino associado a {@link System#out}.
+     */
+    public DestinoConsole() {
+        this(System.out);
+    }
+
+    /**
+     * Cria destino associado à saída fornecida.
+     *
+     * @param out Saída na qual os registros são depositados.
+     */
+    public DestinoConsole(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void acrescenta(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            int inicio = buffer.arrayOffset() + buffer.position();
+            out.write(buffer.array(), inicio, buffer.remaining());
+            buffer.position(buffer.limit());
+        } else {
+            while (buffer.hasRemaining()) {
+                int total = Math.min(copia.length, buffer.remaining());
+                buffer.get(copia, 0, total);
+                out.write(copia, 0, total);
+            }
+        }
+
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        out.flush();
+    }
+}
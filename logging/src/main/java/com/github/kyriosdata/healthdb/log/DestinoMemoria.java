@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Destino que mantém em memória os últimos bytes registrados
+ * (<i>tail</i>), em vetor circular de capacidade fixa. Útil para
+ * exibir os eventos mais recentes, por exemplo, em uma página de
+ * administração, sem consultar o arquivo.
+ */
+public class DestinoMemoria implements Destino {
+
+    private final byte[] dados;
+
+    /**
+     * Total de bytes recebidos desde a criação.
+     */
+    private long recebidos;
+
+    /**
+     * Cria destino que retém os últimos bytes recebidos.
+     *
+     * @param capacidade Quantidade máxima de bytes retidos.
+     */
+    public DestinoMemoria(int capacidade) {
+        dados = new byte[capacidade];
+    }
+
+    @Override
+    public synchronized void acrescenta(ByteBuffer buffer) {
+        int total = buffer.remaining();
+
+        // Apenas os últimos bytes são relevantes
+        if (total > dados.length) {
+            buffer.position(buffer.position() + total - dados.length);
+            recebidos += total - dados.length;
+            total = dados.length;
+        }
+
+        int inicio = (int) (recebidos % dados.length);
+        int primeira = Math.min(total, dados.length - inicio);
+        buffer.get(dados, inicio, primeira);
+        buffer.get(dados, 0, total - primeira);
+
+        recebidos += total;
+    }
+
+    /**
+     * Obtém cópia dos últimos bytes retidos, do mais antigo para o
+     * mais recente. O primeiro registro pode estar incompleto.
+     *
+     * @return Os últimos bytes recebidos (no máximo a capacidade).
+     */
+    public synchronized byte[] ultimos() {
+        int total = (int) Math.min(recebidos, dados.length);
+        byte[] copia = new byte[total];
+
+        int inicio = (int) ((recebidos - total) % dados.length);
+        int primeira = Math.min(total, dados.length - inicio);
+        System.arraycopy(dados, inicio, copia, 0, primeira);
+        System.arraycopy(dados, 0, copia, primeira, total - primeira);
+
+        return copia;
+    }
+
+    @Override
+    public void close() {
+        // Nada a liberar, conteúdo permanece disponível.
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+/**
+ * Política de persistência (<i>fsync</i>) dos registros de
+ * <i>log</i> depositados no arquivo.
+ *
+ * @see Logging#durabilidade(Durabilidade, long)
+ */
+public enum Durabilidade {
+
+    /**
+     * Registros são entregues ao sistema operacional, que decide
+     * quando persisti-los. Maior vazão, nenhuma garantia em caso
+     * de queda do sistema.
+     */
+    NENHUMA,
+
+    /**
+     * Persistência forçada em intervalos regulares de tempo. Em
+     * caso de queda, perde-se no máximo o intervalo em questão.
+     */
+    PERIODICA,
+
+    /**
+     * Persistência forçada ao final de cada lote consumido
+     * (<i>group commit</i>). Produtores que aguardam pela
+     * persistência ({@link Logging#sincroniza()}) são liberados
+     * pelo mesmo <i>fsync</i> que persiste o lote que contém os
+     * eventos por eles registrados. Se esse <i>fsync</i> falha,
+     * tais produtores são liberados com a indicação da falha.
+     */
+    LOTE
+}
@@ -11,8 +11,7 @@ package com.github.kyriosdata.healthdb.log;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SeekableByteChannel;
-import java.nio.file.Files;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
@@ -20,10 +19,10 @@ import java.nio.file.StandardOpenOption;
 /**
  * Serviços de manipulação de arquivo.
  */
-public class FileManager {
+public class FileManager implements Destino {
 
     private final Path path;
-    private final SeekableByteChannel channel;
+    private final FileChannel channel;
 
     /**
      * Cria instância que oferece acesso a serviços sobre arquivos.
@@ -31,7 +30,7 @@ public class FileManager {
      */
     public FileManager(String filename) throws IOException {
        path = Paths.get(filename);
-       channel = Files.newByteChannel(path, StandardOpenOption.APPEND, StandardOpenOption.CREATE);
+       channel = FileChannel.open(path, StandardOpenOption.APPEND, StandardOpenOption.CREATE);
     }
 
     public void acrescenta(byte[] payload, int i, int size) throws Exception {
@@ -40,19 +39,62 @@ public class FileManager {
         acrescenta(buffer);
     }
 
+    @Override
     public void acrescenta(ByteBuffer buffer) {
+        escreve(buffer);
+    }
 
+    /**
+     * Acrescenta ao arquivo os bytes disponíveis no buffer, ou seja,
+     * desde a posição corrente até o limite.
+     *
+     * @param buffer Buffer cujo conteúdo deve ser acrescentado.
+     *
+     * @return {@code true} se e somente se todos os bytes foram
+     * acrescentados. Em caso de falha, parte dos bytes pode ter sido
+     * acrescentada.
+     */
+    public boolean escreve(ByteBuffer buffer) {
         try {
-
             while (buffer.hasRemaining()) {
                 channel.write(buffer);
             }
 
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Tamanho corrente do arquivo.
+     *
+     * @return Total de bytes do arquivo.
+     *
+     * @throws IOException Em caso de falha na consulta.
+     */
+    public long tamanho() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Força a persistência, em meio secundário, do conteúdo já
+     * acrescentado ao arquivo. Metadados do arquivo não são
+     * necessariamente persistidos.
+     *
+     * @return {@code true} se e somente se a persistência foi
+     * realizada.
+     */
+    public boolean sincroniza() {
+        try {
+            channel.force(false);
+            return true;
         } catch (IOException ex) {
-            System.err.println(ex);
+            return false;
         }
     }
 
+    @Override
     public void close() {
         try {
             channel.close();
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+/**
+ * Formatos nos quais registros de <i>log</i> podem ser persistidos.
+ *
+ * @see Logging#formato(Formato)
+ */
+public enum Formato {
+
+    /**
+     * Registro textual: instante (yyyy-MM-dd'T'HH:mm:ss.SSS'Z'),
+     * nível, mensagem e "nova linha". Legível diretamente, mas
+     * exige formatação do instante a cada evento.
+     */
+    TEXTO,
+
+    /**
+     * Registro binário: instante (long, 8 bytes, big-endian),
+     * nível (1 byte), tamanho da mensagem (varint) e a mensagem
+     * (UTF-8). Compacto e barato de produzir. O texto correspondente
+     * é obtido, quando necessário, por meio de
+     * {@link DecodificadorBinario}.
+     */
+    BINARIO
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Gravador de voo: mantém os registros mais recentes em arquivo
+ * circular de tamanho fixo, mapeado em memória. Como o conteúdo
+ * mapeado pertence ao sistema operacional, os registros sobrevivem
+ * ao término abrupto do processo (<i>OOM killer</i>, SIGKILL), ao
+ * contrário daqueles ainda na estrutura circular ou no buffer do
+ * serviço {@link Logging}. O custo é uma cópia de memória por
+ * registro, sem chamada ao sistema operacional.
+ *
+ * <p>O arquivo é formado por um cabeçalho, com a identificação
+ * ({@link #MAGICO}), a capacidade e o total de bytes gravados, e
+ * pela área circular. Após o término abrupto, os registros são
+ * recuperados por meio de {@link #recupera(String, OutputStream)}
+ * ou pela linha de comandos:
+ * <pre>
+ * java com.github.kyriosdata.healthdb.log.GravadorDeVoo voo.bin [saida.log]
+ * </pre>
+ *
+ * <p>Cada registro é precedido pela marca {@link #MARCA_REGISTRO},
+ * pelo comprimento e pelo CRC-32 do registro. Na recuperação, apenas
+ * registros cujo CRC-32 confere são produzidos, ou seja, o registro
+ * mais antigo, parcialmente sobrescrito, e aqueles cuja gravação não
+ * foi concluída (inclusive sobre o conteúdo de registros anteriores)
+ * são descartados.
+ *
+ * <p>Várias <i>threads</i> podem gravar simultaneamente: a área de
+ * cada registro é reservada por meio de um contador atômico. O total
+ * registrado no cabeçalho é atualizado após a gravação, e nunca
+ * regride.
+ */
+public class GravadorDeVoo {
+
+    /**
+     * Identificação do arquivo ("HDBV").
+     */
+    static final int MAGICO = 0x48444256;
+
+    /**
+     * Tamanho do cabeçalho: identificação (4), capacidade (4) e
+     * total de bytes gravados (8).
+     */
+    static final int CABECALHO = 16;
+
+    /**
+     * Início de cada registro ("HDBR").
+     */
+    static final int MARCA_REGISTRO = 0x48444252;
+
+    /**
+     * Bytes que precedem cada registro: marca (4), comprimento (4)
+     * e CRC-32 (4).
+     */
+    static final int PREFIXO = 12;
+
+    private final MappedByteBuffer mapa;
+
+    private final int capacidade;
+
+    /**
+     * Total de bytes reservados.
+     */
+    private final AtomicLong reservados = new AtomicLong(0);
+
+    /**
+     * Maior total de bytes cuja gravação foi concluída.
+     */
+    private final AtomicLong gravados = new AtomicLong(0);
+
+    /**
+     * Cópia do mapeamento de cada <i>thread</i>, cuja posição pode
+     * ser alterada sem interferência.
+     */
+    private final ThreadLocal<ByteBuffer> copias;
+
+    private final ThreadLocal<CRC32> crcs = ThreadLocal.withInitial(CRC32::new);
+
+    /**
+     * Cria (ou substitui) o arquivo do gravador. Um arquivo existente,
+     * possivelmente de execução anterior não recuperada, é preservado
+     * com a extensão ".anterior".
+     *
+     * @param arquivo Nome do arquivo.
+     * @param capacidade Capacidade, em bytes, da área circular.
+     *
+     * @throws IOException Se não é possível criar ou mapear o arquivo.
+     */
+    public GravadorDeVoo(String arquivo, int capacidade) throws IOException {
+        if (capacidade <= PREFIXO) {
+            throw new IllegalArgumentException("capacidade insuficiente");
+        }
+
+        Path path = Paths.get(arquivo);
+        if (Files.exists(path) && Files.size(path) > 0) {
+            Files.move(path, Paths.get(arquivo + ".anterior"), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        this.capacidade = capacidade;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapa = channel.map(FileChannel.MapMode.READ_WRITE, 0, CABECALHO + (long) capacidade);
+        }
+
+        mapa.putInt(0, MAGICO);
+        mapa.putInt(4, capacidade);
+        mapa.putLong(8, 0);
+
+        copias = ThreadLocal.withInitial(mapa::duplicate);
+    }
+
+    /**
+     * Grava o registro na área circular. Apenas os últimos bytes
+     * são gravados, caso o registro (e o prefixo) exceda a
+     * capacidade.
+     *
+     * @param bytes Vetor que contém o registro.
+     * @param inicio Posição inicial do registro no vetor.
+     * @param total Quantidade de bytes do registro.
+     */
+    public void grava(byte[] bytes, int inicio, int total) {
+        if (total > capacidade - PREFIXO) {
+            inicio += total - (capacidade - PREFIXO);
+            total = capacidade - PREFIXO;
+        }
+
+        CRC32 crc = crcs.get();
+        crc.reset();
+        crc.update(bytes, inicio, total);
+
+        long posicao = reservados.getAndAdd(PREFIXO + total);
+        ByteBuffer copia = copias.get();
+
+        posicao = inteiro(copia, posicao, MARCA_REGISTRO);
+        posicao = inteiro(copia, posicao, total);
+        posicao = inteiro(copia, posicao, (int) crc.getValue());
+        posicao = copia(copia, posicao, bytes, inicio, total);
+
+        publica(posicao);
+    }
+
+    /**
+     * Grava o inteiro (<i>big-endian</i>) na posição indicada da
+     * área circular.
+     *
+     * @return Posição seguinte ao inteiro.
+     */
+    private long inteiro(ByteBuffer copia, long posicao, int valor) {
+        for (int i = 24; i >= 0; i -= 8) {
+            copia.put(CABECALHO + (int) (posicao++ % capacidade), (byte) (valor >>> i));
+        }
+
+        return posicao;
+    }
+
+    /**
+     * Copia os bytes para a posição indicada da área circular.
+     *
+     * @return Posição seguinte ao último byte copiado.
+     */
+    private long copia(ByteBuffer copia, long posicao, byte[] bytes, int inicio, int total) {
+        int deslocamento = (int) (posicao % capacidade);
+        int primeira = Math.min(total, capacidade - deslocamento);
+
+        copia.position(CABECALHO + deslocamento);
+        copia.put(bytes, inicio, primeira);
+
+        if (primeira < total) {
+            copia.position(CABECALHO);
+            copia.put(bytes, inicio + primeira, total - primeira);
+        }
+
+        return posicao + total;
+    }
+
+    /**
+     * Atualiza, no cabeçalho, o total de bytes gravados. A escrita
+     * no cabeçalho é repetida enquanto o valor escrito não é o
+     * maior, ou seja, a escrita de um valor menor por uma
+     * <i>thread</i> mais lenta é corrigida por ela própria.
+     */
+    private void publica(long fim) {
+        long atual;
+        while ((atual = gravados.get()) < fim) {
+            if (gravados.compareAndSet(atual, fim)) {
+                break;
+            }
+        }
+
+        long escrito;
+        do {
+            escrito = gravados.get();
+            mapa.putLong(8, escrito);
+        } while (gravados.get() != escrito);
+    }
+
+    /**
+     * Recupera os registros mantidos pelo gravador, do mais antigo
+     * para o mais recente. Registros cujo CRC-32 não confere (o mais
+     * antigo, parcialmente sobrescrito, e aqueles cuja gravação não
+     * foi concluída) são descartados.
+     *
+     * @param arquivo Nome do arquivo do gravador.
+     * @param out Saída na qual os registros são depositados.
+     *
+     * @return Quantidade de bytes recuperados.
+     *
+     * @throws IOException Se o arquivo não pode ser lido ou não foi
+     * produzido pelo gravador.
+     */
+    public static long recupera(String arquivo, OutputStream out) throws IOException {
+        ByteBuffer conteudo = ByteBuffer.wrap(Files.readAllBytes(Paths.get(arquivo)));
+        if (conteudo.remaining() < CABECALHO || conteudo.getInt(0) != MAGICO) {
+            throw new IOException("arquivo não produzido pelo gravador de voo: " + arquivo);
+        }
+
+        int capacidade = conteudo.getInt(4);
+        long fim = conteudo.getLong(8);
+        if (capacidade <= 0 || capacidade > conteudo.remaining() - CABECALHO || fim < 0) {
+            throw new IOException("cabeçalho inválido: " + arquivo);
+        }
+
+        int total = (int) Math.min(fim, capacidade);
+        byte[] bytes = new byte[total];
+        int inicio = (int) ((fim - total) % capacidade);
+        int primeira = Math.min(total, capacidade - inicio);
+        System.arraycopy(conteudo.array(), CABECALHO + inicio, bytes, 0, primeira);
+        System.arraycopy(conteudo.array(), CABECALHO, bytes, primeira, total - primeira);
+
+        // Registro válido: marca, comprimento e CRC-32 conferem. Caso
+        // contrário, a busca prossegue no byte seguinte.
+        ByteBuffer area = ByteBuffer.wrap(bytes);
+        CRC32 crc = new CRC32();
+        long recuperados = 0;
+        int i = 0;
+        while (i + PREFIXO <= total) {
+            int comprimento = area.getInt(i + 4);
+            if (area.getInt(i) == MARCA_REGISTRO
+                    && comprimento >= 0 && comprimento <= total - i - PREFIXO) {
+                crc.reset();
+                crc.update(bytes, i + PREFIXO, comprimento);
+                if ((int) crc.getValue() == area.getInt(i + 8)) {
+                    out.write(bytes, i + PREFIXO, comprimento);
+                    recuperados += comprimento;
+                    i += PREFIXO + comprimento;
+                    continue;
+                }
+            }
+
+            i++;
+        }
+
+        out.flush();
+        return recuperados;
+    }
+
+    /**
+     * Recupera os registros do arquivo fornecido (primeiro argumento),
+     * depositados no segundo argumento (arquivo) ou na saída padrão.
+     *
+     * @param args Arquivo do gravador e, opcionalmente, de saída.
+     *
+     * @throws IOException Em caso de falha de leitura/escrita.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("uso: GravadorDeVoo arquivo [saida]");
+            return;
+        }
+
+        if (args.length > 1) {
+            try (OutputStream out = Files.newOutputStream(Paths.get(args[1]))) {
+                recupera(args[0], out);
+            }
+        } else {
+            recupera(args[0], System.out);
+        }
+    }
+}
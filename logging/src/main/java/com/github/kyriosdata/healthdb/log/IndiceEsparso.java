@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Índice esparso de um arquivo de <i>log</i> (formato textual),
+ * depositado em arquivo auxiliar cujo nome é o do arquivo de
+ * <i>log</i> acrescido de {@link #EXTENSAO}. Cada entrada, de 16
+ * bytes, é formada pelo instante (milissegundos) e pela posição no
+ * arquivo de <i>log</i> do registro correspondente. No máximo uma
+ * entrada é produzida por intervalo.
+ *
+ * <p>Empregado apenas pelo consumidor.
+ *
+ * @see LeitorLog
+ */
+final class IndiceEsparso {
+
+    /**
+     * Extensão do arquivo que contém o índice.
+     */
+    static final String EXTENSAO = ".idx";
+
+    /**
+     * Tamanho de uma entrada: instante e posição (8 bytes cada).
+     */
+    static final int ENTRADA = 16;
+
+    private final FileChannel channel;
+
+    private final long intervalo;
+
+    private final ByteBuffer entrada = ByteBuffer.allocate(ENTRADA);
+
+    private long ultimo = Long.MIN_VALUE;
+
+    /**
+     * Abre (ou cria) o índice do arquivo de <i>log</i>.
+     *
+     * @param arquivo Nome do arquivo de <i>log</i>.
+     * @param intervalo Intervalo mínimo, em milissegundos, entre
+     *                  entradas do índice.
+     *
+     * @throws IOException Se não é possível abrir o índice.
+     */
+    IndiceEsparso(String arquivo, long intervalo) throws IOException {
+        Path path = Paths.get(arquivo + EXTENSAO);
+        channel = FileChannel.open(path, StandardOpenOption.APPEND, StandardOpenOption.CREATE);
+        this.intervalo = intervalo;
+    }
+
+    /**
+     * Registra entrada, caso o intervalo desde a última entrada
+     * tenha transcorrido.
+     *
+     * @param instante Instante (milissegundos) do registro.
+     * @param posicao Posição do registro no arquivo de <i>log</i>.
+     */
+    void registra(long instante, long posicao) {
+        if (ultimo != Long.MIN_VALUE && instante - ultimo < intervalo) {
+            return;
+        }
+
+        ultimo = instante;
+
+        entrada.clear();
+        entrada.putLong(instante).putLong(posicao).flip();
+
+        try {
+            while (entrada.hasRemaining()) {
+                channel.write(entrada);
+            }
+        } catch (IOException ex) {
+            System.err.println(ex);
+        }
+    }
+
+    /**
+     * Fecha o arquivo do índice.
+     */
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException exp) {
+            System.err.println(exp);
+        }
+    }
+}
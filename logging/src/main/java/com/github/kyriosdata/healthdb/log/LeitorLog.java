@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Leitor de arquivo de <i>log</i> no formato {@link Formato#TEXTO}
+ * que localiza registros pelo instante, sem percorrer o arquivo.
+ *
+ * <p>O arquivo é mapeado em memória (em janelas de até 1GB) e a
+ * localização é realizada por busca binária sobre o prefixo de
+ * tamanho fixo de cada registro, o instante produzido por
+ * {@link DateFormat}. Linhas que não se iniciam por um instante,
+ * por exemplo, de uma pilha de execução, pertencem ao registro
+ * anterior. Se existe o índice esparso correspondente (veja
+ * {@link Logging#indice(long)}), então a busca binária é restrita
+ * ao intervalo entre duas entradas do índice.
+ *
+ * <p>A busca pressupõe registros em ordem cronológica. Registros
+ * produzidos simultaneamente por várias <i>threads</i> podem estar
+ * ligeiramente fora de ordem (diferença usualmente inferior a um
+ * milissegundo), o que pode omitir um desses registros no limite
+ * do intervalo pesquisado.
+ */
+public class LeitorLog implements Closeable {
+
+    /**
+     * Tamanho (potência de 2) de cada janela mapeada em memória.
+     */
+    private static final int BITS_JANELA = 30;
+
+    private static final long JANELA = 1L << BITS_JANELA;
+
+    /**
+     * Tamanho do menor prefixo que identifica um instante:
+     * "yyyy-MM-ddTHH:mm:ss.SSS".
+     */
+    private static final int PREFIXO = 23;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer[] janelas;
+
+    private final long tamanho;
+
+    /**
+     * Entradas do índice esparso (instantes e posições) ou
+     * {@code null}, se não existe índice.
+     */
+    private long[] instantes;
+    private long[] posicoes;
+
+    /**
+     * Abre o arquivo para leitura.
+     *
+     * @param arquivo Nome do arquivo de <i>log</i>.
+     *
+     * @throws IOException Se não é possível abrir ou mapear o arquivo.
+     */
+    public LeitorLog(String arquivo) throws IOException {
+        Path path = Paths.get(arquivo);
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        tamanho = channel.size();
+
+        int total = (int) ((tamanho + JANELA - 1) >>> BITS_JANELA);
+        janelas = new MappedByteBuffer[total];
+        for (int i = 0; i < total; i++) {
+            long inicio = i * JANELA;
+            janelas[i] = channel.map(FileChannel.MapMode.READ_ONLY, inicio, Math.min(JANELA, tamanho - inicio));
+        }
+
+        carregaIndice(Paths.get(arquivo + IndiceEsparso.EXTENSAO));
+    }
+
+    private void carregaIndice(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        byte[] conteudo = Files.readAllBytes(path);
+        int entradas = conteudo.length / IndiceEsparso.ENTRADA;
+        ByteBuffer buffer = ByteBuffer.wrap(conteudo);
+
+        instantes = new long[entradas];
+        posicoes = new long[entradas];
+        for (int i = 0; i < entradas; i++) {
+            instantes[i] = buffer.getLong();
+            posicoes[i] = buffer.getLong();
+        }
+    }
+
+    /**
+     * Tamanho do arquivo, em bytes, no momento da abertura.
+     *
+     * @return Total de bytes do arquivo.
+     */
+    public long tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Localiza o primeiro registro cujo instante é igual ou
+     * posterior ao instante fornecido.
+     *
+     * @param instante Instante (milissegundos desde "epoch").
+     *
+     * @return Posição no arquivo do registro ou o tamanho do arquivo,
+     * se não há tal registro.
+     */
+    public long posicao(long instante) {
+        long lo = 0;
+        long hi = tamanho;
+
+        if (instantes != null) {
+            int i = primeiraEntrada(instante);
+            if (i > 0) {
+                lo = Math.min(posicoes[i - 1], tamanho);
+            }
+
+            if (i < instantes.length) {
+                hi = Math.max(lo, Math.min(posicoes[i], tamanho));
+            }
+        }
+
+        while (lo < hi) {
+            long meio = lo + (hi - lo) / 2;
+            long registro = proximoRegistro(meio, hi);
+
+            if (registro == -1) {
+                hi = meio;
+            } else if (instante(registro) < instante) {
+                lo = fimDaLinha(registro);
+            } else {
+                hi = registro;
+            }
+        }
+
+        long registro = proximoRegistro(lo, tamanho);
+        return registro == -1 ? tamanho : registro;
+    }
+
+    /**
+     * Fornece as linhas dos registros cujos instantes estão no
+     * intervalo [desde, ate), incluídas as linhas de continuação
+     * (pilha de execução, por exemplo).
+     *
+     * @param desde Instante inicial (inclusive).
+     * @param ate Instante final (exclusive).
+     * @param consumidor Recebe cada linha, sem o caractere de
+     *                   nova linha.
+     *
+     * @return Quantidade de registros fornecidos.
+     */
+    public long linhas(long desde, long ate, Consumer<String> consumidor) {
+        long registros = 0;
+        long posicao = posicao(desde);
+
+        while (posicao < tamanho) {
+            long fim = fimDaLinha(posicao);
+
+            if (ehRegistro(posicao)) {
+                if (instante(posicao) >= ate) {
+                    break;
+                }
+
+                registros++;
+            }
+
+            consumidor.accept(texto(posicao, fim));
+            posicao = fim;
+        }
+
+        return registros;
+    }
+
+    /**
+     * Índice da primeira entrada do índice esparso cujo instante é
+     * igual ou posterior ao instante fornecido.
+     */
+    private int primeiraEntrada(long instante) {
+        int lo = 0;
+        int hi = instantes.length;
+        while (lo < hi) {
+            int meio = (lo + hi) >>> 1;
+            if (instantes[meio] < instante) {
+                lo = meio + 1;
+            } else {
+                hi = meio;
+            }
+        }
+
+        return lo;
+    }
+
+    /**
+     * Posição do primeiro registro que se inicia na posição
+     * fornecida ou após ela, e antes do limite.
+     *
+     * @return Posição do registro ou -1, se não há tal registro.
+     */
+    private long proximoRegistro(long posicao, long limite) {
+        if (posicao > 0 && le(posicao - 1) != '\n') {
+            posicao = fimDaLinha(posicao);
+        }
+
+        while (posicao < limite) {
+            if (ehRegistro(posicao)) {
+                return posicao;
+            }
+
+            posicao = fimDaLinha(posicao);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Posição imediatamente após o final da linha que contém a
+     * posição fornecida (ou o tamanho do arquivo).
+     */
+    private long fimDaLinha(long posicao) {
+        while (posicao < tamanho) {
+            if (le(posicao++) == '\n') {
+                return posicao;
+            }
+        }
+
+        return tamanho;
+    }
+
+    /**
+     * Verifica se a linha que se inicia na posição é um registro, ou
+     * seja, inicia-se por "yyyy-MM-ddTHH:mm:ss.SSS".
+     */
+    private boolean ehRegistro(long p) {
+        if (p + PREFIXO > tamanho) {
+            return false;
+        }
+
+        for (int i = 0; i < PREFIXO; i++) {
+            byte b = le(p + i);
+            switch (i) {
+                case 4:
+                case 7:
+                    if (b != '-') return false;
+                    break;
+                case 10:
+                    if (b != 'T') return false;
+                    break;
+                case 13:
+                case 16:
+                    if (b != ':') return false;
+                    break;
+                case 19:
+                    if (b != '.') return false;
+                    break;
+                default:
+                    if (b < '0' || b > '9') return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Instante (milissegundos) do registro que se inicia na posição.
+     * Eventuais dígitos adicionais (microssegundos) são ignorados.
+     */
+    private long instante(long p) {
+        int ano = numero(p, 4);
+        int mes = numero(p + 5, 2);
+        int dia = numero(p + 8, 2);
+        int hora = numero(p + 11, 2);
+        int minuto = numero(p + 14, 2);
+        int segundo = numero(p + 17, 2);
+        int milis = numero(p + 20, 3);
+
+        long dias = diasDesdeEpoch(ano, mes, dia);
+        return ((dias * 24 + hora) * 60 + minuto) * 60_000L + segundo * 1000L + milis;
+    }
+
+    private int numero(long p, int digitos) {
+        int valor = 0;
+        for (int i = 0; i < digitos; i++) {
+            valor = valor * 10 + (le(p + i) - '0');
+        }
+
+        return valor;
+    }
+
+    /**
+     * Total de dias desde "epoch", conforme o algoritmo
+     * "days_from_civil" (Howard Hinnant), inverso daquele empregado
+     * por {@link DateFormat}.
+     */
+    private static long diasDesdeEpoch(int ano, int mes, int dia) {
+        long y = mes <= 2 ? ano - 1 : ano;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yoe = y - era * 400;
+        long doy = (153 * (mes > 2 ? mes - 3 : mes + 9) + 2) / 5 + dia - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146_097 + doe - 719_468;
+    }
+
+    private String texto(long inicio, long fim) {
+        int total = (int) (fim - inicio);
+        if (total > 0 && le(fim - 1) == '\n') {
+            total--;
+        }
+
+        byte[] bytes = new byte[total];
+        for (int i = 0; i < total; i++) {
+            bytes[i] = le(inicio + i);
+        }
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte le(long posicao) {
+        return janelas[(int) (posicao >>> BITS_JANELA)].get((int) (posicao & (JANELA - 1)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limita a taxa de registro de um modelo de mensagem (veja
+ * {@link Chave}). Emprega o algoritmo
+ * GCRA (<i>Generic Cell Rate Algorithm</i>), equivalente a um
+ * <i>token bucket</i>, cujo estado é um único instante teórico de
+ * chegada ({@link #tat}), atualizado por CAS (sem bloqueio).
+ *
+ * <p>Ocorrências suprimidas são contabilizadas e resumidas em um
+ * único registro por meio de {@link #resumo(long)}.
+ */
+final class Limitador {
+
+    private final int nivel;
+
+    private final byte[] origem;
+
+    private final String msg;
+
+    /**
+     * Instante teórico de chegada (nanossegundos).
+     */
+    private final AtomicLong tat;
+
+    /**
+     * Ocorrências suprimidas ainda não resumidas.
+     */
+    private final AtomicLong suprimidos = new AtomicLong(0);
+
+    /**
+     * Instante (nanossegundos) da primeira ocorrência suprimida
+     * ainda não resumida.
+     */
+    private volatile long inicioSupressao;
+
+    Limitador(int nivel, byte[] origem, String msg, long agora) {
+        this.nivel = nivel;
+        this.origem = origem;
+        this.msg = msg;
+        this.tat = new AtomicLong(agora);
+    }
+
+    int nivel() {
+        return nivel;
+    }
+
+    byte[] origem() {
+        return origem;
+    }
+
+    /**
+     * Verifica se a ocorrência corrente pode ser registrada.
+     *
+     * @param agora Instante corrente (nanossegundos).
+     * @param intervalo Intervalo (nanossegundos) entre ocorrências,
+     *                  conforme a taxa permitida.
+     * @param tolerancia Antecipação máxima (nanossegundos) admitida,
+     *                   ou seja, a rajada permitida.
+     *
+     * @return {@code true} se a ocorrência pode ser registrada ou
+     * {@code false}, se deve ser suprimida (e foi contabilizada).
+     */
+    boolean permite(long agora, long intervalo, long tolerancia) {
+        while (true) {
+            long anterior = tat.get();
+            long inicio = Math.max(anterior, agora);
+
+            if (inicio - agora > tolerancia) {
+                if (suprimidos.getAndIncrement() == 0) {
+                    inicioSupressao = agora;
+                }
+
+                return false;
+            }
+
+            if (tat.compareAndSet(anterior, inicio + intervalo)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Indica se há ocorrências suprimidas ainda não resumidas.
+     *
+     * @return {@code true} se e somente se há ocorrências suprimidas.
+     */
+    boolean suprimiu() {
+        return suprimidos.get() > 0;
+    }
+
+    /**
+     * Indica que não há ocorrências recentes, ou seja, o limitador
+     * pode ser removido sem perda de informação.
+     *
+     * @param agora Instante corrente (nanossegundos).
+     *
+     * @return {@code true} se não há ocorrências suprimidas e a
+     * última ocorrência registrada não afeta a taxa.
+     */
+    boolean ocioso(long agora) {
+        return !suprimiu() && tat.get() - agora < 0;
+    }
+
+    /**
+     * Retira as ocorrências suprimidas ainda não resumidas, ou seja,
+     * reinicia a contagem.
+     *
+     * @return Total de ocorrências suprimidas.
+     */
+    long retira() {
+        return suprimidos.getAndSet(0);
+    }
+
+    /**
+     * Produz o resumo das ocorrências suprimidas, por exemplo,
+     * "repeated 12,345 times in 1.0s: mensagem".
+     *
+     * @param total Total de ocorrências suprimidas (veja
+     *              {@link #retira()}).
+     * @param agora Instante corrente (nanossegundos).
+     *
+     * @return Resumo das ocorrências suprimidas.
+     */
+    String resumo(long total, long agora) {
+        return String.format(Locale.ROOT, "repeated %,d times in %.1fs: %s",
+                total, (agora - inicioSupressao) / 1e9, msg);
+    }
+
+    /**
+     * Restaura ocorrências cujo resumo não pôde ser registrado.
+     *
+     * @param total Ocorrências a serem restauradas.
+     */
+    void restaura(long total) {
+        suprimidos.addAndGet(total);
+    }
+
+    /**
+     * Identifica o limitador de uma mensagem: nível, registrador
+     * (origem) e modelo da mensagem, ou seja, o conteúdo no qual
+     * cada sequência de dígitos é substituída por "#". Dessa forma,
+     * "pedido 12 recusado" e "pedido 345 recusado" compartilham o
+     * mesmo limite. A comparação não produz o modelo, ou seja, não
+     * há cópia da mensagem.
+     */
+    static final class Chave {
+
+        private final int nivel;
+
+        private final byte[] origem;
+
+        private final String msg;
+
+        private final int hash;
+
+        Chave(int nivel, byte[] origem, String msg) {
+            this.nivel = nivel;
+            this.origem = origem;
+            this.msg = msg;
+
+            int h = 31 * nivel + Arrays.hashCode(origem);
+            int n = msg.length();
+            for (int i = 0; i < n; i++) {
+                char c = msg.charAt(i);
+                if (!digito(c)) {
+                    h = 31 * h + c;
+                } else if (i == 0 || !digito(msg.charAt(i - 1))) {
+                    h = 31 * h + '#';
+                }
+            }
+
+            hash = h;
+        }
+
+        /**
+         * Modelo da mensagem (sequências de dígitos substituídas
+         * por "#").
+         *
+         * @return Modelo empregado no resumo das ocorrências
+         * suprimidas.
+         */
+        String modelo() {
+            StringBuilder sb = new StringBuilder(msg.length());
+            int n = msg.length();
+            for (int i = 0; i < n; i++) {
+                char c = msg.charAt(i);
+                if (!digito(c)) {
+                    sb.append(c);
+                } else if (i == 0 || !digito(msg.charAt(i - 1))) {
+                    sb.append('#');
+                }
+            }
+
+            return sb.toString();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Chave)) {
+                return false;
+            }
+
+            Chave outra = (Chave) o;
+            return hash == outra.hash && nivel == outra.nivel
+                    && Arrays.equals(origem, outra.origem)
+                    && mesmoModelo(msg, outra.msg);
+        }
+
+        private static boolean mesmoModelo(String a, String b) {
+            int i = 0;
+            int j = 0;
+            int na = a.length();
+            int nb = b.length();
+            while (i < na && j < nb) {
+                char ca = a.charAt(i);
+                char cb = b.charAt(j);
+
+                if (digito(ca) && digito(cb)) {
+                    while (i < na && digito(a.charAt(i))) {
+                        i++;
+                    }
+
+                    while (j < nb && digito(b.charAt(j))) {
+                        j++;
+                    }
+
+                    continue;
+                }
+
+                if (ca != cb) {
+                    return false;
+                }
+
+                i++;
+                j++;
+            }
+
+            return i == na && j == nb;
+        }
+
+        private static boolean digito(char c) {
+            return c >= '0' && c <= '9';
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Registrador associado a um subsistema (por exemplo, "file",
+ * "buffer" ou "object"), com nível mínimo próprio, alterável em
+ * tempo de execução. Os eventos são registrados pelo serviço
+ * {@link Logging} que o criou, precedidos pelo nome entre
+ * colchetes.
+ *
+ * <p>Um evento de nível inferior ao mínimo é descartado antes
+ * de qualquer outra operação. O custo, nesse caso, é a leitura
+ * de um campo e um desvio condicional (previsível), ou seja, o
+ * código pode manter chamadas a {@link #info(String)} que, em
+ * produção, estarão desabilitadas. Observe, contudo, que os
+ * argumentos são avaliados antes da chamada.
+ *
+ * @see Logging#logger(String)
+ */
+public final class LogNomeado {
+
+    private final Logging logging;
+
+    private final String nome;
+
+    /**
+     * Bytes de "[nome] " (UTF-8), produzidos uma única vez.
+     */
+    private final byte[] origem;
+
+    /**
+     * Nível mínimo dos eventos registrados. A leitura de um campo
+     * volatile não impõe barreira para leitura nas arquiteturas
+     * usuais (x86, por exemplo), ou seja, tem o custo de uma
+     * leitura comum.
+     */
+    private volatile int nivel;
+
+    LogNomeado(Logging logging, String nome, int nivel) {
+        this.logging = logging;
+        this.nome = nome;
+        this.origem = ("[" + nome + "] ").getBytes(StandardCharsets.UTF_8);
+        this.nivel = nivel;
+    }
+
+    /**
+     * Nome do registrador.
+     *
+     * @return O nome do subsistema associado ao registrador.
+     */
+    public String nome() {
+        return nome;
+    }
+
+    /**
+     * Nível mínimo dos eventos registrados.
+     *
+     * @return {@link Logging#INFO}, {@link Logging#WARN} ou
+     * {@link Logging#FAIL}.
+     */
+    public int nivel() {
+        return nivel;
+    }
+
+    /**
+     * Altera o nível mínimo dos eventos registrados.
+     *
+     * @param nivel {@link Logging#INFO}, {@link Logging#WARN} ou
+     *              {@link Logging#FAIL}.
+     */
+    public void nivel(int nivel) {
+        this.nivel = nivel;
+    }
+
+    /**
+     * Verifica se eventos do nível indicado são registrados.
+     *
+     * @param nivel Nível a ser verificado.
+     *
+     * @return {@code true} se e somente se eventos do nível
+     * fornecido são registrados.
+     */
+    public boolean habilitado(int nivel) {
+        return nivel >= this.nivel;
+    }
+
+    /**
+     * Registra mensagem de log (informativa).
+     *
+     * @param msg Mensagem a ser registrada.
+     */
+    public void info(String msg) {
+        if (Logging.INFO >= nivel) {
+            logging.log(Logging.INFO, origem, msg);
+        }
+    }
+
+    /**
+     * Registra mensagem de log (aviso).
+     *
+     * @param msg Mensagem a ser registrada.
+     */
+    public void warn(String msg) {
+        if (Logging.WARN >= nivel) {
+            logging.log(Logging.WARN, origem, msg);
+        }
+    }
+
+    /**
+     * Registra mensagem pertinente à falha.
+     *
+     * @param msg Mensagem a ser registrada.
+     */
+    public void fail(String msg) {
+        if (Logging.FAIL >= nivel) {
+            logging.log(Logging.FAIL, origem, msg);
+        }
+    }
+
+    /**
+     * Registra falha e a exceção correspondente, conforme
+     * {@link Logging#fail(String, Throwable)}.
+     *
+     * @param msg Mensagem a ser registrada.
+     * @param erro Exceção associada à falha.
+     */
+    public void fail(String msg, Throwable erro) {
+        if (Logging.FAIL >= nivel) {
+            logging.log(Logging.FAIL, origem, msg, erro);
+        }
+    }
+
+    /**
+     * Registra mensagem de log (informativa) produzida pelo
+     * consumidor, apenas se o nível está habilitado.
+     *
+     * @param msg Fornecedor da mensagem a ser registrada.
+     *
+     * @see Logging#infoSobDemanda(Supplier)
+     */
+    public void infoSobDemanda(Supplier<String> msg) {
+        if (Logging.INFO >= nivel) {
+            logging.log(Logging.INFO, origem, sb -> sb.append(msg.get()));
+        }
+    }
+
+    /**
+     * Registra mensagem de log (aviso) produzida pelo consumidor,
+     * apenas se o nível está habilitado.
+     *
+     * @param msg Fornecedor da mensagem a ser registrada.
+     */
+    public void warnSobDemanda(Supplier<String> msg) {
+        if (Logging.WARN >= nivel) {
+            logging.log(Logging.WARN, origem, sb -> sb.append(msg.get()));
+        }
+    }
+
+    /**
+     * Registra mensagem pertinente à falha produzida pelo
+     * consumidor, apenas se o nível está habilitado.
+     *
+     * @param msg Fornecedor da mensagem a ser registrada.
+     */
+    public void failSobDemanda(Supplier<String> msg) {
+        if (Logging.FAIL >= nivel) {
+            logging.log(Logging.FAIL, origem, sb -> sb.append(msg.get()));
+        }
+    }
+
+    /**
+     * Registra mensagem produzida pelo escritor, executado pelo
+     * consumidor apenas se o nível está habilitado.
+     *
+     * @param nivel Nível do evento.
+     * @param escritor Produz a mensagem no texto fornecido.
+     *
+     * @throws IllegalArgumentException Se o nível não é
+     * {@link Logging#INFO}, {@link Logging#WARN} ou
+     * {@link Logging#FAIL}.
+     *
+     * @see Logging#escreve(int, Consumer)
+     */
+    public void escreve(int nivel, Consumer<StringBuilder> escritor) {
+        if (Logging.valida(nivel) >= this.nivel) {
+            logging.log(nivel, origem, escritor);
+        }
+    }
+
+    /**
+     * Registra mensagem produzida pelo escritor e a exceção
+     * associada, se houver, apenas se o nível está habilitado.
+     *
+     * @param nivel Nível do evento.
+     * @param escritor Produz a mensagem no texto fornecido.
+     * @param erro Exceção associada ao evento ou {@code null}.
+     */
+    void escreve(int nivel, Consumer<StringBuilder> escritor, Throwable erro) {
+        if (nivel >= this.nivel) {
+            logging.log(nivel, origem, escritor, erro);
+        }
+    }
+}
@@ -17,15 +17,29 @@
 
 package com.github.kyriosdata.healthdb.log;
 
+import com.github.kyriosdata.healthdb.api.Clock;
 import com.github.kyriosdata.healthdb.api.Log;
 import com.github.kyriosdata.healthdb.concurrency.RingBuffer;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Implementação de serviço de logging.
@@ -37,6 +51,11 @@ public class Logging implements Log, Runnable {
      */
     private FileManager fm;
 
+    /**
+     * Destinos adicionais ao arquivo. Cada lote é entregue a todos.
+     */
+    private Destino[] destinos = new Destino[0];
+
     /**
      * Tamanho máximo do buffer de log. Ou seja,
      * quantidade máxima de informação, em número de bytes,
@@ -51,41 +70,208 @@ public class Logging implements Log, Runnable {
      */
     private final int EVENTS_SIZE = 1024;
 
-    private ScheduledThreadPoolExecutor agenda = new ScheduledThreadPoolExecutor(1);
+    /**
+     * Ocupação da estrutura circular a partir da qual o produtor
+     * acorda o consumidor.
+     */
+    private final int MARCA = EVENTS_SIZE / 4;
+
+    /**
+     * Menor intervalo, em nanossegundos, entre execuções do
+     * consumidor (quando há eventos).
+     */
+    private final long ESPERA_MINIMA = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Maior intervalo, em nanossegundos, entre execuções do
+     * consumidor (na ausência de eventos).
+     */
+    private long latenciaMaxima = TimeUnit.MILLISECONDS.toNanos(100);
 
     /**
-     * Representa tarefa a ser executada temporalmente. Usada para
-     * concluir a tarefa, quando o serviço de <i>logging</i> não
+     * <i>Thread</i> dedicada ao consumo dos eventos. Usada para
+     * concluir o consumo, quando o serviço de <i>logging</i> não
      * for mais necessário.
      */
-    private ScheduledFuture task;
+    private Thread consumidor;
+
+    /**
+     * Indica se o consumidor deve prosseguir.
+     */
+    private volatile boolean ativo;
+
+    /**
+     * Indica se o consumidor aguarda (ou está prestes a aguardar)
+     * pelo término do intervalo até a próxima execução.
+     */
+    private volatile boolean dormindo;
 
     /**
      * Constante que indica nível INFO (informação).
      */
-    private final int INFO = 0;
+    public static final int INFO = 0;
 
     /**
      * Constante que indica nível WARN (aviso).
      * Situação não necessariamente indesejável.
      */
-    private final int WARN = 1;
+    public static final int WARN = 1;
 
     /**
      * Constante que indica nível FAIL (falha).
      * Necessariamente é uma situação indesejável.
      */
-    private final int FAIL = 2;
+    public static final int FAIL = 2;
+
+    /**
+     * Política de persistência adotada.
+     */
+    private Durabilidade durabilidade = Durabilidade.NENHUMA;
+
+    /**
+     * Intervalo, em milissegundos, entre persistências forçadas
+     * ({@link Durabilidade#PERIODICA}).
+     */
+    private long intervaloSincronizacao = 1000;
+
+    /**
+     * Instante da última persistência forçada periódica.
+     */
+    private volatile long ultimaSincronizacao;
+
+    /**
+     * Total de eventos consumidos (empregado apenas pelo consumidor).
+     * Como o consumo ocorre na ordem de alocação, esse valor é
+     * comparável com {@link RingBuffer#totalAlocados()}.
+     */
+    private long consumidos;
+
+    /**
+     * Total de eventos cujo registro foi depositado no arquivo
+     * (e persistido, conforme a política de durabilidade).
+     */
+    private volatile long persistidos;
+
+    /**
+     * Total de eventos consumidos antes do primeiro lote cuja
+     * escrita no arquivo ou persistência forçada falhou. A persistência dos eventos
+     * seguintes não pode ser assegurada (o conteúdo não persistido
+     * pode ter sido descartado pelo sistema operacional).
+     */
+    private volatile long falhaPersistencia = Long.MAX_VALUE;
+
+    /**
+     * Indica que a escrita de parte do lote em consumo no arquivo
+     * falhou (empregado apenas pelo consumidor).
+     */
+    private boolean falhaEscrita;
+
+    /**
+     * Quantidade de <i>threads</i> que aguardam pela persistência.
+     */
+    private final AtomicInteger aguardando = new AtomicInteger(0);
+
+    /**
+     * Monitor empregado pelas <i>threads</i> que aguardam pela
+     * persistência de eventos.
+     */
+    private final Object monitor = new Object();
+
+    /**
+     * Nível mínimo dos eventos registrados pelos métodos
+     * {@link #info(String)}, {@link #warn(String)} e
+     * {@link #fail(String)}. Também é o nível inicial de
+     * cada {@link LogNomeado} criado.
+     */
+    private volatile int nivel = INFO;
+
+    /**
+     * Registradores nomeados (por subsistema) já criados.
+     */
+    private final ConcurrentMap<String, LogNomeado> nomeados = new ConcurrentHashMap<>();
+
+    /**
+     * Política adotada quando não há entrada disponível para
+     * o registro de um evento.
+     */
+    private Transbordo transbordo = Transbordo.BLOQUEIA;
+
+    /**
+     * Capacidade da fila secundária ({@link Transbordo#FILA_SECUNDARIA}).
+     */
+    private final int SPILL_SIZE = 4 * EVENTS_SIZE;
+
+    /**
+     * Fila secundária, criada apenas para a política
+     * {@link Transbordo#FILA_SECUNDARIA}.
+     */
+    private BlockingQueue<LogEvent> fila;
+
+    /**
+     * Total de eventos depositados na fila secundária. Alterado
+     * apenas com a posse do monitor da fila, ou seja, na ordem em
+     * que os eventos são depositados.
+     */
+    private volatile long transbordados;
+
+    /**
+     * Total de eventos retirados da fila secundária (empregado
+     * apenas pelo consumidor).
+     */
+    private long drenados;
+
+    /**
+     * Total de eventos retirados da fila secundária até o término
+     * do último lote (empregado apenas pelo consumidor).
+     */
+    private long drenadosLote;
+
+    /**
+     * Total de eventos da fila secundária cujo registro foi
+     * depositado no arquivo (e persistido, conforme a política de
+     * durabilidade).
+     */
+    private volatile long persistidosFila;
+
+    /**
+     * Equivalente a {@link #falhaPersistencia} para os eventos da
+     * fila secundária.
+     */
+    private volatile long falhaPersistenciaFila = Long.MAX_VALUE;
+
+    /**
+     * Total de eventos descartados por nível (INFO, WARN e FAIL),
+     * ainda não informados.
+     */
+    private final AtomicLongArray descartados = new AtomicLongArray(3);
+
+    /**
+     * Total de eventos descartados desde o início do serviço.
+     */
+    private final AtomicLong totalDescartados = new AtomicLong(0);
 
     /**
-     * Bytes correspondentes à " INFO ", " WARN " e " FAIL ".
-     * Observe que é empregado um espaço antes e após o nome
-     * de cada nível.
+     * Métricas do serviço, disponibilizadas via JMX.
      */
-    private byte[][] level = {
-            {32, 73, 78, 70, 79, 32},
-            {32, 87, 65, 82, 78, 32},
-            {32, 70, 65, 73, 76, 32}};
+    private final Metricas metricas;
+
+    /**
+     * Nome sob o qual as métricas foram registradas (JMX) ou
+     * {@code null}, se não registradas.
+     */
+    private ObjectName nomeMetricas;
+
+    /**
+     * Instante do evento mais antigo do lote em consumo ou -1
+     * (empregado apenas pelo consumidor).
+     */
+    private long inicioLote = -1;
+
+    /**
+     * Total de eventos consumidos até o término do último lote
+     * (empregado apenas pelo consumidor).
+     */
+    private long consumidosLote;
 
     // Cache Level 1
     private LogEvent[] eventos = new LogEvent[EVENTS_SIZE];
@@ -93,15 +279,112 @@ public class Logging implements Log, Runnable {
     // Cache Level 2
     private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
 
-    // Vetor de bytes correspondente ao caractere de "nova linha"
-    private final byte[] NEWLINE = {10};
-
     // Estrutura circular que controle acesso entre produtor e consumidor.
     // Produtor é quem usa o log para registro de informações relevantes e
     // consumidor é responsável por persistir essa informação em meio
     // secundário.
     private RingBuffer shared;
 
+    /**
+     * Fonte do instante de cada evento.
+     */
+    private final Clock clock;
+
+    /**
+     * Indica se o instante dos eventos é registrado em
+     * microssegundos (em vez de milissegundos).
+     */
+    private boolean micros;
+
+    /**
+     * Intervalo, em milissegundos, entre entradas do índice esparso
+     * ou 0, se o índice não é produzido.
+     */
+    private long intervaloIndice;
+
+    /**
+     * Índice esparso do arquivo, criado apenas se definido.
+     */
+    private IndiceEsparso indice;
+
+    /**
+     * Posição, no arquivo, do início do buffer (empregado apenas
+     * pelo consumidor).
+     */
+    private long descarregados;
+
+    /**
+     * Quantidade máxima de modelos de mensagem cuja taxa é limitada.
+     */
+    private final int MAX_LIMITADORES = 4096;
+
+    /**
+     * Limitadores de taxa por nível, registrador e modelo de
+     * mensagem, criados apenas quando a limitação é definida.
+     */
+    private ConcurrentMap<Limitador.Chave, Limitador> limitadores;
+
+    /**
+     * Instante (nanossegundos) da última verificação de ocorrências
+     * suprimidas (empregado apenas pelo consumidor).
+     */
+    private long ultimaVerificacao = System.nanoTime();
+
+    /**
+     * Intervalo mínimo, em nanossegundos, entre ocorrências de uma
+     * mesma mensagem (fora de rajadas).
+     */
+    private long intervaloLimite;
+
+    /**
+     * Antecipação máxima, em nanossegundos, admitida para uma
+     * rajada de ocorrências de uma mesma mensagem.
+     */
+    private long toleranciaLimite;
+
+    /**
+     * Capacidade, em bytes, da área de cada <i>thread</i> produtora
+     * ou 0, se a codificação é realizada pelo consumidor.
+     */
+    private int capacidadeArena;
+
+    /**
+     * Área de cada <i>thread</i> produtora, criada apenas quando
+     * a codificação é realizada pelo produtor.
+     */
+    private ThreadLocal<Arena> arenas;
+
+    /**
+     * Arquivo do gravador de voo ou {@code null}, se não empregado.
+     */
+    private String arquivoGravador;
+
+    /**
+     * Capacidade, em bytes, do gravador de voo.
+     */
+    private int capacidadeGravador;
+
+    /**
+     * Gravador de voo, criado apenas se definido.
+     */
+    private GravadorDeVoo gravador;
+
+    /**
+     * Indica se a cadeia de resumos (auditoria) é produzida.
+     */
+    private boolean auditavel;
+
+    /**
+     * Cadeia de resumos, criada apenas no modo auditoria.
+     */
+    private CadeiaAuditoria cadeia;
+
+    /**
+     * Quantidade de bytes, no início do buffer, já contemplados
+     * pela cadeia de resumos (empregado apenas pelo consumidor).
+     */
+    private int resumidos;
+
     /**
      * Cria uma instância do serviço de <i>logging</i>.
      * <p>
@@ -110,6 +393,20 @@ public class Logging implements Log, Runnable {
      * pode ser empregado pela classe {@link java.util.ServiceLoader}.
      */
     public Logging() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * Cria uma instância do serviço de <i>logging</i> cujos eventos
+     * são carimbados com o instante fornecido pelo relógio. Um relógio
+     * de menor resolução, cuja leitura é menos custosa, pode ser
+     * empregado (por exemplo, {@code CachedClock}), assim como um
+     * relógio controlado em testes.
+     *
+     * @param clock Relógio empregado para carimbar os eventos.
+     */
+    public Logging(Clock clock) {
+        this.clock = clock;
 
         // Cria previamente todos os eventos que
         // serão reutilizados (evita ação do GC)
@@ -118,7 +415,9 @@ public class Logging implements Log, Runnable {
             eventos[i] = new LogEvent();
         }
 
-        fmt = new DateFormat();
+        codificador = new Codificador(Formato.TEXTO);
+
+        metricas = new Metricas(EVENTS_SIZE, this::ocupacao, totalDescartados::get);
 
         shared = new RingBuffer() {
 
@@ -144,157 +443,1348 @@ public class Logging implements Log, Runnable {
             @Override
             public void consome(int v, boolean ultimo) {
 
-                // Instante (24 bytes)
-                byte[] timestamp = fmt.toBytes(eventos[v].instante);
-                transferToBuffer(buffer, timestamp, timestamp.length - 1);
+                // Instante, nível, payload (e "nova linha"), conforme formato
+                LogEvent e = eventos[v];
+                if (indice != null) {
+                    indice.registra(micros ? e.instante / 1000 : e.instante, descarregados + buffer.position());
+                }
 
-                // Nível (" INFO ", " WARN " ou " FAIL ") (6 bytes)
-                transferToBuffer(buffer, level[eventos[v].level], level[eventos[v].level].length - 1);
+                if (e.arena != null) {
+                    // Codificado pelo produtor, basta a cópia
+                    transferToBuffer(buffer, e.arena.dados(), e.inicio, e.inicio + e.tamanho - 1);
+                    e.arena.libera(e.fim);
+                    e.arena = null;
+                } else {
+                    int total = codifica(e);
+                    grava(codificador.bytes(), 0, total);
+                    transferToBuffer(buffer, codificador.bytes(), total - 1);
+                }
 
-                // Payload (tamanho variável)
-                // TODO substituir getBytes por char[], wrap, CharsetEncoder.
-                byte[] bytes = eventos[v].payload.getBytes(StandardCharsets.UTF_8);
-                transferToBuffer(buffer, bytes, bytes.length - 1);
+                consumidos++;
+                metricas.evento();
 
-                // Newline
-                transferToBuffer(buffer, NEWLINE, NEWLINE.length - 1);
+                if (inicioLote == -1) {
+                    inicioLote = e.instante;
+                }
 
                 if (ultimo) {
-                    descarrega(buffer);
+                    encerraLote();
                 }
             }
         };
     }
 
     /**
-     * Inicia o serviço de <i>logging</i>.
-     *
-     * @param filename O arquivo a ser empregado para registro das
-     *                 informações.
-     */
-    @Override
-    public void start(String filename) throws IOException {
-        fm = new FileManager(filename);
-        agenda.setRemoveOnCancelPolicy(true);
-        task = agenda.scheduleWithFixedDelay(this, 1000, 1000, TimeUnit.MILLISECONDS);
-    }
-
-    /**
-     * Interrompe a execução do serviço de <i>logging</i>.
-     * Eventos pendentes são registrados em meio secundário.
+     * Encerra o lote em consumo: deposita os eventos da fila
+     * secundária, descarrega o buffer no arquivo e libera as
+     * <i>threads</i> que aguardam pela persistência (executado
+     * apenas pelo consumidor).
      */
-    @Override
-    public void close() {
-
-        // Insere indicação de fim de operação
-        warn("shutting down logging service...");
+    private void encerraLote() {
+        if (fila != null) {
+            consomeFilaSecundaria();
+        }
 
-        // Oportunidade para registrar eventos ainda não tratados
-        run();
+        if (cadeia != null) {
+            registraElo();
+        }
 
-        // Cancela a tarefa repetitiva
-        task.cancel(false);
+        descarrega(buffer);
 
-        // Aguarda pelo término
-        try {
-            task.wait();
-        } catch (Exception exp) {
+        // Persistência forçada não compensa escrita que falhou
+        if (!falhaEscrita && (durabilidade != Durabilidade.LOTE || fm.sincroniza())) {
+            persistido(consumidos, drenados);
+        } else {
+            falhaPersistencia(consumidosLote, drenadosLote);
         }
 
-        // Fecha arquivo empregado para registro
-        fm.close();
+        falhaEscrita = false;
 
-        // Libera para coleta (GC)
-        fm = null;
-        agenda = null;
-        task = null;
-        shared = null;
+        long total = consumidos - consumidosLote + drenados - drenadosLote;
+        long decorrido = instante() - inicioLote;
+        metricas.lote(total, micros ? decorrido / 1000 : decorrido);
+        consumidosLote = consumidos;
+        drenadosLote = drenados;
+        inicioLote = -1;
     }
 
     /**
-     * Transfere para o buffer o conteúdo do vetor de bytes, desde o
-     * primeiro byte do vetor até a posição final. Se durante a
-     * cópia o buffer enche, então um "descarrega" é realizado. O "descarrega"
-     * é realizado mesmo que o buffer não esteja cheio, mas pela
-     * indicação do argumento.
-     *
-     * @param buffer Buffer para o qual bytes serão copiados.
-     * @param bytes  Vetor de bytes a ser copiado.
-     * @param fim    Última posição do vetor a ser considerada na cópia.
+     * Deposita no arquivo eventos da fila secundária, mesmo na
+     * ausência de eventos na estrutura circular. Sem efeito se o
+     * consumo está em andamento (o lote em questão consome a
+     * fila ao ser encerrado).
      */
-    public void transferToBuffer(ByteBuffer buffer, byte[] bytes, int fim) {
-        int resto = Buffers.copyToBuffer(buffer, bytes, 0, fim);
-        while (resto != 0) {
+    private void consomeTransbordados() {
+        if (fila != null && !fila.isEmpty()) {
+            shared.exclusivo(() -> {
+                if (!fila.isEmpty()) {
+                    encerraLote();
+                }
+            });
+        }
+    }
 
-            // Buffer cheio
-            descarrega(buffer);
+    /**
+     * Define o formato dos registros produzidos. Deve ser chamado
+     * antes de {@link #start(String)}. O formato padrão é
+     * {@link Formato#TEXTO}.
+     *
+     * @param formato O formato dos registros.
+     */
+    public void formato(Formato formato) {
+        codificador = new Codificador(formato, micros);
+    }
 
-            resto = Buffers.copyToBuffer(buffer, bytes, fim - resto + 1, fim);
+    /**
+     * Define a precisão do instante de cada evento. Deve ser chamado
+     * antes de {@link #start(String)}. A precisão padrão é
+     * {@link TimeUnit#MILLISECONDS}. Com {@link TimeUnit#MICROSECONDS},
+     * o instante é obtido por {@link Clock#currentTimeMicros()} e
+     * registrado com seis dígitos para a fração de segundo.
+     *
+     * @param unidade {@link TimeUnit#MILLISECONDS} ou
+     *                {@link TimeUnit#MICROSECONDS}.
+     *
+     * @throws IllegalArgumentException Se a unidade não é uma
+     * daquelas indicadas acima.
+     */
+    public void precisao(TimeUnit unidade) {
+        if (unidade != TimeUnit.MILLISECONDS && unidade != TimeUnit.MICROSECONDS) {
+            throw new IllegalArgumentException("precisão não suportada: " + unidade);
         }
+
+        micros = unidade == TimeUnit.MICROSECONDS;
+        codificador = new Codificador(codificador.formato(), micros);
     }
 
     /**
-     * Descarrega o conteúdo do buffer.
+     * Produz índice esparso (instante e posição de registros) em
+     * arquivo auxiliar, cujo nome é aquele do arquivo de <i>log</i>
+     * acrescido de ".idx". Deve ser chamado antes de
+     * {@link #start(String)}. Disponível apenas para o formato
+     * {@link Formato#TEXTO}. O índice é empregado por
+     * {@link LeitorLog} para localizar registros pelo instante.
      *
-     * @param buffer Buffer cujo conteúdo deve ser persistido.
+     * @param intervalo Intervalo mínimo, em milissegundos, entre
+     *                  entradas do índice ou 0, para não produzir
+     *                  índice (padrão).
      */
-    public void descarrega(ByteBuffer buffer) {
-        buffer.flip();
+    public void indice(long intervalo) {
+        intervaloIndice = intervalo;
+    }
 
-        fm.acrescenta(buffer);
+    /**
+     * Limita a taxa de registro de cada mensagem. Deve ser chamado
+     * antes de {@link #start(String)}. Por padrão não há limite.
+     *
+     * <p>Ocorrências de uma mesma mensagem acima da taxa indicada,
+     * exceto por uma rajada inicial, são suprimidas e contabilizadas.
+     * Mensagens são as mesmas se registradas com o mesmo nível, pelo
+     * mesmo registrador e diferem apenas nas sequências de dígitos,
+     * por exemplo, "pedido 12 recusado" e "pedido 345 recusado". O
+     * total suprimido é registrado em uma única linha, por exemplo,
+     * "repeated 12,345 times in 1.0s: pedido # recusado", quando a
+     * mensagem volta a ser permitida ou, no máximo, após um segundo.
+     *
+     * @param porSegundo Ocorrências por segundo permitidas para
+     *                   cada mensagem.
+     * @param rajada Ocorrências consecutivas permitidas antes da
+     *               limitação.
+     */
+    public void limita(int porSegundo, int rajada) {
+        if (porSegundo < 1 || rajada < 1) {
+            throw new IllegalArgumentException("porSegundo e rajada devem ser positivos");
+        }
 
-        buffer.clear();
+        intervaloLimite = TimeUnit.SECONDS.toNanos(1) / porSegundo;
+        toleranciaLimite = intervaloLimite * (rajada - 1);
+        limitadores = new ConcurrentHashMap<>();
     }
 
-    @Override
-    public void info(String msg) {
-        log(INFO, msg);
+    /**
+     * Transfere a codificação dos eventos para as <i>threads</i>
+     * produtoras. Deve ser chamado antes de {@link #start(String)}.
+     *
+     * <p>Cada <i>thread</i> produtora codifica o registro em área
+     * própria, com a capacidade indicada, e o consumidor apenas
+     * copia os bytes para o buffer. Dessa forma, a codificação
+     * (instante, nível e UTF-8) ocorre em paralelo, em vez de
+     * limitada à <i>thread</i> consumidora. Um registro que não
+     * cabe na área disponível é codificado pelo consumidor.
+     *
+     * @param capacidade Capacidade, em bytes, da área de cada
+     *                   <i>thread</i> ou 0, para codificação pelo
+     *                   consumidor (padrão).
+     */
+    public void codificacaoNoProdutor(int capacidade) {
+        capacidadeArena = capacidade;
     }
 
-    @Override
-    public void warn(String msg) {
-        log(WARN, msg);
+    /**
+     * Mantém cópia dos registros mais recentes em arquivo circular
+     * mapeado em memória ({@link GravadorDeVoo}), cujo conteúdo
+     * sobrevive ao término abrupto do processo. Deve ser chamado
+     * antes de {@link #start(String)}. Disponível apenas para o
+     * formato {@link Formato#TEXTO}.
+     *
+     * <p>Os registros são copiados assim que codificados, ou seja,
+     * pelo consumidor ou, se combinado com
+     * {@link #codificacaoNoProdutor(int)}, pelo próprio produtor. Na
+     * segunda opção, apenas os eventos ainda não codificados são
+     * perdidos no término abrupto.
+     *
+     * @param arquivo Arquivo do gravador ou {@code null}, para não
+     *                empregar o gravador (padrão).
+     * @param capacidade Capacidade, em bytes, do arquivo circular.
+     */
+    public void gravadorDeVoo(String arquivo, int capacidade) {
+        arquivoGravador = arquivo;
+        capacidadeGravador = capacidade;
     }
 
-    @Override
-    public void fail(String msg) {
-        log(FAIL, msg);
+    /**
+     * Torna evidente a alteração do arquivo de <i>log</i>. Deve ser
+     * chamado antes de {@link #start(String)}. Disponível apenas
+     * para o formato {@link Formato#TEXTO}.
+     *
+     * <p>Os bytes de cada lote do consumidor são resumidos (SHA-256)
+     * juntamente com o resumo do lote anterior, e o elo resultante
+     * é registrado ao final do lote, em linha iniciada por
+     * "#HDB-AUDIT". Linhas de mensagens (e de nomes de
+     * registradores) iniciadas por '#' são precedidas por '\', ou
+     * seja, o conteúdo registrado não produz linha que se passa por
+     * elo. O custo é proporcional ao volume registrado, mas
+     * o resumo é encerrado uma única vez por lote, e não por evento.
+     * A cadeia prossegue a partir do último elo do arquivo, ou seja,
+     * abrange todos os inícios do serviço que empregam o arquivo, e
+     * é verificada por {@link VerificadorAuditoria}.
+     *
+     * @param ativa {@code true} para produzir a cadeia de resumos.
+     */
+    public void auditoria(boolean ativa) {
+        auditavel = ativa;
     }
 
     /**
-     * Produz evento de log carimbado com o instante de tempo
-     * corrente (UTC).
-     *
-     * @param level Nível do log: INFO, WARN ou FAIL.
-     * @param msg   Mensagem associada ao evento.
+     * Encerra o lote da cadeia de resumos e deposita o elo
+     * correspondente no buffer (executado apenas pelo consumidor).
      */
-    private void log(int level, String msg) {
-        // Reserva logevent
-        int v = shared.aloca();
+    private void registraElo() {
+        cadeia.resume(buffer, resumidos, buffer.position());
+        resumidos = buffer.position();
 
-        // Produz o evento
-        eventos[v].instante = System.currentTimeMillis();
-        eventos[v].level = (byte) level;
-        eventos[v].payload = msg;
+        byte[] elo = cadeia.elo();
+        if (buffer.remaining() < elo.length) {
+            descarrega(buffer);
+        }
 
-        // Disponibiliza o evento para consumo.
-        shared.produz(v);
+        buffer.put(elo);
+        resumidos = buffer.position();
     }
 
-    @Override
-    public void run() {
-        shared.flush();
+    /**
+     * Copia o registro para o gravador de voo, se empregado.
+     */
+    private void grava(byte[] bytes, int inicio, int total) {
+        if (gravador != null) {
+            gravador.grava(bytes, inicio, total);
+        }
     }
 
-    private final DateFormat fmt;
-
     /**
-     * Contêiner para um evento de log.
+     * Instante corrente conforme a precisão definida.
      */
-    private class LogEvent {
-        public long instante;
-        public byte level;
+    private long instante() {
+        return micros ? clock.currentTimeMicros() : clock.currentTimeMillis();
+    }
+
+    /**
+     * Recupera o registrador nomeado, criado na primeira requisição.
+     * O nível inicial do registrador é aquele do serviço
+     * (veja {@link #nivel(int)}).
+     *
+     * @param nome Nome do subsistema, por exemplo, "file" ou "buffer".
+     *
+     * @return O registrador associado ao nome.
+     */
+    public LogNomeado logger(String nome) {
+        return nomeados.computeIfAbsent(nome, n -> new LogNomeado(this, n, nivel));
+    }
+
+    /**
+     * Altera o nível mínimo de eventos registrados pelo registrador
+     * nomeado. A alteração pode ser realizada a qualquer momento.
+     *
+     * @param nome Nome do registrador.
+     * @param nivel Nível mínimo: {@link #INFO}, {@link #WARN} ou
+     *              {@link #FAIL}.
+     */
+    public void nivel(String nome, int nivel) {
+        logger(nome).nivel(nivel);
+    }
+
+    /**
+     * Altera o nível mínimo dos eventos registrados diretamente
+     * por meio do serviço. A alteração pode ser realizada a qualquer
+     * momento e não afeta registradores nomeados já criados.
+     *
+     * @param nivel Nível mínimo: {@link #INFO}, {@link #WARN} ou
+     *              {@link #FAIL}.
+     */
+    public void nivel(int nivel) {
+        this.nivel = nivel;
+    }
+
+    /**
+     * Define a política adotada quando não há espaço disponível para
+     * o registro de eventos. Deve ser chamado antes de
+     * {@link #start(String)}. A política padrão é
+     * {@link Transbordo#BLOQUEIA}.
+     *
+     * @param politica A política de transbordo.
+     */
+    public void transbordo(Transbordo politica) {
+        transbordo = politica;
+        fila = politica == Transbordo.FILA_SECUNDARIA
+                ? new ArrayBlockingQueue<>(SPILL_SIZE)
+                : null;
+    }
+
+    /**
+     * Total de eventos descartados e ainda não informados no
+     * <i>log</i>.
+     *
+     * @return Quantidade de eventos descartados desde o último
+     * aviso correspondente.
+     */
+    public long descartados() {
+        long total = 0;
+        for (int i = 0; i < descartados.length(); i++) {
+            total += descartados.get(i);
+        }
+
+        return total;
+    }
+
+    /**
+     * Deposita no buffer os eventos da fila secundária
+     * (executado apenas pelo consumidor).
+     */
+    private void consomeFilaSecundaria() {
+        for (int i = 0; i < SPILL_SIZE; i++) {
+            LogEvent e = fila.poll();
+            if (e == null) {
+                return;
+            }
+
+            if (inicioLote == -1) {
+                inicioLote = e.instante;
+            }
+
+            int total = codifica(e);
+            grava(codificador.bytes(), 0, total);
+            transferToBuffer(buffer, codificador.bytes(), total - 1);
+            drenados++;
+            metricas.evento();
+        }
+    }
+
+    /**
+     * Registra aviso com o total de eventos descartados, caso
+     * existam e a pressão sobre a estrutura circular tenha
+     * diminuído (pelo menos metade das entradas disponíveis).
+     *
+     * @return {@code true} se e somente se o aviso foi registrado.
+     */
+    private boolean informaDescartados() {
+        if (shared.entradasDisponiveis() < EVENTS_SIZE / 2) {
+            return false;
+        }
+
+        long info = descartados.get(INFO);
+        long warn = descartados.get(WARN);
+        long fail = descartados.get(FAIL);
+        if (info + warn + fail == 0) {
+            return false;
+        }
+
+        int v = shared.tentaAloca();
+        if (v == -1) {
+            return false;
+        }
+
+        descartados.addAndGet(INFO, -info);
+        descartados.addAndGet(WARN, -warn);
+        descartados.addAndGet(FAIL, -fail);
+
+        String msg = "logging overflow, events dropped: INFO=" + info
+                + " WARN=" + warn + " FAIL=" + fail;
+        produz(v, instante(), WARN, null, msg, null, null);
+        return true;
+    }
+
+    /**
+     * Métricas do serviço, também disponíveis via JMX.
+     *
+     * @return Métricas do serviço de <i>logging</i>.
+     */
+    public LoggingMXBean metricas() {
+        return metricas;
+    }
+
+    /**
+     * Quantidade de entradas ocupadas na estrutura circular.
+     */
+    private int ocupacao() {
+        RingBuffer ring = shared;
+        return ring == null ? 0 : EVENTS_SIZE - ring.entradasDisponiveis();
+    }
+
+    /**
+     * Registra as métricas do serviço no servidor de MBeans da
+     * plataforma. Falhas são ignoradas, pois não comprometem o
+     * registro de eventos.
+     */
+    private void registraMetricas(String filename) {
+        try {
+            ObjectName nome = new ObjectName("com.github.kyriosdata.healthdb.log:type=Logging,name="
+                    + ObjectName.quote(filename));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metricas, nome);
+            nomeMetricas = nome;
+        } catch (JMException | SecurityException exp) {
+            nomeMetricas = null;
+        }
+    }
+
+    /**
+     * Remove as métricas do servidor de MBeans da plataforma.
+     */
+    private void removeMetricas() {
+        if (nomeMetricas == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(nomeMetricas);
+        } catch (JMException | SecurityException exp) {
+            // Nada a fazer
+        }
+
+        nomeMetricas = null;
+    }
+
+    /**
+     * Acrescenta destino para os registros, além do arquivo. Deve ser
+     * chamado antes de {@link #start(String)}. Cada lote é codificado
+     * uma única vez e entregue a todos os destinos, na ordem em que
+     * foram acrescentados. Um destino lento deve ser encapsulado por
+     * {@link DestinoAssincrono}.
+     *
+     * @param destino Destino adicional dos registros.
+     */
+    public void acrescentaDestino(Destino destino) {
+        Destino[] novos = Arrays.copyOf(destinos, destinos.length + 1);
+        novos[destinos.length] = destino;
+        destinos = novos;
+    }
+
+    /**
+     * Define a política de persistência dos registros. Deve ser
+     * chamado antes de {@link #start(String)}. A política padrão é
+     * {@link Durabilidade#NENHUMA}.
+     *
+     * @param durabilidade A política de persistência.
+     * @param intervalo Intervalo mínimo, em milissegundos, entre
+     *                  persistências forçadas. Relevante apenas para
+     *                  {@link Durabilidade#PERIODICA}.
+     */
+    public void durabilidade(Durabilidade durabilidade, long intervalo) {
+        this.durabilidade = durabilidade;
+        this.intervaloSincronizacao = intervalo;
+    }
+
+    /**
+     * Aguarda até que todos os eventos registrados antes dessa
+     * chamada, inclusive aqueles registrados por outras <i>threads</i>,
+     * estejam depositados no arquivo. Com a política
+     * {@link Durabilidade#LOTE}, o retorno assegura que tais eventos
+     * estão persistidos em meio secundário.
+     *
+     * <p>Várias <i>threads</i> podem aguardar simultaneamente. Todas
+     * aquelas cujos eventos fazem parte do mesmo lote são liberadas
+     * por uma única persistência (<i>group commit</i>).
+     *
+     * @return {@code true} se os eventos estão depositados (e
+     * persistidos, conforme a política de durabilidade) ou
+     * {@code false}, se a escrita no arquivo ou a persistência
+     * forçada de algum deles falhou ou se a <i>thread</i> foi
+     * interrompida.
+     */
+    public boolean sincroniza() {
+        final long alvo = shared.totalAlocados();
+        final long alvoFila = transbordados;
+
+        if (persistidos(alvo, alvoFila)) {
+            return !falhou(alvo, alvoFila);
+        }
+
+        aguardando.incrementAndGet();
+        try {
+            while (!persistidos(alvo, alvoFila)) {
+                if (falhou(alvo, alvoFila)) {
+                    return false;
+                }
+
+                // Consome, caso nenhuma outra thread o faça.
+                shared.flush();
+                consomeTransbordados();
+
+                synchronized (monitor) {
+                    if (!persistidos(alvo, alvoFila) && !falhou(alvo, alvoFila)) {
+                        monitor.wait(10);
+                    }
+                }
+            }
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            aguardando.decrementAndGet();
+        }
+
+        return !falhou(alvo, alvoFila);
+    }
+
+    /**
+     * Verifica se os totais indicados de eventos da estrutura
+     * circular e da fila secundária estão depositados no arquivo.
+     */
+    private boolean persistidos(long alvo, long alvoFila) {
+        return persistidos >= alvo && persistidosFila >= alvoFila;
+    }
+
+    /**
+     * Verifica se a persistência forçada falhou para algum dos
+     * eventos indicados.
+     */
+    private boolean falhou(long alvo, long alvoFila) {
+        return alvo > falhaPersistencia || alvoFila > falhaPersistenciaFila;
+    }
+
+    /**
+     * Registra que os eventos consumidos até o momento estão
+     * depositados no arquivo e libera eventuais <i>threads</i>
+     * que aguardam por essa condição.
+     *
+     * @param total Total de eventos consumidos.
+     * @param totalFila Total de eventos retirados da fila
+     *                  secundária.
+     */
+    private void persistido(long total, long totalFila) {
+        persistidosFila = totalFila;
+        persistidos = total;
+        notificaAguardando();
+    }
+
+    /**
+     * Registra que a persistência forçada do lote iniciado após o
+     * total de eventos indicado falhou e libera eventuais
+     * <i>threads</i> que aguardam pela persistência desses eventos.
+     *
+     * @param total Total de eventos consumidos antes do lote.
+     * @param totalFila Total de eventos retirados da fila
+     *                  secundária antes do lote.
+     */
+    private void falhaPersistencia(long total, long totalFila) {
+        if (total < falhaPersistencia) {
+            falhaPersistencia = total;
+        }
+
+        if (totalFila < falhaPersistenciaFila) {
+            falhaPersistenciaFila = totalFila;
+        }
+
+        notificaAguardando();
+    }
+
+    private void notificaAguardando() {
+        if (aguardando.get() > 0) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Inicia o serviço de <i>logging</i>.
+     *
+     * @param filename O arquivo a ser empregado para registro das
+     *                 informações.
+     *
+     * @throws IllegalStateException Se a auditoria, o índice ou o
+     * gravador de voo foi solicitado para o formato
+     * {@link Formato#BINARIO}.
+     */
+    @Override
+    public void start(String filename) throws IOException {
+        if (codificador.formato() != Formato.TEXTO && auditavel) {
+            throw new IllegalStateException("auditoria exige formato TEXTO");
+        }
+
+        if (codificador.formato() != Formato.TEXTO && intervaloIndice > 0) {
+            throw new IllegalStateException("índice exige formato TEXTO");
+        }
+
+        if (codificador.formato() != Formato.TEXTO && arquivoGravador != null) {
+            throw new IllegalStateException("gravador de voo exige formato TEXTO");
+        }
+
+        fm = new FileManager(filename);
+        descarregados = fm.tamanho();
+
+        if (intervaloIndice > 0) {
+            indice = new IndiceEsparso(filename, intervaloIndice);
+        }
+
+        // Mensagens não podem produzir linha que se passa por elo
+        if (auditavel) {
+            codificador = new Codificador(Formato.TEXTO, micros, true);
+        }
+
+        if (capacidadeArena > 0) {
+            final Formato formato = codificador.formato();
+            final boolean protegido = auditavel;
+            arenas = ThreadLocal.withInitial(() -> new Arena(capacidadeArena, formato, micros, protegido));
+        }
+
+        if (arquivoGravador != null) {
+            gravador = new GravadorDeVoo(arquivoGravador, capacidadeGravador);
+        }
+
+        if (auditavel) {
+            cadeia = CadeiaAuditoria.retoma(Paths.get(filename));
+
+            // Elo inicial, em linha própria, protege o conteúdo após
+            // o último elo do arquivo
+            if (cadeia.linhaIncompleta()) {
+                buffer.put((byte) '\n');
+                cadeia.resume(buffer, buffer.position() - 1, buffer.position());
+            }
+
+            buffer.put(cadeia.elo());
+            resumidos = buffer.position();
+        }
+        registraMetricas(filename);
+
+        // Identificadores de pilhas distintos a cada execução, mesmo
+        // com relógio fixo (injetado)
+        long execucao = System.nanoTime() ^ ThreadLocalRandom.current().nextLong();
+        rastros = new Rastros(Long.toString(execucao & Long.MAX_VALUE, 36));
+
+        ativo = true;
+        consumidor = new Thread(this::consome, "hdb-logging");
+        consumidor.setDaemon(true);
+        consumidor.start();
+    }
+
+    /**
+     * Define o maior intervalo entre execuções do consumidor, ou
+     * seja, o maior tempo que um evento aguarda pelo consumo. Deve
+     * ser chamado antes de {@link #start(String)}. O padrão é 100ms.
+     *
+     * <p>O intervalo é adaptativo: após uma execução que consome
+     * eventos, a próxima ocorre em 1ms; caso contrário, o intervalo
+     * é dobrado, até o máximo definido. Adicionalmente, o produtor
+     * acorda o consumidor quando a ocupação da estrutura circular
+     * ultrapassa um quarto da capacidade, o que reduz a
+     * possibilidade de um produtor arcar com o consumo.
+     *
+     * @param milissegundos Maior intervalo entre execuções.
+     */
+    public void latenciaMaxima(long milissegundos) {
+        latenciaMaxima = TimeUnit.MILLISECONDS.toNanos(Math.max(1, milissegundos));
+    }
+
+    /**
+     * Executado pela <i>thread</i> dedicada ao consumo, até o
+     * encerramento do serviço.
+     */
+    private void consome() {
+        long espera = ESPERA_MINIMA;
+
+        while (ativo) {
+            long antes = consumidos;
+
+            // Falha em uma execução não encerra o consumidor
+            try {
+                run();
+                espera = consumidos != antes
+                        ? ESPERA_MINIMA
+                        : Math.min(espera * 2, latenciaMaxima);
+            } catch (Throwable falha) {
+                metricas.falhaConsumo(falha);
+                espera = latenciaMaxima;
+            }
+
+            dormindo = true;
+
+            // Evita aguardar se o produtor não percebeu a intenção
+            if (ocupacao() < MARCA) {
+                LockSupport.parkNanos(this, espera);
+            }
+
+            dormindo = false;
+        }
+    }
+
+    /**
+     * Acorda o consumidor, caso esteja aguardando e a ocupação
+     * da estrutura circular tenha atingido a marca.
+     */
+    private void acorda() {
+        if (dormindo && ocupacao() >= MARCA) {
+            dormindo = false;
+            LockSupport.unpark(consumidor);
+        }
+    }
+
+    /**
+     * Interrompe a execução do serviço de <i>logging</i>.
+     * Eventos pendentes são registrados em meio secundário.
+     */
+    @Override
+    public void close() {
+
+        // Insere indicação de fim de operação
+        warn("shutting down logging service...");
+
+        // Encerra o consumidor e aguarda pelo término
+        ativo = false;
+        LockSupport.unpark(consumidor);
+        try {
+            consumidor.join();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Oportunidade para registrar eventos ainda não tratados
+        run();
+
+        if (durabilidade != Durabilidade.NENHUMA) {
+            fm.sincroniza();
+        }
+
+        // Fecha arquivo empregado para registro
+        fm.close();
+
+        if (indice != null) {
+            indice.close();
+            indice = null;
+        }
+
+        for (Destino destino : destinos) {
+            destino.close();
+        }
+
+        removeMetricas();
+
+        // Libera para coleta (GC)
+        gravador = null;
+        cadeia = null;
+        fm = null;
+        consumidor = null;
+        shared = null;
+    }
+
+    /**
+     * Transfere para o buffer o conteúdo do vetor de bytes, desde o
+     * primeiro byte do vetor até a posição final. Se durante a
+     * cópia o buffer enche, então um "descarrega" é realizado. O "descarrega"
+     * é realizado mesmo que o buffer não esteja cheio, mas pela
+     * indicação do argumento.
+     *
+     * @param buffer Buffer para o qual bytes serão copiados.
+     * @param bytes  Vetor de bytes a ser copiado.
+     * @param fim    Última posição do vetor a ser considerada na cópia.
+     */
+    public void transferToBuffer(ByteBuffer buffer, byte[] bytes, int fim) {
+        transferToBuffer(buffer, bytes, 0, fim);
+    }
+
+    /**
+     * Transfere para o buffer o conteúdo do vetor de bytes, desde a
+     * posição inicial até a posição final, conforme
+     * {@link #transferToBuffer(ByteBuffer, byte[], int)}.
+     *
+     * @param buffer Buffer para o qual bytes serão copiados.
+     * @param bytes  Vetor de bytes a ser copiado.
+     * @param inicio Primeira posição do vetor a ser considerada na cópia.
+     * @param fim    Última posição do vetor a ser considerada na cópia.
+     */
+    public void transferToBuffer(ByteBuffer buffer, byte[] bytes, int inicio, int fim) {
+        int resto = Buffers.copyToBuffer(buffer, bytes, inicio, fim);
+        while (resto != 0) {
+
+            // Buffer cheio
+            descarrega(buffer);
+
+            resto = Buffers.copyToBuffer(buffer, bytes, fim - resto + 1, fim);
+        }
+    }
+
+    /**
+     * Descarrega o conteúdo do buffer.
+     *
+     * @param buffer Buffer cujo conteúdo deve ser persistido.
+     */
+    public void descarrega(ByteBuffer buffer) {
+        buffer.flip();
+
+        if (cadeia != null) {
+            cadeia.resume(buffer, resumidos, buffer.limit());
+            resumidos = 0;
+        }
+
+        int total = buffer.remaining();
+        long inicio = System.nanoTime();
+        if (!fm.escreve(buffer)) {
+            falhaEscrita = true;
+        }
+
+        metricas.escrita(total, System.nanoTime() - inicio);
+        descarregados += total;
+
+        // Mesmo conteúdo para os demais destinos
+        int fim = buffer.limit();
+        for (Destino destino : destinos) {
+            buffer.position(0);
+            buffer.limit(fim);
+
+            // Falha de um destino não afeta os demais nem o consumidor
+            try {
+                destino.acrescenta(buffer);
+            } catch (Throwable falha) {
+                metricas.falhaDestino(falha);
+            }
+        }
+
+        buffer.clear();
+    }
+
+    @Override
+    public void info(String msg) {
+        if (INFO >= nivel) {
+            log(INFO, null, msg);
+        }
+    }
+
+    @Override
+    public void warn(String msg) {
+        if (WARN >= nivel) {
+            log(WARN, null, msg);
+        }
+    }
+
+    @Override
+    public void fail(String msg) {
+        if (FAIL >= nivel) {
+            log(FAIL, null, msg);
+        }
+    }
+
+    /**
+     * Registra falha e a exceção correspondente. A exceção é
+     * mantida por referência e a pilha de execução é produzida pelo
+     * consumidor, ou seja, a <i>thread</i> que registra a falha não
+     * arca com esse custo. Uma pilha já registrada é identificada
+     * pelos <i>frames</i> e não é repetida, apenas referenciada por
+     * meio do identificador, único entre as execuções que empregam
+     * o arquivo, por exemplo, "[stack #kq2x9c1-3]".
+     *
+     * <p>A exceção não deve ser alterada após o registro.
+     *
+     * @param msg Mensagem a ser registrada.
+     * @param erro Exceção associada à falha.
+     */
+    @Override
+    public void fail(String msg, Throwable erro) {
+        if (FAIL >= nivel) {
+            log(FAIL, null, msg, erro);
+        }
+    }
+
+    /**
+     * Registra mensagem de log (informativa) produzida apenas se o
+     * nível está habilitado e pelo consumidor, ou seja, sem custo
+     * para a <i>thread</i> corrente além do registro do fornecedor.
+     *
+     * @param msg Fornecedor da mensagem a ser registrada.
+     */
+    @Override
+    public void infoSobDemanda(Supplier<String> msg) {
+        if (INFO >= nivel) {
+            log(INFO, null, sb -> sb.append(msg.get()));
+        }
+    }
+
+    /**
+     * Registra mensagem de log (aviso), produzida conforme
+     * {@link #infoSobDemanda(Supplier)}.
+     *
+     * @param msg Fornecedor da mensagem a ser registrada.
+     */
+    @Override
+    public void warnSobDemanda(Supplier<String> msg) {
+        if (WARN >= nivel) {
+            log(WARN, null, sb -> sb.append(msg.get()));
+        }
+    }
+
+    /**
+     * Registra mensagem pertinente à falha, produzida conforme
+     * {@link #infoSobDemanda(Supplier)}.
+     *
+     * @param msg Fornecedor da mensagem a ser registrada.
+     */
+    @Override
+    public void failSobDemanda(Supplier<String> msg) {
+        if (FAIL >= nivel) {
+            log(FAIL, null, sb -> sb.append(msg.get()));
+        }
+    }
+
+    /**
+     * Registra mensagem produzida pelo escritor, executado apenas se
+     * o nível está habilitado e pelo consumidor. O escritor deposita
+     * a mensagem diretamente no texto reutilizado pelo consumidor,
+     * ou seja, dispensa a criação de uma {@link String}. Conveniente
+     * para diagnósticos custosos, por exemplo, o conteúdo de um
+     * buffer em hexadecimal.
+     *
+     * <p>O escritor é executado posteriormente, por outra
+     * <i>thread</i>, portanto, deve empregar apenas informação que
+     * não será alterada após o registro.
+     *
+     * @param nivel Nível do evento: {@link #INFO}, {@link #WARN}
+     *              ou {@link #FAIL}.
+     * @param escritor Produz a mensagem no texto fornecido.
+     *
+     * @throws IllegalArgumentException Se o nível não é
+     * {@link #INFO}, {@link #WARN} ou {@link #FAIL}.
+     */
+    public void escreve(int nivel, Consumer<StringBuilder> escritor) {
+        if (valida(nivel) >= this.nivel) {
+            log(nivel, null, escritor);
+        }
+    }
+
+    /**
+     * Verifica se o nível fornecido é o de um evento, ou seja,
+     * {@link #INFO}, {@link #WARN} ou {@link #FAIL}.
+     *
+     * @param nivel Nível a ser verificado.
+     *
+     * @return O próprio nível.
+     *
+     * @throws IllegalArgumentException Se o nível é inválido.
+     */
+    static int valida(int nivel) {
+        if (nivel < INFO || nivel > FAIL) {
+            throw new IllegalArgumentException("nível inválido: " + nivel);
+        }
+
+        return nivel;
+    }
+
+    /**
+     * Produz evento de log carimbado com o instante de tempo
+     * corrente (UTC).
+     *
+     * @param level  Nível do log: INFO, WARN ou FAIL.
+     * @param origem Bytes que identificam o registrador nomeado
+     *               ou {@code null}.
+     * @param msg    Mensagem associada ao evento.
+     */
+    void log(int level, byte[] origem, String msg) {
+        log(level, origem, msg, null);
+    }
+
+    /**
+     * Produz evento de log, eventualmente associado a uma exceção,
+     * carimbado com o instante de tempo corrente (UTC).
+     *
+     * @param level  Nível do log: INFO, WARN ou FAIL.
+     * @param origem Bytes que identificam o registrador nomeado
+     *               ou {@code null}.
+     * @param msg    Mensagem associada ao evento.
+     * @param erro   Exceção associada ao evento ou {@code null}.
+     */
+    void log(int level, byte[] origem, String msg, Throwable erro) {
+        if (limitadores != null && !permite(level, origem, msg)) {
+            return;
+        }
+
+        registra(level, origem, msg, erro, null);
+    }
+
+    /**
+     * Produz evento de log cuja mensagem é produzida pelo escritor,
+     * executado pelo consumidor. Tais eventos não estão sujeitos à
+     * limitação de taxa (veja {@link #limita(int, int)}), pois a
+     * mensagem não é conhecida pelo produtor.
+     *
+     * @param level    Nível do log: INFO, WARN ou FAIL.
+     * @param origem   Bytes que identificam o registrador nomeado
+     *                 ou {@code null}.
+     * @param escritor Produz a mensagem associada ao evento.
+     */
+    void log(int level, byte[] origem, Consumer<StringBuilder> escritor) {
+        log(level, origem, escritor, null);
+    }
+
+    /**
+     * Produz evento de log cuja mensagem é produzida pelo escritor,
+     * conforme {@link #log(int, byte[], Consumer)}, eventualmente
+     * associado a uma exceção.
+     *
+     * @param level    Nível do log: INFO, WARN ou FAIL.
+     * @param origem   Bytes que identificam o registrador nomeado
+     *                 ou {@code null}.
+     * @param escritor Produz a mensagem associada ao evento.
+     * @param erro     Exceção associada ao evento ou {@code null}.
+     */
+    void log(int level, byte[] origem, Consumer<StringBuilder> escritor, Throwable erro) {
+        registra(level, origem, null, erro, escritor);
+    }
+
+    /**
+     * Verifica se o limite de ocorrências da mensagem permite o
+     * registro. Caso existam ocorrências suprimidas, o resumo
+     * correspondente é registrado antes da mensagem.
+     */
+    private boolean permite(int level, byte[] origem, String msg) {
+        long agora = System.nanoTime();
+
+        Limitador.Chave chave = new Limitador.Chave(level, origem, msg);
+        Limitador limitador = limitadores.get(chave);
+        if (limitador == null) {
+            if (limitadores.size() >= MAX_LIMITADORES) {
+                // Sem limite para novas mensagens até a remoção
+                // de limitadores ociosos.
+                return true;
+            }
+
+            limitador = limitadores.computeIfAbsent(chave, c -> new Limitador(level, origem, c.modelo(), agora));
+        }
+
+        if (!limitador.permite(agora, intervaloLimite, toleranciaLimite)) {
+            return false;
+        }
+
+        if (limitador.suprimiu()) {
+            long total = limitador.retira();
+            if (total > 0) {
+                registra(level, origem, limitador.resumo(total, agora), null, null);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Registra resumos de ocorrências suprimidas e remove limitadores
+     * ociosos. Executado periodicamente, não aguarda por entrada na
+     * estrutura circular, ou seja, resumos que não podem ser
+     * registrados são mantidos para a próxima execução.
+     *
+     * @return {@code true} se e somente se algum resumo foi registrado.
+     */
+    private boolean informaSuprimidos() {
+        if (limitadores == null) {
+            return false;
+        }
+
+        long agora = System.nanoTime();
+        if (agora - ultimaVerificacao < TimeUnit.SECONDS.toNanos(1) && ativo) {
+            return false;
+        }
+
+        ultimaVerificacao = agora;
+        boolean registrou = false;
+
+        for (Limitador limitador : limitadores.values()) {
+            if (limitador.suprimiu()) {
+                long total = limitador.retira();
+                if (total == 0) {
+                    continue;
+                }
+
+                int v = shared.tentaAloca();
+                if (v == -1) {
+                    limitador.restaura(total);
+                    return registrou;
+                }
+
+                String resumo = limitador.resumo(total, agora);
+                produz(v, instante(), limitador.nivel(), limitador.origem(), resumo, null, null);
+                registrou = true;
+            }
+        }
+
+        limitadores.values().removeIf(l -> l.ocioso(agora));
+        return registrou;
+    }
+
+    /**
+     * Deposita o evento na estrutura circular, conforme o modo de
+     * codificação e a política de transbordo.
+     */
+    private void registra(int level, byte[] origem, String msg, Throwable erro,
+                          Consumer<StringBuilder> escritor) {
+
+        // Pilha de exceção e mensagem diferida produzidas pelo consumidor
+        if (arenas != null && erro == null && escritor == null) {
+            logNaArena(level, origem, msg);
+        } else {
+
+            // Reserva logevent
+            int v = aloca(level);
+
+            if (v == -1) {
+                transborda(level, origem, msg, erro, escritor);
+            } else {
+                produz(v, instante(), level, origem, msg, erro, escritor);
+            }
+        }
+
+        acorda();
+    }
+
+    /**
+     * Codifica o evento na área da <i>thread</i> corrente e repassa
+     * ao consumidor apenas a localização do registro. Na ausência de
+     * espaço na área, o evento é repassado para codificação pelo
+     * consumidor.
+     */
+    private void logNaArena(int level, byte[] origem, String msg) {
+        Arena arena = arenas.get();
+        long instante = instante();
+
+        int inicio = arena.codifica(instante, level, origem, msg);
+
+        int v = aloca(level);
+        if (v == -1) {
+            // Registro na área (se houver) é abandonado
+            transborda(level, origem, msg, null, null);
+            return;
+        }
+
+        if (inicio == -1) {
+            produz(v, instante, level, origem, msg, null, null);
+            return;
+        }
+
+        grava(arena.dados(), inicio, arena.tamanho());
+
+        LogEvent e = eventos[v];
+        e.instante = instante;
+        e.level = (byte) level;
+        e.origem = null;
+        e.payload = null;
+        e.erro = null;
+        e.escritor = null;
+        e.arena = arena;
+        e.inicio = inicio;
+        e.tamanho = arena.tamanho();
+        e.fim = arena.confirma();
+
+        shared.produz(v);
+    }
+
+    /**
+     * Reserva entrada para o registro de evento, conforme a
+     * política de transbordo.
+     *
+     * @param level Nível do evento.
+     *
+     * @return Entrada reservada ou -1, se o evento não deve
+     * ser depositado na estrutura circular.
+     */
+    private int aloca(int level) {
+        switch (transbordo) {
+            case BLOQUEIA:
+                return shared.aloca();
+
+            case DESCARTA_MENOR_NIVEL:
+                if (level == FAIL) {
+                    return shared.aloca();
+                }
+
+                if (level == INFO && shared.entradasDisponiveis() < EVENTS_SIZE / 4) {
+                    return -1;
+                }
+
+                return shared.tentaAloca();
+
+            default:
+                return shared.tentaAloca();
+        }
+    }
+
+    /**
+     * Trata evento para o qual não há entrada disponível.
+     */
+    private void transborda(int level, byte[] origem, String msg, Throwable erro,
+                            Consumer<StringBuilder> escritor) {
+        if (fila != null) {
+            LogEvent e = new LogEvent();
+            e.instante = instante();
+            e.level = (byte) level;
+            e.origem = origem;
+            e.payload = msg;
+            e.erro = erro;
+            e.escritor = escritor;
+
+            synchronized (fila) {
+                if (fila.offer(e)) {
+                    transbordados++;
+                    return;
+                }
+            }
+        }
+
+        descartados.incrementAndGet(level);
+        totalDescartados.incrementAndGet();
+    }
+
+    /**
+     * Preenche o evento e o disponibiliza para consumo.
+     */
+    private void produz(int v, long instante, int level, byte[] origem, String msg,
+                        Throwable erro, Consumer<StringBuilder> escritor) {
+        eventos[v].instante = instante;
+        eventos[v].level = (byte) level;
+        eventos[v].origem = origem;
+        eventos[v].payload = msg;
+        eventos[v].erro = erro;
+        eventos[v].escritor = escritor;
+        eventos[v].arena = null;
+
+        // Disponibiliza o evento para consumo.
+        shared.produz(v);
+    }
+
+    @Override
+    public void run() {
+        shared.flush();
+        consomeTransbordados();
+        metricas.amostra();
+
+        boolean informou = informaDescartados();
+        informou |= informaSuprimidos();
+        if (informou) {
+            shared.flush();
+        }
+
+        if (durabilidade == Durabilidade.PERIODICA) {
+            long agora = clock.currentTimeMillis();
+            if (agora - ultimaSincronizacao >= intervaloSincronizacao) {
+                ultimaSincronizacao = agora;
+                fm.sincroniza();
+            }
+        }
+    }
+
+    /**
+     * Produz os bytes de cada evento (empregado apenas pelo consumidor).
+     */
+    private Codificador codificador;
+
+    /**
+     * Produz as pilhas de execução (empregado apenas pelo consumidor).
+     */
+    private Rastros rastros;
+
+    /**
+     * Mensagem produzida pelo consumidor, ou seja, diferida ou
+     * acrescida da pilha de execução (empregado apenas pelo
+     * consumidor).
+     */
+    private final StringBuilder rastro = new StringBuilder(1024);
+
+    /**
+     * Codifica o evento (empregado apenas pelo consumidor). A
+     * mensagem diferida é produzida nesse momento, assim como a
+     * pilha de execução da exceção correspondente, se for o caso.
+     *
+     * @return Quantidade de bytes do registro produzido.
+     */
+    private int codifica(LogEvent e) {
+        if (e.erro == null && e.escritor == null) {
+            return codificador.codifica(e.instante, e.level, e.origem, e.payload);
+        }
+
+        rastro.setLength(0);
+
+        // Código do usuário (escritor, toString() da exceção) pode
+        // falhar de qualquer forma, inclusive StackOverflowError, o
+        // que não deve encerrar a thread consumidora.
+        if (e.escritor != null) {
+            try {
+                e.escritor.accept(rastro);
+            } catch (Throwable exp) {
+                falhaDoUsuario(" <falha ao produzir mensagem: ", exp);
+            }
+        } else {
+            rastro.append(e.payload);
+        }
+
+        if (e.erro != null) {
+            try {
+                rastros.anexa(rastro, e.erro);
+            } catch (Throwable exp) {
+                falhaDoUsuario(" <falha ao produzir exceção: ", exp);
+            }
+        }
+
+        // Libera para coleta (GC)
+        e.erro = null;
+        e.escritor = null;
+
+        return codificador.codifica(e.instante, e.level, e.origem, rastro);
+    }
+
+    /**
+     * Registra, no texto do evento, a falha do código do usuário. A
+     * descrição da falha também é código do usuário.
+     */
+    private void falhaDoUsuario(String prefixo, Throwable falha) {
+        rastro.append(prefixo);
+        try {
+            rastro.append(falha);
+        } catch (Throwable exp) {
+            rastro.append(falha.getClass().getName());
+        }
+
+        rastro.append('>');
+    }
+
+    /**
+     * Contêiner para um evento de log.
+     */
+    private class LogEvent {
+        public long instante;
+        public byte level;
+        public byte[] origem;
         public String payload;
+        public Throwable erro;
+        public Consumer<StringBuilder> escritor;
+
+        // Registro já codificado pelo produtor ou null
+        public Arena arena;
+        public int inicio;
+        public int tamanho;
+        public long fim;
     }
 }
 
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+/**
+ * Métricas do serviço de <i>logging</i> disponibilizadas via JMX,
+ * sob o nome {@code com.github.kyriosdata.healthdb.log:type=Logging}.
+ * Permitem avaliar o custo do serviço em produção e ajustar a
+ * capacidade do buffer e da estrutura circular de eventos.
+ *
+ * <p>Histogramas são vetores cujo elemento de índice {@code i}
+ * contabiliza as ocorrências no intervalo [2<sup>i-1</sup>,
+ * 2<sup>i</sup>), exceto o primeiro, que contabiliza valores
+ * inferiores a 1.
+ */
+public interface LoggingMXBean {
+
+    /**
+     * Total de eventos consumidos, ou seja, depositados no buffer.
+     *
+     * @return Eventos consumidos desde o início do serviço.
+     */
+    long getEventos();
+
+    /**
+     * Total de bytes depositados no arquivo.
+     *
+     * @return Bytes escritos desde o início do serviço.
+     */
+    long getBytes();
+
+    /**
+     * Eventos consumidos por segundo, apurados a cada segundo.
+     *
+     * @return Taxa de eventos por segundo.
+     */
+    double getEventosPorSegundo();
+
+    /**
+     * Bytes escritos por segundo, apurados a cada segundo.
+     *
+     * @return Taxa de bytes por segundo.
+     */
+    double getBytesPorSegundo();
+
+    /**
+     * Quantidade de entradas da estrutura circular ocupadas por
+     * eventos ainda não consumidos.
+     *
+     * @return Ocupação corrente da estrutura circular.
+     */
+    int getOcupacao();
+
+    /**
+     * Capacidade da estrutura circular de eventos.
+     *
+     * @return Total de entradas da estrutura circular.
+     */
+    int getCapacidade();
+
+    /**
+     * Total de eventos descartados (veja {@link Transbordo}).
+     *
+     * @return Eventos descartados desde o início do serviço.
+     */
+    long getDescartados();
+
+    /**
+     * Total de lotes consumidos.
+     *
+     * @return Quantidade de lotes consumidos.
+     */
+    long getLotes();
+
+    /**
+     * Total de lotes não entregues a um destino adicional (veja
+     * {@link Destino}) em consequência de exceção lançada pelo
+     * destino. O arquivo e os demais destinos recebem o lote.
+     *
+     * @return Falhas de destinos desde o início do serviço.
+     */
+    long getFalhasDestino();
+
+    /**
+     * Total de execuções do consumidor interrompidas por exceção.
+     * O consumidor prossegue na execução seguinte.
+     *
+     * @return Falhas do consumidor desde o início do serviço.
+     */
+    long getFalhasConsumo();
+
+    /**
+     * Descrição da falha mais recente registrada pelo consumidor.
+     *
+     * @return Descrição da última falha ou {@code null}, se não
+     * houve falha.
+     */
+    String getUltimaFalha();
+
+    /**
+     * Histograma da quantidade de eventos por lote consumido.
+     *
+     * @return Histograma (eventos por lote).
+     */
+    long[] getHistogramaLote();
+
+    /**
+     * Histograma da latência (em microssegundos) de cada escrita
+     * do buffer no arquivo.
+     *
+     * @return Histograma (microssegundos por escrita).
+     */
+    long[] getHistogramaEscrita();
+
+    /**
+     * Histograma do tempo (em milissegundos) entre o registro do
+     * evento mais antigo de um lote e o término da escrita do lote,
+     * incluída a persistência conforme a {@link Durabilidade}.
+     *
+     * @return Histograma (milissegundos por lote).
+     */
+    long[] getHistogramaPersistencia();
+}
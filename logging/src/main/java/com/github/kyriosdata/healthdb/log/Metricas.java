@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Métricas do serviço de <i>logging</i>. Os registros são realizados
+ * exclusivamente pelo consumidor (única <i>thread</i>), ou seja, não
+ * há disputa. As consultas (JMX) podem ser feitas por qualquer
+ * <i>thread</i>.
+ */
+class Metricas implements LoggingMXBean {
+
+    /**
+     * Quantidade de faixas de cada histograma.
+     */
+    static final int FAIXAS = 32;
+
+    private final int capacidade;
+
+    private final IntSupplier ocupacao;
+
+    private final LongSupplier descartados;
+
+    private volatile long eventos;
+
+    private volatile long bytes;
+
+    private volatile long lotes;
+
+    private volatile long falhasDestino;
+
+    private volatile long falhasConsumo;
+
+    private volatile Throwable ultimaFalha;
+
+    private volatile double eventosPorSegundo;
+
+    private volatile double bytesPorSegundo;
+
+    private final AtomicLongArray lote = new AtomicLongArray(FAIXAS);
+
+    private final AtomicLongArray escrita = new AtomicLongArray(FAIXAS);
+
+    private final AtomicLongArray persistencia = new AtomicLongArray(FAIXAS);
+
+    /**
+     * Instante (nanossegundos) e totais da última amostra.
+     */
+    private long instanteAmostra = System.nanoTime();
+    private long eventosAmostra;
+    private long bytesAmostra;
+
+    /**
+     * Cria métricas para o serviço.
+     *
+     * @param capacidade Capacidade da estrutura circular.
+     * @param ocupacao Fornece a ocupação corrente da estrutura circular.
+     * @param descartados Fornece o total de eventos descartados.
+     */
+    Metricas(int capacidade, IntSupplier ocupacao, LongSupplier descartados) {
+        this.capacidade = capacidade;
+        this.ocupacao = ocupacao;
+        this.descartados = descartados;
+    }
+
+    /**
+     * Registra evento consumido.
+     */
+    void evento() {
+        eventos++;
+    }
+
+    /**
+     * Registra escrita no arquivo.
+     *
+     * @param total Bytes escritos.
+     * @param nanos Duração da escrita.
+     */
+    void escrita(int total, long nanos) {
+        bytes += total;
+        registra(escrita, nanos / 1000);
+    }
+
+    /**
+     * Registra lote consumido.
+     *
+     * @param total Eventos no lote.
+     * @param milis Tempo entre o registro do evento mais antigo do
+     *              lote e o término da escrita (persistência).
+     */
+    void lote(long total, long milis) {
+        lotes++;
+        registra(lote, total);
+        registra(persistencia, milis);
+    }
+
+    /**
+     * Registra falha de um destino ao receber um lote.
+     *
+     * @param falha Exceção (ou erro) lançada pelo destino.
+     */
+    void falhaDestino(Throwable falha) {
+        falhasDestino++;
+        ultimaFalha = falha;
+    }
+
+    /**
+     * Registra falha de uma execução do consumidor.
+     *
+     * @param falha Exceção (ou erro) que interrompeu a execução.
+     */
+    void falhaConsumo(Throwable falha) {
+        falhasConsumo++;
+        ultimaFalha = falha;
+    }
+
+    /**
+     * Apura as taxas (por segundo) desde a última amostra, caso
+     * tenha transcorrido pelo menos um segundo.
+     */
+    void amostra() {
+        long agora = System.nanoTime();
+        long decorrido = agora - instanteAmostra;
+        if (decorrido < 1_000_000_000L) {
+            return;
+        }
+
+        long e = eventos;
+        long b = bytes;
+        eventosPorSegundo = (e - eventosAmostra) * 1e9 / decorrido;
+        bytesPorSegundo = (b - bytesAmostra) * 1e9 / decorrido;
+
+        instanteAmostra = agora;
+        eventosAmostra = e;
+        bytesAmostra = b;
+    }
+
+    /**
+     * Faixa do histograma correspondente ao valor: 0 para valores
+     * inferiores a 1 e, para os demais, a quantidade de bits
+     * significativos.
+     */
+    static int faixa(long valor) {
+        if (valor <= 0) {
+            return 0;
+        }
+
+        return Math.min(FAIXAS - 1, 64 - Long.numberOfLeadingZeros(valor));
+    }
+
+    private static void registra(AtomicLongArray histograma, long valor) {
+        int i = faixa(valor);
+        histograma.lazySet(i, histograma.get(i) + 1);
+    }
+
+    private static long[] copia(AtomicLongArray histograma) {
+        long[] valores = new long[histograma.length()];
+        for (int i = 0; i < valores.length; i++) {
+            valores[i] = histograma.get(i);
+        }
+
+        return valores;
+    }
+
+    @Override
+    public long getEventos() {
+        return eventos;
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public double getEventosPorSegundo() {
+        return eventosPorSegundo;
+    }
+
+    @Override
+    public double getBytesPorSegundo() {
+        return bytesPorSegundo;
+    }
+
+    @Override
+    public int getOcupacao() {
+        return ocupacao.getAsInt();
+    }
+
+    @Override
+    public int getCapacidade() {
+        return capacidade;
+    }
+
+    @Override
+    public long getDescartados() {
+        return descartados.getAsLong();
+    }
+
+    @Override
+    public long getLotes() {
+        return lotes;
+    }
+
+    @Override
+    public long getFalhasDestino() {
+        return falhasDestino;
+    }
+
+    @Override
+    public long getFalhasConsumo() {
+        return falhasConsumo;
+    }
+
+    @Override
+    public String getUltimaFalha() {
+        Throwable falha = ultimaFalha;
+        return falha == null ? null : falha.toString();
+    }
+
+    @Override
+    public long[] getHistogramaLote() {
+        return copia(lote);
+    }
+
+    @Override
+    public long[] getHistogramaEscrita() {
+        return copia(escrita);
+    }
+
+    @Override
+    public long[] getHistogramaPersistencia() {
+        return copia(persistencia);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+/**
+ * Encaminha os registros de {@code java.util.logging} (JUL), empregado
+ * pela JDK e por bibliotecas de terceiros, para o serviço
+ * {@link Logging}. Dessa forma, todos os registros do processo
+ * compartilham a mesma estrutura circular, as mesmas políticas
+ * (por exemplo, {@link Transbordo}) e o mesmo arquivo, sem os
+ * bloqueios e a escrita síncrona dos <i>handlers</i> de JUL.
+ *
+ * <p>Cada <i>logger</i> de JUL corresponde a um {@link LogNomeado}
+ * de mesmo nome. Os níveis são mapeados da seguinte forma:
+ * {@link Level#SEVERE} para {@link Logging#FAIL},
+ * {@link Level#WARNING} para {@link Logging#WARN} e os demais para
+ * {@link Logging#INFO}. A mensagem (incluindo parâmetros) e a pilha
+ * da exceção associada são produzidas pelo consumidor.
+ *
+ * <p>Por padrão, apenas registros de nível {@link Level#INFO} ou
+ * superior são encaminhados (veja {@link #setLevel(Level)}).
+ */
+public class PonteJul extends Handler {
+
+    private final Logging logging;
+
+    /**
+     * Formata a mensagem (parâmetros e <i>resource bundle</i>).
+     * Empregado apenas pelo consumidor.
+     */
+    private final Formatter formatador = new SimpleFormatter();
+
+    /**
+     * Cria <i>handler</i> que encaminha registros para o serviço.
+     *
+     * @param logging Serviço para o qual registros são encaminhados.
+     */
+    public PonteJul(Logging logging) {
+        this.logging = logging;
+        setLevel(Level.INFO);
+    }
+
+    /**
+     * Substitui os <i>handlers</i> do <i>logger</i> raiz de JUL pela
+     * ponte para o serviço fornecido.
+     *
+     * @param logging Serviço para o qual registros são encaminhados.
+     *
+     * @return O <i>handler</i> instalado.
+     */
+    public static PonteJul instala(Logging logging) {
+        Logger raiz = Logger.getLogger("");
+        for (Handler handler : raiz.getHandlers()) {
+            raiz.removeHandler(handler);
+        }
+
+        PonteJul ponte = new PonteJul(logging);
+        raiz.addHandler(ponte);
+        return ponte;
+    }
+
+    /**
+     * Nível do serviço correspondente ao nível de JUL.
+     *
+     * @param level Nível de JUL.
+     *
+     * @return {@link Logging#FAIL}, {@link Logging#WARN} ou
+     * {@link Logging#INFO}.
+     */
+    static int nivel(Level level) {
+        int valor = level.intValue();
+        if (valor >= Level.SEVERE.intValue()) {
+            return Logging.FAIL;
+        }
+
+        if (valor >= Level.WARNING.intValue()) {
+            return Logging.WARN;
+        }
+
+        return Logging.INFO;
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (!isLoggable(record)) {
+            return;
+        }
+
+        String nome = record.getLoggerName();
+        LogNomeado logger = logging.logger(nome == null || nome.isEmpty() ? "jul" : nome);
+
+        logger.escreve(nivel(record.getLevel()),
+                sb -> sb.append(formatador.formatMessage(record)),
+                record.getThrown());
+    }
+
+    /**
+     * Aguarda até que os registros encaminhados estejam depositados
+     * no arquivo (veja {@link Logging#sincroniza()}).
+     */
+    @Override
+    public void flush() {
+        logging.sincroniza();
+    }
+
+    /**
+     * Nada a fazer, o ciclo de vida do serviço {@link Logging}
+     * independe da ponte.
+     */
+    @Override
+    public void close() {
+    }
+}
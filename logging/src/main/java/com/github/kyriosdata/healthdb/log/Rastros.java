@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Produz o texto correspondente à pilha de execução (<i>stack
+ * trace</i>) de uma exceção. Cada pilha recebe um identificador,
+ * conforme a sequência de <i>frames</i> (da exceção e das causas).
+ * Uma pilha é produzida por completo apenas na primeira ocorrência,
+ * nas demais apenas o identificador é produzido, seguido da
+ * descrição da exceção, por exemplo, "[stack #kq2x9c1-3]
+ * java.io.IOException: disco cheio".
+ *
+ * <p>O identificador é formado pela identificação da execução e
+ * pela sequência da pilha na execução. Como o arquivo de <i>log</i>
+ * é compartilhado por várias execuções (acréscimos), a referência
+ * a uma pilha identifica, sem ambiguidade, aquela produzida na
+ * mesma execução.
+ *
+ * <p>Empregado apenas pelo consumidor, ou seja, não é
+ * <i>thread-safe</i>.
+ */
+final class Rastros {
+
+    /**
+     * Quantidade máxima de pilhas identificadas. Após esse limite, as
+     * pilhas mais antigas são esquecidas (e, se voltarem a ocorrer,
+     * são produzidas novamente, com novo identificador).
+     */
+    static final int MAX_PILHAS = 1024;
+
+    /**
+     * Quantidade máxima de causas percorridas.
+     */
+    private static final int MAX_CAUSAS = 32;
+
+    private final Map<Long, Integer> pilhas = new LinkedHashMap<Long, Integer>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+            return size() > MAX_PILHAS;
+        }
+    };
+
+    private int proximo = 1;
+
+    /**
+     * Início do identificador de cada pilha, incluída a
+     * identificação da execução.
+     */
+    private final String prefixo;
+
+    /**
+     * Cria instância para a execução indicada.
+     *
+     * @param execucao Identificação da execução (sem espaços), por
+     *                 exemplo, um valor aleatório em base 36.
+     */
+    Rastros(String execucao) {
+        prefixo = "\n[stack #" + execucao + "-";
+    }
+
+    /**
+     * Acrescenta ao texto a pilha de execução da exceção, precedida
+     * por nova linha.
+     *
+     * @param sb Texto ao qual a pilha é acrescentada.
+     * @param erro Exceção cuja pilha é produzida.
+     */
+    void anexa(StringBuilder sb, Throwable erro) {
+        StackTraceElement[][] frames = new StackTraceElement[MAX_CAUSAS][];
+        Throwable[] causas = new Throwable[MAX_CAUSAS];
+        int total = causas(erro, causas, frames);
+
+        long hash = hash(causas, frames, total);
+        Integer id = pilhas.get(hash);
+
+        sb.append(prefixo);
+        if (id != null) {
+            sb.append(id).append("] ").append(erro);
+            return;
+        }
+
+        id = proximo++;
+        pilhas.put(hash, id);
+        sb.append(id).append("] ").append(erro);
+
+        StackTraceElement[] anterior = null;
+        for (int c = 0; c < total; c++) {
+            StackTraceElement[] atual = frames[c];
+
+            // Frames comuns com a exceção anterior (envolvente) são omitidos
+            int comuns = anterior == null ? 0 : comuns(atual, anterior);
+
+            if (c > 0) {
+                sb.append("\nCaused by: ").append(causas[c]);
+            }
+
+            for (int i = 0; i < atual.length - comuns; i++) {
+                sb.append("\n\tat ").append(atual[i]);
+            }
+
+            if (comuns > 0) {
+                sb.append("\n\t... ").append(comuns).append(" more");
+            }
+
+            anterior = atual;
+        }
+    }
+
+    /**
+     * Obtém a exceção e as respectivas causas (sem ciclos).
+     *
+     * @return Quantidade de exceções obtidas.
+     */
+    private static int causas(Throwable erro, Throwable[] causas, StackTraceElement[][] frames) {
+        Map<Throwable, Boolean> vistas = new IdentityHashMap<>();
+        int total = 0;
+        Throwable corrente = erro;
+        while (corrente != null && total < MAX_CAUSAS && vistas.put(corrente, Boolean.TRUE) == null) {
+            causas[total] = corrente;
+            frames[total] = corrente.getStackTrace();
+            total++;
+            corrente = corrente.getCause();
+        }
+
+        return total;
+    }
+
+    /**
+     * Hash (64 bits) das classes e dos frames das exceções.
+     */
+    private static long hash(Throwable[] causas, StackTraceElement[][] frames, int total) {
+        long h = 1125899906842597L;
+        for (int c = 0; c < total; c++) {
+            h = 31 * h + causas[c].getClass().getName().hashCode();
+            for (StackTraceElement frame : frames[c]) {
+                h = 31 * h + frame.hashCode();
+            }
+        }
+
+        // Espalha os bits (finalizador do MurmurHash3)
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Quantidade de frames finais comuns às duas pilhas.
+     */
+    private static int comuns(StackTraceElement[] atual, StackTraceElement[] anterior) {
+        int i = atual.length - 1;
+        int j = anterior.length - 1;
+        while (i >= 0 && j >= 0 && atual[i].equals(anterior[j])) {
+            i--;
+            j--;
+        }
+
+        return atual.length - 1 - i;
+    }
+}
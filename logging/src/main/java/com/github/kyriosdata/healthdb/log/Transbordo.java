@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+/**
+ * Política adotada quando um evento é registrado e não há
+ * entrada disponível na estrutura circular compartilhada entre
+ * produtores e consumidor (consumidor não acompanha a produção).
+ *
+ * <p>Exceto por {@link #BLOQUEIA}, as políticas asseguram que
+ * o registro de um evento nunca aguarda pelo meio secundário.
+ * Eventos descartados são contabilizados e informados, por meio
+ * de um aviso (WARN), assim que a pressão diminui.
+ *
+ * @see Logging#transbordo(Transbordo)
+ */
+public enum Transbordo {
+
+    /**
+     * Produtor aguarda (e eventualmente consome) até que uma
+     * entrada esteja disponível. Nenhum evento é perdido.
+     */
+    BLOQUEIA,
+
+    /**
+     * O evento que não encontra entrada disponível é descartado.
+     */
+    DESCARTA_NOVO,
+
+    /**
+     * Eventos de menor nível são descartados primeiro: INFO é
+     * descartado quando a ocupação ultrapassa 75%, WARN quando não
+     * há entrada disponível e FAIL nunca é descartado (aguarda).
+     */
+    DESCARTA_MENOR_NIVEL,
+
+    /**
+     * O evento é depositado em fila secundária (memória) de
+     * capacidade limitada, consumida juntamente com os demais
+     * eventos. Descartado apenas se a fila secundária está cheia.
+     */
+    FILA_SECUNDARIA
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+/**
+ * Codificação UTF-8 sem alocação de memória, em substituição
+ * a {@link String#getBytes(java.nio.charset.Charset)}.
+ *
+ * <p>Caracteres "surrogate" sem par são substituídos por '?',
+ * comportamento idêntico àquele de {@code getBytes}.
+ */
+final class Utf8 {
+
+    private Utf8() {
+    }
+
+    /**
+     * Quantidade de bytes necessária para codificar a sequência
+     * de caracteres em UTF-8.
+     *
+     * @param s Sequência de caracteres.
+     *
+     * @return Total de bytes da sequência codificada.
+     */
+    static int tamanho(CharSequence s) {
+        int length = s.length();
+        int total = length;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+
+            if (c < 0x800) {
+                total += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                // Par de caracteres (2) produz 4 bytes
+                total += 2;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // Substituído por '?'
+                continue;
+            } else {
+                total += 2;
+            }
+        }
+
+        return total;
+    }
+
+    /**
+     * Deposita no vetor, a partir da posição indicada, a sequência
+     * de caracteres codificada em UTF-8. O vetor deve possuir
+     * espaço suficiente, conforme {@link #tamanho(CharSequence)}.
+     *
+     * @param s Sequência de caracteres.
+     * @param destino Vetor no qual os bytes serão depositados.
+     * @param posicao Posição inicial no vetor.
+     *
+     * @return Posição no vetor imediatamente após o último byte
+     * depositado.
+     */
+    static int codifica(CharSequence s, byte[] destino, int posicao) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                destino[posicao++] = (byte) c;
+            } else if (c < 0x800) {
+                destino[posicao++] = (byte) (0xC0 | (c >> 6));
+                destino[posicao++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                destino[posicao++] = (byte) (0xF0 | (cp >> 18));
+                destino[posicao++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                destino[posicao++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                destino[posicao++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                destino[posicao++] = '?';
+            } else {
+                destino[posicao++] = (byte) (0xE0 | (c >> 12));
+                destino[posicao++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                destino[posicao++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        return posicao;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Verifica, em uma única leitura sequencial, a cadeia de resumos
+ * de um arquivo de <i>log</i> produzido com
+ * {@link Logging#auditoria(boolean)}.
+ *
+ * <p>Cada elo é recalculado a partir dos bytes lidos e comparado
+ * com aquele registrado. Há uma única cadeia por arquivo, que
+ * abrange todos os inícios do serviço, ou seja, todo byte que
+ * precede um elo é protegido por ele, e a remoção de um trecho
+ * qualquer (inclusive de uma execução inteira) é uma divergência.
+ * Apenas os bytes que sucedem o último elo do arquivo não são
+ * protegidos, e são contabilizados em {@link #naoVerificados()}.
+ *
+ * <p>A remoção do final do arquivo, a partir de um elo, não é
+ * detectável pelo próprio arquivo. Para tanto, o último elo
+ * ({@link #ultimoElo()}) deve ser comparado com aquele registrado
+ * externamente (outro sistema, por exemplo). A verificação também
+ * está disponível pela linha de comandos:
+ * <pre>
+ * java com.github.kyriosdata.healthdb.log.VerificadorAuditoria app.log
+ * </pre>
+ */
+public class VerificadorAuditoria {
+
+    private long elos;
+
+    private String ultimoElo;
+
+    private long naoVerificados;
+
+    private String falha;
+
+    /**
+     * Verifica o arquivo indicado.
+     *
+     * @param arquivo Arquivo de <i>log</i> a ser verificado.
+     *
+     * @return {@code true} se e somente se todos os elos são
+     * válidos.
+     *
+     * @throws IOException Se o arquivo não pode ser lido.
+     */
+    public boolean verifica(String arquivo) throws IOException {
+        try (InputStream in = Files.newInputStream(Paths.get(arquivo))) {
+            return verifica(in);
+        }
+    }
+
+    /**
+     * Verifica o conteúdo fornecido. A entrada não é fechada.
+     *
+     * @param entrada Conteúdo de um arquivo de <i>log</i>.
+     *
+     * @return {@code true} se e somente se todos os elos são
+     * válidos. Em caso contrário, a primeira divergência é
+     * descrita por {@link #falha()}.
+     *
+     * @throws IOException Se a entrada não pode ser lida.
+     */
+    public boolean verifica(InputStream entrada) throws IOException {
+        elos = 0;
+        ultimoElo = null;
+        naoVerificados = 0;
+        falha = null;
+
+        CadeiaAuditoria cadeia = new CadeiaAuditoria();
+        long esperada = 0;
+        long posicao = 0;
+
+        // Bytes após o último elo
+        long pendentes = 0;
+
+        byte[] linha = new byte[256];
+        int tamanho = 0;
+
+        byte[] bloco = new byte[64 * 1024];
+        int lidos;
+        while ((lidos = entrada.read(bloco)) != -1) {
+            for (int i = 0; i < lidos; i++) {
+                byte b = bloco[i];
+                if (tamanho == linha.length) {
+                    linha = Arrays.copyOf(linha, tamanho * 2);
+                }
+
+                linha[tamanho++] = b;
+                if (b != '\n') {
+                    continue;
+                }
+
+                if (!CadeiaAuditoria.ehElo(linha, 0, tamanho)) {
+                    cadeia.resume(linha, 0, tamanho);
+                    pendentes += tamanho;
+                } else {
+                    long sequencia = CadeiaAuditoria.sequencia(linha, 0, tamanho);
+                    if (sequencia != esperada) {
+                        return diverge(posicao, "sequência " + sequencia + " (esperada " + esperada + ")");
+                    }
+
+                    byte[] calculado = cadeia.elo();
+                    if (calculado.length != tamanho || !iguais(calculado, linha, tamanho)) {
+                        return diverge(posicao, "resumo inválido no elo " + sequencia);
+                    }
+
+                    elos++;
+                    esperada++;
+                    pendentes = 0;
+                    ultimoElo = new String(linha, 0, tamanho - 1, StandardCharsets.US_ASCII);
+                }
+
+                posicao += tamanho;
+                tamanho = 0;
+            }
+        }
+
+        naoVerificados = pendentes + tamanho;
+        return true;
+    }
+
+    private boolean diverge(long posicao, String descricao) {
+        falha = "posição " + posicao + ": " + descricao;
+        return false;
+    }
+
+    private static boolean iguais(byte[] a, byte[] b, int tamanho) {
+        for (int i = 0; i < tamanho; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Quantidade de elos válidos na última verificação.
+     *
+     * @return Total de elos verificados.
+     */
+    public long elos() {
+        return elos;
+    }
+
+    /**
+     * Último elo válido na última verificação, sem o caractere de
+     * nova linha. Permite a comparação com elo registrado
+     * externamente, o que torna evidente a remoção do final do
+     * arquivo.
+     *
+     * @return Linha do último elo ou {@code null}, se não há.
+     */
+    public String ultimoElo() {
+        return ultimoElo;
+    }
+
+    /**
+     * Quantidade de bytes, ao final do arquivo, não protegidos
+     * por elo.
+     *
+     * @return Total de bytes após o último elo.
+     */
+    public long naoVerificados() {
+        return naoVerificados;
+    }
+
+    /**
+     * Descrição da primeira divergência encontrada na última
+     * verificação.
+     *
+     * @return Descrição da divergência ou {@code null}, se não há.
+     */
+    public String falha() {
+        return falha;
+    }
+
+    /**
+     * Verifica o arquivo fornecido (primeiro argumento). O código de
+     * saída é 0 se a cadeia é válida e 1, em caso contrário.
+     *
+     * @param args Arquivo de <i>log</i> a ser verificado.
+     *
+     * @throws IOException Se o arquivo não pode ser lido.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("uso: VerificadorAuditoria arquivo");
+            return;
+        }
+
+        VerificadorAuditoria verificador = new VerificadorAuditoria();
+        if (verificador.verifica(args[0])) {
+            System.out.println("válido: " + verificador.elos() + " elos, "
+                    + verificador.naoVerificados() + " bytes não verificados");
+            System.out.println("último elo: " + verificador.ultimoElo());
+        } else {
+            System.out.println("inválido: " + verificador.falha());
+            System.exit(1);
+        }
+    }
+}
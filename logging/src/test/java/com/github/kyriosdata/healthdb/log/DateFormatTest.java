@@ -6,6 +6,8 @@ import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 
+import java.time.format.DateTimeFormatter;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class DateFormatTest {
@@ -26,4 +28,50 @@ public class DateFormatTest {
 
         assertEquals(ofdt.toString(), strBytes);
     }
+
+    @Test
+    public void datasDistantesEViradaDoDia() {
+        DateFormat fmt = new DateFormat();
+
+        long[] instantes = {
+                0L, -1L, 951_782_400_000L, 951_868_799_999L, 951_868_800_000L,
+                4_107_542_399_999L, 253_402_300_799_999L, -62_135_596_800_000L };
+
+        for (long instante : instantes) {
+            String esperado = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
+                    .format(OffsetDateTime.ofInstant(Instant.ofEpochMilli(instante), ZoneOffset.UTC));
+            assertEquals(esperado, new String(fmt.toBytes(instante), 0, 24));
+        }
+    }
+
+    @Test
+    public void sequenciaDeInstantesNoMesmoSegundoEEntreDias() {
+        DateFormat fmt = new DateFormat();
+        DateTimeFormatter micros = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'");
+
+        // Atravessa a meia-noite de 31/12/2016 em passos de 0,7s
+        long inicio = 1_483_228_795_000_000L;
+        for (long t = inicio; t < inicio + 10_000_000L; t += 700_001L) {
+            Instant instant = Instant.ofEpochSecond(t / 1_000_000, (t % 1_000_000) * 1000);
+            String esperado = micros.format(OffsetDateTime.ofInstant(instant, ZoneOffset.UTC));
+            assertEquals(esperado, new String(fmt.toBytesMicros(t), 0, 27));
+        }
+    }
+
+    @Test
+    public void nanossegundos() {
+        DateFormat fmt = new DateFormat();
+
+        long nanos = 1_480_000_000_123_456_789L;
+        assertEquals("2016-11-24T15:06:40.123456789Z", new String(fmt.toBytesNanos(nanos), 0, 30));
+        assertEquals("2016-11-24T15:06:40.000000001Z",
+                new String(fmt.toBytesNanos(1_480_000_000_000_000_001L), 0, 30));
+    }
+
+    @Test
+    public void millisDesdeMeiaNoite() {
+        DateFormat fmt = new DateFormat();
+        assertEquals(1, fmt.millisSinceMidnight(86_400_001L));
+        assertEquals(86_399_999, fmt.millisSinceMidnight(-1L));
+    }
 }
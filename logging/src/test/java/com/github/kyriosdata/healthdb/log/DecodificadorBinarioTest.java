@@ -0,0 +1,147 @@
+package com.github.kyriosdata.healthdb.log;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DecodificadorBinarioTest {
+
+    private String dir = getClass().getResource(".").getFile();
+
+    @Test
+    public void binarioConvertidoEquivaleAoTexto() throws Exception {
+        long instante = 1_480_000_000_123L;
+
+        Codificador binario = new Codificador(Formato.BINARIO);
+        int total = binario.codifica(instante, 2, null, "saúde 😀");
+        byte[] registro = new byte[total];
+        System.arraycopy(binario.bytes(), 0, registro, 0, total);
+
+        // 8 (instante) + 1 (nível) + 1 (varint) + payload
+        int payload = "saúde 😀".getBytes(StandardCharsets.UTF_8).length;
+        assertEquals(10 + payload, total);
+
+        Codificador texto = new Codificador(Formato.TEXTO);
+        int totalTexto = texto.codifica(instante, 2, null, "saúde 😀");
+        String esperado = new String(texto.bytes(), 0, totalTexto, StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long registros = new DecodificadorBinario().decodifica(new ByteArrayInputStream(registro), out);
+
+        assertEquals(1, registros);
+        assertEquals(esperado, out.toString("UTF-8"));
+        assertEquals("2016-11-24T15:06:40.123Z FAIL saúde 😀\n", esperado);
+    }
+
+    @Test
+    public void registroIncompletoGeraExcecao() {
+        Codificador binario = new Codificador(Formato.BINARIO);
+        int total = binario.codifica(0, 0, null, "incompleto");
+
+        ByteArrayInputStream in = new ByteArrayInputStream(binario.bytes(), 0, total - 1);
+        assertThrows(EOFException.class,
+                () -> new DecodificadorBinario().decodifica(in, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public void mensagemLongaVarintVariosBytes() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+
+        Codificador binario = new Codificador(Formato.BINARIO);
+        int total = binario.codifica(0, 1, null, sb.toString());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DecodificadorBinario().decodifica(new ByteArrayInputStream(binario.bytes(), 0, total), out);
+
+        String linha = out.toString("UTF-8");
+        assertTrue(linha.endsWith(" WARN " + sb + "\n"));
+    }
+
+    @Test
+    public void loggingEmFormatoBinario() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.formato(Formato.BINARIO);
+        log.start(fn);
+
+        log.info("primeira");
+        log.fail("segunda");
+        log.close();
+
+        byte[] conteudo = Files.readAllBytes(Paths.get(fn));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long registros = new DecodificadorBinario().decodifica(new ByteArrayInputStream(conteudo), out);
+
+        // Inclui aviso de encerramento do serviço
+        assertEquals(3, registros);
+
+        String[] linhas = out.toString("UTF-8").split("\n");
+        assertTrue(linhas[0].endsWith(" INFO primeira"));
+        assertTrue(linhas[1].endsWith(" FAIL segunda"));
+        assertTrue(linhas[2].endsWith(" WARN shutting down logging service..."));
+    }
+
+    @Test
+    public void instanteEmMicrossegundos() throws Exception {
+        long micros = 1_480_000_000_123_456L;
+
+        Codificador binario = new Codificador(Formato.BINARIO, true);
+        int total = binario.codifica(micros, 1, null, "micro");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DecodificadorBinario().decodifica(new ByteArrayInputStream(binario.bytes(), 0, total), out);
+
+        assertEquals("2016-11-24T15:06:40.123456Z WARN micro\n", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void nivelDesconhecidoGeraExcecao() {
+        Codificador binario = new Codificador(Formato.BINARIO);
+        int total = binario.codifica(0, 0, null, "nivel");
+        byte[] registro = new byte[total];
+        System.arraycopy(binario.bytes(), 0, registro, 0, total);
+        registro[8] = 3;
+
+        IOException e = assertThrows(IOException.class, () -> new DecodificadorBinario()
+                .decodifica(new ByteArrayInputStream(registro), new ByteArrayOutputStream()));
+        assertTrue(e.getMessage().startsWith("nível inválido"));
+    }
+
+    @Test
+    public void tamanhoCorrompidoGeraExcecao() {
+        // Instante, nível e varint correspondente a -1
+        byte[] negativo = {0, 0, 0, 0, 0, 0, 0, 0, 0,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F};
+        IOException e = assertThrows(IOException.class, () -> new DecodificadorBinario()
+                .decodifica(new ByteArrayInputStream(negativo), new ByteArrayOutputStream()));
+        assertTrue(e.getMessage().startsWith("tamanho inválido"));
+
+        // Varint correspondente a 0x7FFFFFFF
+        byte[] enorme = {0, 0, 0, 0, 0, 0, 0, 0, 0,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        e = assertThrows(IOException.class, () -> new DecodificadorBinario()
+                .decodifica(new ByteArrayInputStream(enorme), new ByteArrayOutputStream()));
+        assertTrue(e.getMessage().startsWith("tamanho inválido"));
+
+        // Tamanho admitido, mas não disponível na entrada: nenhuma
+        // alocação do tamanho declarado
+        byte[] ausente = {0, 0, 0, 0, 0, 0, 0, 0, 0,
+                (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x1F, 'a', 'b'};
+        assertThrows(EOFException.class, () -> new DecodificadorBinario()
+                .decodifica(new ByteArrayInputStream(ausente), new ByteArrayOutputStream()));
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.kyriosdata.healthdb.log;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DestinosTest {
+
+    private String dir = getClass().getResource(".").getFile();
+
+    @Test
+    public void memoriaRetemApenasOsUltimosBytes() {
+        DestinoMemoria memoria = new DestinoMemoria(8);
+
+        memoria.acrescenta(ByteBuffer.wrap("abcde".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("abcde", new String(memoria.ultimos(), StandardCharsets.UTF_8));
+
+        memoria.acrescenta(ByteBuffer.wrap("fghij".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("cdefghij", new String(memoria.ultimos(), StandardCharsets.UTF_8));
+
+        memoria.acrescenta(ByteBuffer.wrap("0123456789xy".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("456789xy", new String(memoria.ultimos(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void mesmoConteudoEmTodosOsDestinos() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        DestinoMemoria memoria = new DestinoMemoria(64 * 1024);
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+
+        Logging log = new Logging();
+        log.acrescentaDestino(memoria);
+        log.acrescentaDestino(new DestinoConsole(new PrintStream(console)));
+        log.start(fn);
+
+        log.info("primeira");
+        log.warn("segunda");
+        log.close();
+
+        byte[] arquivo = Files.readAllBytes(Paths.get(fn));
+        assertTrue(new String(arquivo, StandardCharsets.UTF_8).contains(" INFO primeira\n"));
+        assertArrayEquals(arquivo, memoria.ultimos());
+        assertArrayEquals(arquivo, console.toByteArray());
+    }
+
+    @Test
+    public void destinoLentoNaoBloqueiaEDescarta() throws Exception {
+        CountDownLatch libera = new CountDownLatch(1);
+        DestinoMemoria memoria = new DestinoMemoria(1024);
+
+        Destino lento = new Destino() {
+            @Override
+            public void acrescenta(ByteBuffer buffer) {
+                try {
+                    libera.await();
+                } catch (InterruptedException exp) {
+                    Thread.currentThread().interrupt();
+                }
+
+                memoria.acrescenta(buffer);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        DestinoAssincrono assincrono = new DestinoAssincrono(lento, 2);
+
+        // Primeiro lote retido pela thread, dois na fila, demais descartados
+        for (int i = 0; i < 10; i++) {
+            assincrono.acrescenta(ByteBuffer.wrap(new byte[] { (byte) ('0' + i) }));
+            Thread.sleep(5);
+        }
+
+        assertTrue(assincrono.descartados() >= 7);
+
+        libera.countDown();
+        assincrono.close();
+
+        long entregues = memoria.ultimos().length;
+        assertEquals(10, entregues + assincrono.descartados());
+        assertEquals('0', memoria.ultimos()[0]);
+    }
+
+    @Test
+    public void destinoComFalhaNaoAfetaDemais() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        DestinoMemoria memoria = new DestinoMemoria(1024 * 1024);
+        Destino falho = new Destino() {
+            @Override
+            public void acrescenta(ByteBuffer buffer) {
+                throw new IllegalStateException("destino indisponível");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        Logging log = new Logging();
+        log.acrescentaDestino(falho);
+        log.acrescentaDestino(memoria);
+        log.start(fn);
+
+        // Produtores não aguardam indefinidamente pelo consumidor
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < 10_000; i++) {
+                log.info("evento " + i);
+            }
+        });
+
+        log.close();
+
+        byte[] arquivo = Files.readAllBytes(Paths.get(fn));
+        assertTrue(new String(arquivo, StandardCharsets.UTF_8).contains(" INFO evento 9999\n"));
+        assertArrayEquals(arquivo, memoria.ultimos());
+        assertTrue(log.metricas().getFalhasDestino() > 0);
+        assertEquals("java.lang.IllegalStateException: destino indisponível", log.metricas().getUltimaFalha());
+    }
+}
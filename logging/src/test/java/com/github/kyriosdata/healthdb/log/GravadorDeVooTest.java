@@ -0,0 +1,116 @@
+package com.github.kyriosdata.healthdb.log;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GravadorDeVooTest {
+
+    private String dir = getClass().getResource(".").getFile();
+
+    private static String recupera(String arquivo) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GravadorDeVoo.recupera(arquivo, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void recuperaApenasOsRegistrosMaisRecentes() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        GravadorDeVoo gravador = new GravadorDeVoo(fn, 220);
+        for (int i = 0; i < 50; i++) {
+            byte[] linha = ("linha " + i + "\n").getBytes(StandardCharsets.UTF_8);
+            gravador.grava(linha, 0, linha.length);
+        }
+
+        // 220 bytes comportam os 10 últimos registros completos
+        // (prefixo de 12 bytes e linha de 9 bytes)
+        String[] linhas = recupera(fn).split("\n");
+        assertEquals(10, linhas.length);
+        assertEquals("linha 40", linhas[0]);
+        assertEquals("linha 49", linhas[9]);
+    }
+
+    @Test
+    public void registroIncompletoDescartado() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        GravadorDeVoo gravador = new GravadorDeVoo(fn, 220);
+        for (int i = 0; i < 50; i++) {
+            byte[] linha = ("linha " + i + "\n").getBytes(StandardCharsets.UTF_8);
+            gravador.grava(linha, 0, linha.length);
+        }
+
+        // Gravação não concluída sobre registro anterior (sem zeros)
+        byte[] conteudo = Files.readAllBytes(Paths.get(fn));
+        String texto = new String(conteudo, StandardCharsets.ISO_8859_1);
+        int posicao = texto.indexOf("linha 45");
+        conteudo[posicao + 7] = 'X';
+        Files.write(Paths.get(fn), conteudo);
+
+        String recuperado = recupera(fn);
+        assertEquals(9, recuperado.split("\n").length);
+        assertFalse(recuperado.contains("linha 4X"));
+        assertTrue(recuperado.contains("linha 44\nlinha 46\n"));
+    }
+
+    @Test
+    public void registrosSobrevivemSemEncerramento() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+        String voo = fn + ".voo";
+
+        Logging log = new Logging();
+        log.codificacaoNoProdutor(4096);
+        log.latenciaMaxima(10_000);
+        log.gravadorDeVoo(voo, 4096);
+        log.start(fn);
+
+        log.info("antes da queda");
+        log.fail("última mensagem");
+
+        // Sem close(): o conteúdo disponível é aquele do arquivo mapeado
+        String conteudo = recupera(voo);
+        assertTrue(conteudo.contains(" INFO antes da queda\n"));
+        assertTrue(conteudo.endsWith(" FAIL última mensagem\n"));
+
+        log.close();
+
+        // Nova execução preserva o arquivo anterior
+        new GravadorDeVoo(voo, 4096);
+        assertTrue(Files.exists(Paths.get(voo + ".anterior")));
+        assertEquals("", recupera(voo));
+    }
+
+    @Test
+    public void arquivoNaoProduzidoPeloGravador() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+        Files.write(Paths.get(fn), new byte[64]);
+
+        assertThrows(IOException.class, () -> recupera(fn));
+    }
+
+    @Test
+    public void gravadorRejeitadoEmFormatoBinario() {
+        String fn = dir + UUID.randomUUID().toString();
+        String gravador = fn + ".voo";
+
+        Logging log = new Logging();
+        log.formato(Formato.BINARIO);
+        log.gravadorDeVoo(gravador, 4096);
+
+        assertThrows(IllegalStateException.class, () -> log.start(fn));
+        assertFalse(Files.exists(Paths.get(fn)));
+        assertFalse(Files.exists(Paths.get(gravador)));
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.kyriosdata.healthdb.log;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LeitorLogTest {
+
+    private static final long BASE = 1_480_000_000_000L;
+
+    private String dir = getClass().getResource(".").getFile();
+
+    /**
+     * Produz 5.000 registros, um a cada 10ms, e, a cada 100 registros,
+     * uma falha com pilha de execução (linhas de continuação).
+     */
+    private String produz(long intervaloIndice) throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        AtomicLong chamadas = new AtomicLong();
+        Logging log = new Logging(() -> BASE + 10 * chamadas.getAndIncrement());
+        log.indice(intervaloIndice);
+        log.start(fn);
+
+        for (int i = 0; i < 5_000; i++) {
+            if (i % 100 == 0) {
+                log.fail("evento " + i, new IllegalStateException("falha " + i));
+            } else {
+                log.info("evento " + i);
+            }
+        }
+
+        log.close();
+        return fn;
+    }
+
+    private static List<String> esperado(String fn, long desde, long ate) throws Exception {
+        DateFormat fmt = new DateFormat();
+        String inicio = new String(fmt.toBytes(desde), 0, 24);
+        String fim = new String(fmt.toBytes(ate), 0, 24);
+
+        List<String> linhas = new ArrayList<>();
+        boolean dentro = false;
+        for (String linha : Files.readAllLines(Paths.get(fn))) {
+            if (linha.length() > 23 && linha.charAt(10) == 'T' && linha.charAt(4) == '-') {
+                String ts = linha.substring(0, 24);
+                dentro = ts.compareTo(inicio) >= 0 && ts.compareTo(fim) < 0;
+            }
+
+            if (dentro) {
+                linhas.add(linha);
+            }
+        }
+
+        return linhas;
+    }
+
+    private static void confere(String fn) throws Exception {
+        long[][] intervalos = {
+                { BASE, BASE + 10 },
+                { BASE + 995, BASE + 2_005 },
+                { BASE + 10_000, BASE + 10_001 },
+                { BASE + 10_001, BASE + 10_009 },
+                { BASE - 1_000, BASE + 100_000 },
+                { BASE + 49_990, BASE + 60_000 },
+                { BASE + 60_000, BASE + 70_000 } };
+
+        try (LeitorLog leitor = new LeitorLog(fn)) {
+            for (long[] intervalo : intervalos) {
+                List<String> obtidas = new ArrayList<>();
+                leitor.linhas(intervalo[0], intervalo[1], obtidas::add);
+                assertEquals(esperado(fn, intervalo[0], intervalo[1]), obtidas);
+            }
+
+            assertEquals(0, leitor.posicao(BASE - 1));
+            assertEquals(leitor.tamanho(), leitor.posicao(BASE + 1_000_000));
+        }
+    }
+
+    @Test
+    public void buscaBinariaSemIndice() throws Exception {
+        String fn = produz(0);
+        assertFalse(Files.exists(Paths.get(fn + ".idx")));
+        confere(fn);
+    }
+
+    @Test
+    public void buscaBinariaComIndiceEsparso() throws Exception {
+        String fn = produz(1000);
+
+        // Uma entrada por segundo (registros a cada 10ms durante 50s)
+        long entradas = Files.size(Paths.get(fn + ".idx")) / 16;
+        assertTrue(entradas >= 49 && entradas <= 52, "entradas: " + entradas);
+        confere(fn);
+    }
+
+    @Test
+    public void indiceRejeitadoEmFormatoBinario() {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.formato(Formato.BINARIO);
+        log.indice(1000);
+
+        assertThrows(IllegalStateException.class, () -> log.start(fn));
+        assertFalse(Files.exists(Paths.get(fn)));
+    }
+}
@@ -1,14 +1,34 @@
 package com.github.kyriosdata.healthdb.log;
 
+import com.github.kyriosdata.healthdb.api.Clock;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Test;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 public class LoggingTest {
 
@@ -54,6 +74,146 @@ public class LoggingTest {
         log.close();
     }
 
+    @Test
+    public void durabilidadePorLote() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.durabilidade(Durabilidade.LOTE, 0);
+        log.start(fn);
+
+        geraLogsEmVariasThreads(() -> {
+            for (int i = 0; i < 100; i++) {
+                log.warn("auditoria");
+                assertTrue(log.sincroniza());
+            }
+        });
+
+        // Eventos já persistidos antes do encerramento
+        long linhas = Files.lines(Paths.get(fn)).count();
+        assertEquals(20 * 100, linhas);
+
+        log.close();
+    }
+
+    @Test
+    public void falhaDeEscritaInformadaPorSincroniza() throws Exception {
+        assumeTrue(Files.isWritable(Paths.get("/dev/full")));
+
+        // Escrita sempre falha (sem espaço). Sem persistência forçada,
+        // apenas a escrita pode indicar a falha.
+        Logging log = new Logging();
+        log.start("/dev/full");
+
+        log.warn("perdido");
+        assertFalse(log.sincroniza());
+
+        log.close();
+    }
+
+    @Test
+    public void descartaNovosQuandoCheioEInformaTotal() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.transbordo(Transbordo.DESCARTA_NOVO);
+        log.start(fn);
+
+        for (int i = 0; i < 5_000; i++) {
+            log.info("evento " + i);
+        }
+
+        log.close();
+
+        List<String> linhas = Files.readAllLines(Paths.get(fn));
+        long registrados = linhas.stream().filter(l -> l.contains(" INFO evento ")).count();
+
+        // O consumidor pode informar descartes em mais de um aviso
+        long descartados = 0;
+        for (String aviso : linhas) {
+            if (aviso.contains("events dropped")) {
+                int inicio = aviso.indexOf("INFO=") + 5;
+                descartados += Long.parseLong(aviso.substring(inicio, aviso.indexOf(' ', inicio)));
+            }
+        }
+
+        assertTrue(descartados > 0);
+        assertEquals(5_000, registrados + descartados);
+    }
+
+    @Test
+    public void filaSecundariaEvitaDescarte() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.transbordo(Transbordo.FILA_SECUNDARIA);
+        log.start(fn);
+
+        for (int i = 0; i < 3_000; i++) {
+            log.info("evento " + i);
+        }
+
+        assertEquals(0, log.descartados());
+
+        log.close();
+
+        long registrados = Files.lines(Paths.get(fn))
+                .filter(l -> l.contains(" INFO evento "))
+                .count();
+        assertEquals(3_000, registrados);
+    }
+
+    @Test
+    public void sincronizaAguardaFilaSecundaria() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.transbordo(Transbordo.FILA_SECUNDARIA);
+        log.start(fn);
+
+        for (int i = 0; i < 3_000; i++) {
+            log.info("evento " + i);
+        }
+
+        // Eventos transbordados depositados antes do encerramento
+        assertTrue(log.sincroniza());
+        long registrados = Files.lines(Paths.get(fn))
+                .filter(l -> l.contains(" INFO evento "))
+                .count();
+        assertEquals(3_000, registrados);
+
+        log.close();
+    }
+
+    @Test
+    public void registradoresNomeadosComNivelProprio() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.start(fn);
+
+        LogNomeado file = log.logger("file");
+        assertSame(file, log.logger("file"));
+
+        file.info("visivel");
+        log.nivel("file", Logging.WARN);
+        assertFalse(file.habilitado(Logging.INFO));
+        file.info("invisivel");
+        file.warn("aviso");
+
+        log.nivel(Logging.FAIL);
+        log.info("invisivel");
+        log.fail("falha");
+
+        log.close();
+
+        List<String> linhas = Files.readAllLines(Paths.get(fn));
+        assertEquals(3, linhas.size());
+        assertTrue(linhas.get(0).endsWith(" INFO [file] visivel"));
+        assertTrue(linhas.get(1).endsWith(" WARN [file] aviso"));
+        assertTrue(linhas.get(2).endsWith(" FAIL falha"));
+    }
+
     @Test
     public void log4j() {
         System.setProperty("async.log", dir + "async.log");
@@ -108,5 +268,387 @@ public class LoggingTest {
         String recuperado = new String(buffer.array(), "UTF-8");
         assertEquals("saúdevida", recuperado);
     }
-}
 
+    @Test
+    public void metricasDisponiveisViaJmx() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+
+        Logging log = new Logging();
+        log.start(fn);
+
+        ObjectName nome = new ObjectName("com.github.kyriosdata.healthdb.log:type=Logging,name="
+                + ObjectName.quote(fn));
+        assertTrue(servidor.isRegistered(nome));
+
+        for (int i = 0; i < 100; i++) {
+            log.info("evento " + i);
+        }
+
+        log.sincroniza();
+
+        LoggingMXBean metricas = log.metricas();
+        assertEquals(100, metricas.getEventos());
+        assertEquals(Files.size(Paths.get(fn)), metricas.getBytes());
+        assertEquals(100L, servidor.getAttribute(nome, "Eventos"));
+        assertEquals(0, metricas.getOcupacao());
+        assertTrue(metricas.getLotes() >= 1);
+
+        long lotes = 0;
+        for (long faixa : metricas.getHistogramaPersistencia()) {
+            lotes += faixa;
+        }
+
+        assertEquals(metricas.getLotes(), lotes);
+
+        log.close();
+
+        Set<ObjectName> restantes = servidor.queryNames(nome, null);
+        assertTrue(restantes.isEmpty());
+    }
+
+    @Test
+    public void faixasDoHistograma() {
+        assertEquals(0, Metricas.faixa(0));
+        assertEquals(1, Metricas.faixa(1));
+        assertEquals(2, Metricas.faixa(2));
+        assertEquals(2, Metricas.faixa(3));
+        assertEquals(11, Metricas.faixa(1024));
+        assertEquals(Metricas.FAIXAS - 1, Metricas.faixa(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void instanteObtidoDoRelogioFornecido() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging(() -> 1_480_000_000_123L);
+        log.start(fn);
+        log.info("relogio");
+        log.close();
+
+        List<String> linhas = Files.readAllLines(Paths.get(fn), StandardCharsets.UTF_8);
+        assertEquals("2016-11-24T15:06:40.123Z INFO relogio", linhas.get(0));
+        assertEquals("2016-11-24T15:06:40.123Z WARN shutting down logging service...", linhas.get(1));
+    }
+
+    @Test
+    public void instanteEmMicrossegundos() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging(new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return 1_480_000_000_123L;
+            }
+
+            @Override
+            public long currentTimeMicros() {
+                return 1_480_000_000_123_456L;
+            }
+        });
+
+        log.precisao(TimeUnit.MICROSECONDS);
+        log.start(fn);
+        log.info("micro");
+        log.close();
+
+        List<String> linhas = Files.readAllLines(Paths.get(fn), StandardCharsets.UTF_8);
+        assertEquals("2016-11-24T15:06:40.123456Z INFO micro", linhas.get(0));
+    }
+
+    @Test
+    public void codificacaoNoProdutor() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+
+        // Área pequena força reutilização circular e, eventualmente,
+        // codificação pelo consumidor.
+        log.codificacaoNoProdutor(2048);
+        log.start(fn);
+
+        int threads = 8;
+        int eventos = 5_000;
+        Thread[] produtores = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int id = t;
+            produtores[t] = new Thread(() -> {
+                for (int i = 0; i < eventos; i++) {
+                    log.info("produtor " + id + " evento " + i);
+                }
+            });
+            produtores[t].start();
+        }
+
+        for (Thread produtor : produtores) {
+            produtor.join();
+        }
+
+        // Não cabe na área, codificado pelo consumidor
+        StringBuilder longa = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            longa.append('x');
+        }
+
+        log.warn(longa.toString());
+        log.close();
+
+        List<String> linhas = Files.readAllLines(Paths.get(fn), StandardCharsets.UTF_8);
+        assertEquals(threads * eventos + 2, linhas.size());
+
+        Set<String> distintas = new HashSet<>();
+        for (String linha : linhas) {
+            assertTrue(linha.matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}\\.\\d{3}Z (INFO|WARN) .+"), linha);
+            distintas.add(linha.substring(30));
+        }
+
+        assertEquals(threads * eventos + 2, distintas.size());
+        assertTrue(linhas.get(linhas.size() - 2).endsWith(" WARN " + longa));
+    }
+
+    @Test
+    public void mensagensRepetidasSuprimidasEResumidas() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.limita(10, 5);
+        log.start(fn);
+
+        for (int i = 0; i < 10_000; i++) {
+            log.warn("disco cheio");
+        }
+
+        log.info("outra");
+        log.close();
+
+        List<String> linhas = Files.readAllLines(Paths.get(fn), StandardCharsets.UTF_8);
+
+        Pattern resumo = Pattern.compile(" WARN repeated ([\\d,]+) times in \\d+\\.\\ds: disco cheio$");
+        long registradas = 0;
+        long suprimidas = 0;
+        for (String linha : linhas) {
+            Matcher m = resumo.matcher(linha);
+            if (m.find()) {
+                suprimidas += Long.parseLong(m.group(1).replace(",", ""));
+            } else if (linha.endsWith(" WARN disco cheio")) {
+                registradas++;
+            }
+        }
+
+        assertTrue(registradas >= 5 && registradas < 100, "registradas: " + registradas);
+        assertEquals(10_000, registradas + suprimidas);
+        assertTrue(linhas.stream().anyMatch(l -> l.endsWith(" INFO outra")));
+    }
+
+    @Test
+    public void limiteConsideraModeloERegistrador() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.limita(10, 5);
+        log.start(fn);
+
+        LogNomeado a = log.logger("a");
+        LogNomeado b = log.logger("b");
+        for (int i = 0; i < 1_000; i++) {
+            a.warn("pedido " + i + " recusado");
+            b.warn("pedido " + i + " recusado");
+        }
+
+        log.close();
+
+        List<String> linhas = Files.readAllLines(Paths.get(fn), StandardCharsets.UTF_8);
+
+        // Cada registrador possui o próprio limite para o modelo
+        for (String origem : new String[] {"[a] ", "[b] "}) {
+            long registradas = linhas.stream()
+                    .filter(l -> l.contains(" WARN " + origem + "pedido "))
+                    .count();
+            assertTrue(registradas >= 5 && registradas < 100, origem + registradas);
+            assertTrue(linhas.stream().anyMatch(l -> l.contains(" WARN " + origem + "repeated ")
+                    && l.endsWith(": pedido # recusado")));
+        }
+    }
+
+    @Test
+    public void pilhaDeExecucaoRegistradaUmaUnicaVez() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.start(fn);
+
+        for (int i = 0; i < 3; i++) {
+            log.fail("falha " + i, falha("disco " + i));
+        }
+
+        log.fail("outra", new IllegalStateException("outra"));
+        log.close();
+
+        String conteudo = new String(Files.readAllBytes(Paths.get(fn)), StandardCharsets.UTF_8);
+
+        Matcher m = Pattern.compile("\\[stack #([0-9a-z]+)-1]").matcher(conteudo);
+        assertTrue(m.find());
+        String execucao = m.group(1);
+
+        assertTrue(conteudo.contains(" FAIL falha 0\n[stack #" + execucao + "-1] java.lang.RuntimeException: disco 0\n\tat "));
+        assertTrue(conteudo.contains("\nCaused by: java.io.IOException: causa\n"));
+        assertTrue(conteudo.contains(" FAIL falha 1\n[stack #" + execucao + "-1] java.lang.RuntimeException: disco 1\n2"));
+        assertTrue(conteudo.contains(" FAIL falha 2\n[stack #" + execucao + "-1] java.lang.RuntimeException: disco 2\n2"));
+        assertTrue(conteudo.contains(" FAIL outra\n[stack #" + execucao + "-2] java.lang.IllegalStateException: outra\n\tat "));
+
+        // Pilha completa produzida apenas uma vez
+        assertEquals(1, conteudo.split("Caused by", -1).length - 1);
+    }
+
+    @Test
+    public void identificadorDePilhaDistintoEntreExecucoes() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        // Relógio fixo: identificação da execução não depende do relógio
+        for (int i = 0; i < 2; i++) {
+            Logging log = new Logging(() -> 1_000_000L);
+            log.start(fn);
+            log.fail("falha", new IllegalStateException("falha"));
+            log.close();
+        }
+
+        String conteudo = new String(Files.readAllBytes(Paths.get(fn)), StandardCharsets.UTF_8);
+
+        // Pilha completa em cada execução, com identificadores distintos
+        Matcher m = Pattern.compile("\\[stack #([0-9a-z]+-1)] java.lang.IllegalStateException: falha\n\tat ")
+                .matcher(conteudo);
+        assertTrue(m.find());
+        String primeira = m.group(1);
+        assertTrue(m.find());
+        assertNotEquals(primeira, m.group(1));
+    }
+
+    private static RuntimeException falha(String msg) {
+        return new RuntimeException(msg, new java.io.IOException("causa"));
+    }
+
+    @Test
+    public void mensagensDiferidasProduzidasPeloConsumidor() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.nivel(Logging.WARN);
+        log.start(fn);
+
+        int[] avaliacoes = new int[1];
+
+        log.infoSobDemanda(() -> {
+            avaliacoes[0]++;
+            return "desabilitada";
+        });
+
+        log.warnSobDemanda(() -> {
+            avaliacoes[0]++;
+            return "habilitada";
+        });
+
+        byte[] dados = { 0x0A, (byte) 0xFF };
+        log.escreve(Logging.FAIL, sb -> {
+            sb.append("dump:");
+            for (byte b : dados) {
+                sb.append(' ').append(Integer.toHexString(b & 0xFF));
+            }
+        });
+
+        log.escreve(Logging.FAIL, sb -> {
+            throw new IllegalStateException("x");
+        });
+
+        // Consumidor sobrevive a erros (Error) do escritor
+        log.escreve(Logging.FAIL, sb -> {
+            throw new StackOverflowError();
+        });
+
+        log.warn("após erro");
+        log.close();
+
+        assertEquals(1, avaliacoes[0]);
+
+        List<String> linhas = Files.readAllLines(Paths.get(fn), StandardCharsets.UTF_8);
+        assertTrue(linhas.get(0).endsWith(" WARN habilitada"));
+        assertTrue(linhas.get(1).endsWith(" FAIL dump: a ff"));
+        assertTrue(linhas.get(2).contains(" FAIL  <falha ao produzir mensagem: java.lang.IllegalStateException: x>"));
+        assertTrue(linhas.get(3).contains(" FAIL  <falha ao produzir mensagem: java.lang.StackOverflowError>"));
+        assertTrue(linhas.get(4).endsWith(" WARN após erro"));
+    }
+
+    @Test
+    public void escritorComNivelInvalidoRejeitado() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.start(fn);
+
+        LogNomeado nomeado = log.logger("nomeado");
+        assertThrows(IllegalArgumentException.class, () -> log.escreve(5, sb -> sb.append("x")));
+        assertThrows(IllegalArgumentException.class, () -> log.escreve(-1, sb -> sb.append("x")));
+        assertThrows(IllegalArgumentException.class, () -> nomeado.escreve(3, sb -> sb.append("x")));
+
+        log.escreve(Logging.WARN, sb -> sb.append("válido"));
+        log.close();
+
+        List<String> linhas = Files.readAllLines(Paths.get(fn), StandardCharsets.UTF_8);
+        assertTrue(linhas.get(0).endsWith(" WARN válido"));
+    }
+
+    @Test
+    public void consumoRespeitaLatenciaMaxima() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.latenciaMaxima(20);
+        log.start(fn);
+
+        // Consumidor ocioso atinge o maior intervalo
+        Thread.sleep(100);
+        log.info("pronto");
+
+        long limite = System.currentTimeMillis() + 500;
+        while (Files.size(Paths.get(fn)) == 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(5);
+        }
+
+        assertTrue(Files.size(Paths.get(fn)) > 0);
+        log.close();
+    }
+
+    @Test
+    public void consumidorSobreviveAFalhaNaExecucao() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        // Primeira consulta do consumidor ao relógio falha
+        AtomicBoolean falhou = new AtomicBoolean();
+        Logging log = new Logging(() -> {
+            if (Thread.currentThread().getName().equals("hdb-logging") && falhou.compareAndSet(false, true)) {
+                throw new IllegalStateException("relógio");
+            }
+
+            return System.currentTimeMillis();
+        });
+
+        log.durabilidade(Durabilidade.PERIODICA, 0);
+        log.latenciaMaxima(20);
+        log.start(fn);
+
+        long limite = System.currentTimeMillis() + 2_000;
+        while (!falhou.get() && System.currentTimeMillis() < limite) {
+            Thread.sleep(5);
+        }
+
+        // Registrado pelo consumidor, e não no encerramento
+        log.info("após falha");
+        while (Files.size(Paths.get(fn)) == 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(5);
+        }
+
+        assertTrue(Files.size(Paths.get(fn)) > 0);
+        assertEquals(1, log.metricas().getFalhasConsumo());
+        assertEquals("java.lang.IllegalStateException: relógio", log.metricas().getUltimaFalha());
+        log.close();
+    }
+}
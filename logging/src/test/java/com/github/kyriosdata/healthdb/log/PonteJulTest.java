@@ -0,0 +1,67 @@
+package com.github.kyriosdata.healthdb.log;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.UUID;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PonteJulTest {
+
+    private String dir = getClass().getResource(".").getFile();
+
+    @Test
+    public void mapeamentoDeNiveis() {
+        assertEquals(Logging.FAIL, PonteJul.nivel(Level.SEVERE));
+        assertEquals(Logging.WARN, PonteJul.nivel(Level.WARNING));
+        assertEquals(Logging.INFO, PonteJul.nivel(Level.INFO));
+        assertEquals(Logging.INFO, PonteJul.nivel(Level.FINE));
+    }
+
+    @Test
+    public void registrosDeJulEncaminhados() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logger raiz = Logger.getLogger("");
+        Handler[] originais = raiz.getHandlers();
+
+        Logging log = new Logging();
+        log.start(fn);
+
+        try {
+            PonteJul.instala(log);
+            assertEquals(1, raiz.getHandlers().length);
+
+            Logger jul = Logger.getLogger("teste.jul");
+            jul.log(Level.WARNING, "aviso {0}", 42);
+            jul.fine("ignorado");
+            jul.log(Level.SEVERE, "grave", new IOException("disco"));
+            jul.info("informativo");
+
+            log.close();
+        } finally {
+            for (Handler handler : raiz.getHandlers()) {
+                raiz.removeHandler(handler);
+            }
+
+            for (Handler handler : originais) {
+                raiz.addHandler(handler);
+            }
+        }
+
+        String conteudo = new String(Files.readAllBytes(Paths.get(fn)), StandardCharsets.UTF_8);
+        assertTrue(conteudo.contains(" WARN [teste.jul] aviso 42\n"));
+        assertTrue(conteudo.matches("(?s).* FAIL \\[teste.jul] grave\n\\[stack #[0-9a-z]+-1] java.io.IOException: disco\n\tat .*"));
+        assertTrue(conteudo.contains(" INFO [teste.jul] informativo\n"));
+        assertFalse(conteudo.contains("ignorado"));
+    }
+}
@@ -0,0 +1,203 @@
+package com.github.kyriosdata.healthdb.log;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VerificadorAuditoriaTest {
+
+    private String dir = getClass().getResource(".").getFile();
+
+    private void produz(String fn, int total) throws Exception {
+        Logging log = new Logging();
+        log.auditoria(true);
+        log.start(fn);
+
+        for (int i = 0; i < total; i++) {
+            if (i % 500 == 0) {
+                log.fail("evento " + i, new IllegalStateException("falha " + i));
+            } else {
+                log.info("evento " + i);
+            }
+
+            // Provoca vários lotes
+            if (i % 1000 == 0) {
+                log.sincroniza();
+            }
+        }
+
+        log.close();
+    }
+
+    @Test
+    public void auditoriaRejeitadaEmFormatoBinario() {
+        String fn = dir + UUID.randomUUID().toString();
+
+        Logging log = new Logging();
+        log.formato(Formato.BINARIO);
+        log.auditoria(true);
+
+        assertThrows(IllegalStateException.class, () -> log.start(fn));
+        assertFalse(Files.exists(Paths.get(fn)));
+    }
+
+    @Test
+    public void eloForjadoEmMensagemNaoProduzEloNoArquivo() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+
+        StringBuilder resumo = new StringBuilder();
+        for (int i = 0; i < 64; i++) {
+            resumo.append('f');
+        }
+
+        String forjado = "#HDB-AUDIT 999 " + resumo;
+
+        Logging log = new Logging();
+        log.auditoria(true);
+        log.codificacaoNoProdutor(64 * 1024);
+        log.start(fn);
+        log.info("consumidor\n" + forjado);
+        log.logger("nome\n" + forjado).warn("registrador");
+        log.close();
+
+        // Nenhuma linha do arquivo é o elo forjado
+        String conteudo = new String(Files.readAllBytes(Paths.get(fn)), StandardCharsets.UTF_8);
+        assertFalse(conteudo.contains("\n" + forjado));
+        assertTrue(conteudo.contains("\n\\" + forjado));
+
+        VerificadorAuditoria verificador = new VerificadorAuditoria();
+        assertTrue(verificador.verifica(fn), verificador.falha());
+
+        // Reinício prossegue a cadeia verdadeira, não a forjada
+        produz(fn, 10);
+        assertTrue(verificador.verifica(fn), verificador.falha());
+        assertFalse(verificador.ultimoElo().startsWith("#HDB-AUDIT 1000 "));
+    }
+
+    @Test
+    public void cadeiaIntegraValida() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+        produz(fn, 5_000);
+
+        VerificadorAuditoria verificador = new VerificadorAuditoria();
+        assertTrue(verificador.verifica(fn), verificador.falha());
+        assertTrue(verificador.elos() > 2);
+        assertEquals(0, verificador.naoVerificados());
+        long elos = verificador.elos();
+
+        // Reinício do serviço prossegue a mesma cadeia
+        produz(fn, 100);
+        assertTrue(verificador.verifica(fn), verificador.falha());
+        assertTrue(verificador.elos() > elos);
+        assertEquals(0, verificador.naoVerificados());
+        assertTrue(verificador.ultimoElo().startsWith("#HDB-AUDIT " + (verificador.elos() - 1) + " "));
+    }
+
+    @Test
+    public void remocaoDeExecucaoDetectada() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+        produz(fn, 100);
+        int primeira = Files.readAllBytes(Paths.get(fn)).length;
+        produz(fn, 100);
+        int segunda = Files.readAllBytes(Paths.get(fn)).length;
+        produz(fn, 100);
+
+        byte[] conteudo = Files.readAllBytes(Paths.get(fn));
+        VerificadorAuditoria verificador = new VerificadorAuditoria();
+        assertTrue(verificador.verifica(new ByteArrayInputStream(conteudo)), verificador.falha());
+
+        // Sem a segunda execução
+        byte[] removida = new byte[conteudo.length - (segunda - primeira)];
+        System.arraycopy(conteudo, 0, removida, 0, primeira);
+        System.arraycopy(conteudo, segunda, removida, primeira, conteudo.length - segunda);
+        assertFalse(verificador.verifica(new ByteArrayInputStream(removida)));
+    }
+
+    @Test
+    public void alteracaoSemEloFinalDetectadaAposReinicio() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+        produz(fn, 100);
+        produz(fn, 100);
+
+        // Altera o último registro da primeira execução e remove o elo seguinte
+        String conteudo = new String(Files.readAllBytes(Paths.get(fn)), StandardCharsets.UTF_8);
+        int fimPrimeira = conteudo.indexOf("#HDB-AUDIT ", conteudo.indexOf("shutting down"));
+        int fimElo = conteudo.indexOf('\n', fimPrimeira) + 1;
+        String alterado = conteudo.substring(0, fimPrimeira).replace("shutting down", "shutting d0wn")
+                + conteudo.substring(fimElo);
+
+        VerificadorAuditoria verificador = new VerificadorAuditoria();
+        assertFalse(verificador.verifica(new ByteArrayInputStream(alterado.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void bytesSemEloProtegidosAposReinicio() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+        produz(fn, 10);
+
+        // Término abrupto: registros sem elo (vários blocos)
+        StringBuilder semElo = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            semElo.append("registro sem elo\n");
+        }
+
+        semElo.append("acrescentado");
+        Files.write(Paths.get(fn), semElo.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        produz(fn, 10);
+
+        VerificadorAuditoria verificador = new VerificadorAuditoria();
+        assertTrue(verificador.verifica(fn), verificador.falha());
+        assertEquals(0, verificador.naoVerificados());
+
+        // Bytes protegidos pelo elo do reinício
+        String conteudo = new String(Files.readAllBytes(Paths.get(fn)), StandardCharsets.UTF_8);
+        byte[] alterado = conteudo.replace("acrescentado", "acrescentad0").getBytes(StandardCharsets.UTF_8);
+        assertFalse(verificador.verifica(new ByteArrayInputStream(alterado)));
+    }
+
+    @Test
+    public void alteracaoDeRegistroDetectada() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+        produz(fn, 2_000);
+
+        String conteudo = new String(Files.readAllBytes(Paths.get(fn)), StandardCharsets.UTF_8);
+        assertTrue(conteudo.contains(" INFO evento 1234\n"));
+
+        VerificadorAuditoria verificador = new VerificadorAuditoria();
+
+        byte[] alterado = conteudo.replace(" INFO evento 1234\n", " INFO evento 1235\n")
+                .getBytes(StandardCharsets.UTF_8);
+        assertFalse(verificador.verifica(new ByteArrayInputStream(alterado)));
+        assertNotNull(verificador.falha());
+
+        byte[] removido = conteudo.replace(" INFO evento 1234\n", "\n")
+                .getBytes(StandardCharsets.UTF_8);
+        assertFalse(verificador.verifica(new ByteArrayInputStream(removido)));
+    }
+
+    @Test
+    public void registrosAposUltimoEloNaoVerificados() throws Exception {
+        String fn = dir + UUID.randomUUID().toString();
+        produz(fn, 10);
+
+        Files.write(Paths.get(fn), "acrescentado\n".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        VerificadorAuditoria verificador = new VerificadorAuditoria();
+        assertTrue(verificador.verifica(fn));
+        assertEquals(13, verificador.naoVerificados());
+    }
+}
@@ -23,7 +23,7 @@ public class ObjectManager {
         pool = colecao;
     }
 
-    Objeto get(int arquivo, int endereco) {
+    Objeto get(int arquivo, long endereco) {
         // Requisita carga "antecipada" do
         // bloco onde se inicia o objeto.
 
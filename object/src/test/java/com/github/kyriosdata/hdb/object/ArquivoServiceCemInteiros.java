@@ -86,26 +86,36 @@ public class ArquivoServiceCemInteiros implements ArquivoService {
     }
 
     @Override
-    public int acrescenta(int handle, ByteBuffer buffer) {
+    public boolean sincroniza(int handle) {
+        return false;
+    }
+
+    @Override
+    public boolean agrupa(int handle, int capacidade) {
+        return false;
+    }
+
+    @Override
+    public long acrescenta(int handle, ByteBuffer buffer) {
         return 0;
     }
 
     @Override
-    public int acrescenta(int handle, byte[] buffer, int i, int total) {
+    public long acrescenta(int handle, byte[] buffer, int i, int total) {
         return 0;
     }
 
     @Override
-    public int carrega(int handle, ByteBuffer buffer, int posicao) {
+    public int carrega(int handle, ByteBuffer buffer, long posicao) {
         return carrega(handle, buffer.array(), posicao);
     }
 
     @Override
-    public int carrega(int handle, byte[] buffer, int posicao) {
+    public int carrega(int handle, byte[] buffer, long posicao) {
 
         int destino = 0;
         int tamanho = buffer.length;
-        for(int i = posicao; i < 100 && destino < tamanho; i++) {
+        for(int i = (int) posicao; i < 100 && destino < tamanho; i++) {
             buffer[destino++] = dados[i];
         }
 
@@ -113,12 +123,27 @@ public class ArquivoServiceCemInteiros implements ArquivoService {
     }
 
     @Override
-    public int escreve(int handle, ByteBuffer buffer, int posicao) {
+    public int escreve(int handle, ByteBuffer buffer, long posicao) {
         return 0;
     }
 
     @Override
-    public int escreve(int handle, byte[] buffer, int posicao) {
+    public int escreve(int handle, byte[] buffer, long posicao) {
+        return 0;
+    }
+
+    @Override
+    public long carrega(int handle, ByteBuffer[] buffers, long posicao) {
+        long total = 0;
+        for (ByteBuffer buffer : buffers) {
+            total += carrega(handle, buffer, posicao + total);
+        }
+
+        return total;
+    }
+
+    @Override
+    public long escreve(int handle, ByteBuffer[] buffers, long posicao) {
         return 0;
     }
 
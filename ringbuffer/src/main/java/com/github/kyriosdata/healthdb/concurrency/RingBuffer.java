@@ -142,6 +142,18 @@ public class RingBuffer {
         return lf - ff.get() + 1;
     }
 
+    /**
+     * Total de alocações realizadas desde a criação da instância.
+     * Como o consumo ocorre na ordem de alocação, quando o total
+     * de valores consumidos atinge o valor retornado, todos os
+     * valores alocados até a chamada foram consumidos.
+     *
+     * @return Quantidade de alocações efetuadas.
+     */
+    public int totalAlocados() {
+        return ff.get();
+    }
+
     /**
      * Verifica se, no instante em questão, o valor está produzido.
      *
@@ -173,6 +185,30 @@ public class RingBuffer {
         }
     }
 
+    /**
+     * Realiza alocação de um valor, caso exista entrada disponível.
+     * Ao contrário de {@link #aloca()}, não aguarda (nem provoca o
+     * consumo) quando todas as entradas estão ocupadas.
+     *
+     * @return O identificador único a ser "produzido" e posteriormente
+     * consumido, ou o valor -1, caso não exista entrada disponível.
+     *
+     * @see #aloca()
+     */
+    public int tentaAloca() {
+        while (true) {
+            int candidato = ff.get();
+            if (candidato > lf) {
+                return -1;
+            }
+
+            if (ff.compareAndSet(candidato, candidato + 1)) {
+                producao[candidato & mascara] = 0;
+                return candidato & mascara;
+            }
+        }
+    }
+
     /**
      * Processa valores já disponíveis. Ou seja,
      * todos os que já foram alocados e também
@@ -185,9 +221,35 @@ public class RingBuffer {
             return;
         }
 
-        realFlush();
+        try {
+            realFlush();
+        } finally {
+            working.set(0);
+        }
+    }
 
-        working.set(0);
+    /**
+     * Executa a tarefa com exclusão mútua em relação ao consumo, ou
+     * seja, nenhuma chamada de {@link #consome(int, boolean)} ocorre
+     * simultaneamente. A tarefa não é executada se o consumo está em
+     * andamento (não aguarda).
+     *
+     * @param tarefa Tarefa a ser executada.
+     *
+     * @return {@code true} se e somente se a tarefa foi executada.
+     */
+    public boolean exclusivo(Runnable tarefa) {
+        if (!working.compareAndSet(0, 1)) {
+            return false;
+        }
+
+        try {
+            tarefa.run();
+        } finally {
+            working.set(0);
+        }
+
+        return true;
     }
 
     /**
@@ -223,12 +285,14 @@ public class RingBuffer {
                 producao[valor] = 0;
             }
 
-            // Indica que se trata do ÚLTIMO
-            consome(lu & mascara, true);
-            producao[lu & mascara] = 0;
-
-            // Disponibiliza valores para reutilização
-            lf = lf + totalProducao;
+            // Indica que se trata do ÚLTIMO. Valores são disponibilizados
+            // para reutilização mesmo em caso de exceção (propagada).
+            try {
+                consome(lu & mascara, true);
+            } finally {
+                producao[lu & mascara] = 0;
+                lf = lf + totalProducao;
+            }
         }
     }
 
@@ -36,6 +36,38 @@ public class RingBufferTest {
         assertEquals(2, valor);
     }
 
+    @Test
+    public void excecaoNoUltimoNaoImpedeConsumosPosteriores() {
+        int[] consumidos = {0};
+
+        RingBuffer s = new RingBuffer() {
+            @Override
+            public void consome(int i, boolean u) {
+                consumidos[0]++;
+                if (consumidos[0] == 2) {
+                    throw new RuntimeException();
+                }
+            }
+        };
+
+        // Último do lote falha e a exceção é propagada
+        s.produz(s.aloca());
+        s.produz(s.aloca());
+        assertThrows(RuntimeException.class, s::flush);
+
+        // Sem consumo repetido e sem bloqueio do consumo
+        s.produz(s.aloca());
+        s.flush();
+        assertEquals(3, consumidos[0]);
+
+        for (int i = 0; i < RingBuffer.SIZE * 2; i++) {
+            s.produz(s.aloca());
+        }
+
+        s.flush();
+        assertEquals(3 + RingBuffer.SIZE * 2, consumidos[0]);
+    }
+
     @Test
     public void potenciaDeDoisObrigatoriaParaTamanho() {
         assertThrows(IllegalArgumentException.class, () -> new RingBuffer(-1));
@@ -70,6 +102,25 @@ public class RingBufferTest {
         }
     }
 
+    @Test
+    public void exclusivoNaoExecutadoDuranteConsumo() {
+        boolean[] executada = new boolean[2];
+
+        RingBuffer s = new RingBuffer() {
+            @Override
+            public void consome(int i, boolean u) {
+                executada[0] = exclusivo(() -> {});
+            }
+        };
+
+        s.produz(s.aloca());
+        s.flush();
+
+        assertFalse(executada[0]);
+        assertTrue(s.exclusivo(() -> executada[1] = true));
+        assertTrue(executada[1]);
+    }
+
     @Test
     public void verificaEstadoInicial() {
         RingBuffer s = new RingBuffer();
@@ -87,6 +138,36 @@ public class RingBufferTest {
         assertEquals(2, RingBuffer.SIZE - s.entradasDisponiveis());
     }
 
+    @Test
+    public void totalAlocadosNaoDependeDoConsumo() {
+        RingBuffer s = new RingBuffer();
+        assertEquals(0, s.totalAlocados());
+
+        for (int i = 0; i < RingBuffer.SIZE + 10; i++) {
+            s.produz(s.aloca());
+        }
+
+        s.flush();
+
+        assertEquals(RingBuffer.SIZE + 10, s.totalAlocados());
+    }
+
+    @Test
+    public void tentaAlocaNaoAguardaQuandoCheio() {
+        RingBuffer s = new RingBuffer();
+
+        for (int i = 0; i < RingBuffer.SIZE; i++) {
+            assertEquals(i, s.tentaAloca());
+            s.produz(i);
+        }
+
+        assertEquals(-1, s.tentaAloca());
+
+        s.flush();
+
+        assertEquals(0, s.tentaAloca());
+    }
+
     @Test
     public void alocaUsaLibera() {
         RingBuffer s = new RingBuffer();
@@ -20,6 +20,17 @@ public interface Clock {
      * @return Total de milissegundos desde "epoch" (UTC).
      */
     long currentTimeMillis();
+
+    /**
+     * Obtém a quantidade de microssegundos transcorridos desde a
+     * "epoch" (UTC). A precisão efetiva depende da implementação;
+     * a implementação padrão tem precisão de milissegundos.
+     *
+     * @return Total de microssegundos desde "epoch" (UTC).
+     */
+    default long currentTimeMicros() {
+        return currentTimeMillis() * 1000;
+    }
 }
 
 
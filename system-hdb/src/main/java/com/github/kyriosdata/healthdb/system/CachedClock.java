@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2016
+ *
+ * Fábio Nogueira de Lucena
+ * Fábrica de Software - Instituto de Informática (UFG)
+ *
+ * Creative Commons Attribution 4.0 International License.
+ */
+
+package com.github.kyriosdata.healthdb.system;
+
+import com.github.kyriosdata.healthdb.api.Clock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Relógio cujo instante corrente é mantido em memória e atualizado
+ * periodicamente por <i>thread</i> própria, conforme a resolução
+ * indicada. A consulta é a leitura de um campo, em vez de uma
+ * chamada a {@link System#currentTimeMillis()}, o que é conveniente
+ * para caminhos críticos que toleram a perda de precisão, como o
+ * registro de eventos de <i>log</i>.
+ *
+ * <p>O valor retornado pode estar atrasado em até uma resolução
+ * (além do atraso de escalonamento da <i>thread</i>). O relógio
+ * deve ser encerrado por meio de {@link #close()}.
+ */
+public class CachedClock implements Clock, AutoCloseable, Runnable {
+
+    private final long resolucao;
+
+    private final Thread thread;
+
+    private volatile long instante;
+
+    private volatile boolean ativo = true;
+
+    /**
+     * Cria relógio atualizado a cada milissegundo.
+     */
+    public CachedClock() {
+        this(1);
+    }
+
+    /**
+     * Cria relógio atualizado conforme a resolução indicada.
+     *
+     * @param resolucao Intervalo, em milissegundos, entre atualizações
+     *                  do instante corrente.
+     */
+    public CachedClock(long resolucao) {
+        if (resolucao < 1) {
+            throw new IllegalArgumentException("resolucao < 1");
+        }
+
+        this.resolucao = resolucao;
+        this.instante = System.currentTimeMillis();
+
+        thread = new Thread(this, "hdb-cached-clock");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Resolução do relógio.
+     *
+     * @return Intervalo, em milissegundos, entre atualizações.
+     */
+    public long resolucao() {
+        return resolucao;
+    }
+
+    /**
+     * Milissegundos transcorridos desde a "epoch" (UTC), conforme
+     * a última atualização.
+     *
+     * @return Total de milissegundos desde "epoch" (UTC).
+     */
+    @Override
+    public long currentTimeMillis() {
+        return instante;
+    }
+
+    @Override
+    public void run() {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(resolucao);
+        while (ativo) {
+            LockSupport.parkNanos(nanos);
+            instante = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Interrompe a atualização do instante corrente. Após o
+     * encerramento, o último instante obtido é retornado.
+     */
+    @Override
+    public void close() {
+        ativo = false;
+        LockSupport.unpark(thread);
+
+        try {
+            thread.join();
+        } catch (InterruptedException exp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
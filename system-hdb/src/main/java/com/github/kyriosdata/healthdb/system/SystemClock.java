@@ -11,6 +11,8 @@ package com.github.kyriosdata.healthdb.system;
 
 import com.github.kyriosdata.healthdb.api.Clock;
 
+import java.time.Instant;
+
 /**
  * Serviço que recupera instante corrente.
  */
@@ -30,6 +32,20 @@ public class SystemClock implements Clock {
     public long currentTimeMillis() {
         return System.currentTimeMillis();
     }
+
+    /**
+     * Microssegundos transcorridos desde a "epoch" (UTC), com a
+     * precisão do relógio oferecido pela plataforma.
+     *
+     * @return Total de microssegundos desde "epoch" (UTC).
+     *
+     * @see Instant#now()
+     */
+    @Override
+    public long currentTimeMicros() {
+        Instant agora = Instant.now();
+        return agora.getEpochSecond() * 1_000_000 + agora.getNano() / 1000;
+    }
 }
 
 
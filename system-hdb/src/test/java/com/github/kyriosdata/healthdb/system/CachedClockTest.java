@@ -0,0 +1,37 @@
+package com.github.kyriosdata.healthdb.system;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CachedClockTest {
+
+    @Test
+    public void instanteAtualizadoPeriodicamente() throws Exception {
+        try (CachedClock clock = new CachedClock(5)) {
+            long inicio = clock.currentTimeMillis();
+            assertTrue(Math.abs(System.currentTimeMillis() - inicio) < 1000);
+
+            Thread.sleep(100);
+
+            assertTrue(clock.currentTimeMillis() > inicio);
+        }
+    }
+
+    @Test
+    public void instanteNaoMudaAposEncerramento() throws Exception {
+        CachedClock clock = new CachedClock(1);
+        clock.close();
+
+        long instante = clock.currentTimeMillis();
+        Thread.sleep(20);
+        assertEquals(instante, clock.currentTimeMillis());
+    }
+
+    @Test
+    public void resolucaoInvalida() {
+        assertThrows(IllegalArgumentException.class, () -> new CachedClock(0));
+    }
+}